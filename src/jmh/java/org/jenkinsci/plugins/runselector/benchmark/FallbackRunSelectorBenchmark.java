@@ -0,0 +1,68 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 Alexandru Somai
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jenkinsci.plugins.runselector.benchmark;
+
+import hudson.model.Run;
+import org.jenkinsci.plugins.runselector.filters.DisplayNameRunFilter;
+import org.jenkinsci.plugins.runselector.selectors.FallbackRunSelector;
+import org.jenkinsci.plugins.runselector.selectors.StatusRunSelector;
+import org.jenkinsci.plugins.runselector.selectors.StatusRunSelector.BuildStatus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Arrays;
+
+/**
+ * Benchmarks for {@link FallbackRunSelector}.
+ */
+@State(Scope.Benchmark)
+public class FallbackRunSelectorBenchmark {
+    private FallbackRunSelector selector;
+
+    @Setup
+    public void createSelector() {
+        // the first entry walks through the whole history without any match.
+        selector = new FallbackRunSelector(Arrays.asList(
+                new FallbackRunSelector.Entry(
+                        new StatusRunSelector(BuildStatus.STABLE),
+                        new DisplayNameRunFilter("missing")
+                ),
+                new FallbackRunSelector.Entry(
+                        new StatusRunSelector(BuildStatus.SUCCESSFUL),
+                        new DisplayNameRunFilter("target")
+                )
+        ));
+    }
+
+    /**
+     * Selects the first build after an entry without any match.
+     */
+    @Benchmark
+    public Run<?, ?> selectFallback(HistoryState history) throws Exception {
+        return selector.select(history.job, history.newContext());
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 Alexandru Somai
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jenkinsci.plugins.runselector.benchmark;
+
+import hudson.model.Result;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import org.jenkinsci.plugins.runselector.RunFilter;
+import org.jenkinsci.plugins.runselector.context.RunSelectorContext;
+import org.jenkinsci.plugins.runselector.filters.NoRunFilter;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+
+/**
+ * A build history to select builds from,
+ * and a build running the selection.
+ */
+@State(Scope.Benchmark)
+public class HistoryState {
+    /**
+     * the number of builds in {@link #job}
+     */
+    @Param({"10", "1000", "100000"})
+    public int size;
+
+    /**
+     * the job to select builds from
+     */
+    public SyntheticJob job;
+
+    /**
+     * the build running the selection
+     */
+    public SyntheticRun build;
+
+    private JenkinsState jenkinsState;
+
+    @Setup(Level.Trial)
+    public void createHistory(JenkinsState jenkinsState) {
+        this.jenkinsState = jenkinsState;
+        job = SyntheticJob.withHistory(jenkinsState.jenkins, "upstream", size);
+        build = new SyntheticJob(jenkinsState.jenkins, "downstream").addBuild(Result.SUCCESS, 0L);
+    }
+
+    /**
+     * @param build     the build running the selection
+     * @param runFilter the filter to use
+     * @return a new context for a selection
+     */
+    @Nonnull
+    public RunSelectorContext newContext(@Nonnull Run<?, ?> build, @Nonnull RunFilter runFilter)
+            throws IOException, InterruptedException {
+        return new RunSelectorContext(jenkinsState.jenkins, build, TaskListener.NULL, runFilter);
+    }
+
+    /**
+     * @param runFilter the filter to use
+     * @return a new context for a selection run by {@link #build}
+     */
+    @Nonnull
+    public RunSelectorContext newContext(@Nonnull RunFilter runFilter) throws IOException, InterruptedException {
+        return newContext(build, runFilter);
+    }
+
+    /**
+     * @return a new context for a selection run by {@link #build} without filters
+     */
+    @Nonnull
+    public RunSelectorContext newContext() throws IOException, InterruptedException {
+        return newContext(new NoRunFilter());
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 Alexandru Somai
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jenkinsci.plugins.runselector.benchmark;
+
+import jenkins.model.Jenkins;
+import org.junit.runner.Description;
+import org.junit.runners.model.Statement;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Runs a Jenkins instance for a benchmark trial.
+ *
+ * Selectors look up their descriptors and contexts require the Jenkins instance,
+ * even if builds to select are {@link SyntheticRun}s.
+ */
+@State(Scope.Benchmark)
+public class JenkinsState {
+    private JenkinsRule rule;
+
+    /**
+     * the running Jenkins instance
+     */
+    public Jenkins jenkins;
+
+    @Setup(Level.Trial)
+    public void startJenkins() throws Throwable {
+        rule = new JenkinsRule();
+        rule.timeout = 0;
+        // apply() only to let the rule know the "test" it runs for.
+        rule.apply(new Statement() {
+            @Override
+            public void evaluate() throws Throwable {
+            }
+        }, Description.createSuiteDescription(JenkinsState.class));
+        rule.before();
+        jenkins = rule.jenkins;
+    }
+
+    @TearDown(Level.Trial)
+    public void stopJenkins() throws Exception {
+        rule.after();
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 Alexandru Somai
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jenkinsci.plugins.runselector.benchmark;
+
+import hudson.model.Run;
+import org.jenkinsci.plugins.runselector.RunFilter;
+import org.jenkinsci.plugins.runselector.filters.AndRunFilter;
+import org.jenkinsci.plugins.runselector.filters.DisplayNameRunFilter;
+import org.jenkinsci.plugins.runselector.filters.NotRunFilter;
+import org.jenkinsci.plugins.runselector.filters.OrRunFilter;
+import org.jenkinsci.plugins.runselector.selectors.StatusRunSelector;
+import org.jenkinsci.plugins.runselector.selectors.StatusRunSelector.BuildStatus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks for {@link AndRunFilter}, {@link OrRunFilter} and {@link NotRunFilter}.
+ */
+@State(Scope.Benchmark)
+public class RunFilterBenchmark {
+    private RunFilter nestedFilter;
+    private RunFilter wideFilter;
+
+    @Setup
+    public void createFilters() {
+        // accepts only the first build.
+        nestedFilter = new AndRunFilter(
+                new NotRunFilter(new DisplayNameRunFilter("missing")),
+                new OrRunFilter(
+                        new DisplayNameRunFilter("other"),
+                        new NotRunFilter(new NotRunFilter(new DisplayNameRunFilter("target")))
+                )
+        );
+        RunFilter[] children = new RunFilter[16];
+        for (int i = 0; i < children.length - 1; ++i) {
+            children[i] = new DisplayNameRunFilter("missing" + i);
+        }
+        children[children.length - 1] = new DisplayNameRunFilter("target");
+        wideFilter = new OrRunFilter(children);
+    }
+
+    /**
+     * Selects the first build with nested combinators.
+     */
+    @Benchmark
+    public Run<?, ?> selectNested(HistoryState history) throws Exception {
+        return new StatusRunSelector(BuildStatus.COMPLETED).select(
+                history.job,
+                history.newContext(nestedFilter)
+        );
+    }
+
+    /**
+     * Selects the first build with a combinator with many children.
+     */
+    @Benchmark
+    public Run<?, ?> selectWide(HistoryState history) throws Exception {
+        return new StatusRunSelector(BuildStatus.COMPLETED).select(
+                history.job,
+                history.newContext(wideFilter)
+        );
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 Alexandru Somai
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jenkinsci.plugins.runselector.benchmark;
+
+import hudson.model.ItemGroup;
+import hudson.model.Job;
+import hudson.model.Result;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import java.util.Collections;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * A {@link Job} holding its build history only in memory.
+ * Not registered to Jenkins, and never saved.
+ */
+public class SyntheticJob extends Job<SyntheticJob, SyntheticRun> {
+    /**
+     * builds, the newest first, as {@link Job#_getRuns()} requires.
+     */
+    private final TreeMap<Integer, SyntheticRun> runs
+            = new TreeMap<Integer, SyntheticRun>(Collections.<Integer>reverseOrder());
+
+    private SyntheticRun lastStableBuild;
+    private SyntheticRun lastSuccessfulBuild;
+    private SyntheticRun lastUnstableBuild;
+    private SyntheticRun lastFailedBuild;
+
+    /**
+     * @param parent the parent, usually the Jenkins instance
+     * @param name   the name of the job
+     */
+    public SyntheticJob(@Nonnull ItemGroup parent, @Nonnull String name) {
+        super(parent, name);
+    }
+
+    /**
+     * Creates a job with builds with mixed results:
+     * every 10th build fails, every 3rd build is unstable, and others are stable.
+     * The first build has the display name "target".
+     *
+     * @param parent the parent, usually the Jenkins instance
+     * @param name   the name of the job
+     * @param size   the number of builds
+     * @return the created job
+     */
+    @Nonnull
+    public static SyntheticJob withHistory(@Nonnull ItemGroup parent, @Nonnull String name, int size) {
+        SyntheticJob job = new SyntheticJob(parent, name);
+        for (int i = 1; i <= size; ++i) {
+            Result result = (i % 10 == 0) ? Result.FAILURE
+                    : (i % 3 == 0) ? Result.UNSTABLE
+                    : Result.SUCCESS;
+            SyntheticRun run = job.addBuild(result, i * 1000L);
+            if (i == 1) {
+                run.setSyntheticDisplayName("target");
+            }
+        }
+        return job;
+    }
+
+    /**
+     * Adds a completed build.
+     *
+     * @param result    the result of the build
+     * @param timestamp the time the build is scheduled
+     * @return the added build
+     */
+    @Nonnull
+    public SyntheticRun addBuild(@Nonnull Result result, long timestamp) {
+        SyntheticRun previous = runs.isEmpty() ? null : runs.get(runs.firstKey());
+        SyntheticRun run = new SyntheticRun(this, runs.size() + 1, timestamp, result, previous);
+        runs.put(run.getNumber(), run);
+
+        if (result == Result.SUCCESS) {
+            lastStableBuild = run;
+        }
+        if (result.isBetterOrEqualTo(Result.UNSTABLE)) {
+            lastSuccessfulBuild = run;
+        }
+        if (result == Result.UNSTABLE) {
+            lastUnstableBuild = run;
+        }
+        if (result == Result.FAILURE) {
+            lastFailedBuild = run;
+        }
+        return run;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isBuildable() {
+        return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected SortedMap<Integer, SyntheticRun> _getRuns() {
+        return runs;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void removeRun(SyntheticRun run) {
+        runs.remove(run.getNumber());
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Permalinks are held in memory instead of the permalink cache on disk.
+     */
+    @Override
+    @CheckForNull
+    public SyntheticRun getLastStableBuild() {
+        return lastStableBuild;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @CheckForNull
+    public SyntheticRun getLastSuccessfulBuild() {
+        return lastSuccessfulBuild;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @CheckForNull
+    public SyntheticRun getLastUnstableBuild() {
+        return lastUnstableBuild;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @CheckForNull
+    public SyntheticRun getLastFailedBuild() {
+        return lastFailedBuild;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @CheckForNull
+    public SyntheticRun getLastCompletedBuild() {
+        return getLastBuild();
+    }
+}
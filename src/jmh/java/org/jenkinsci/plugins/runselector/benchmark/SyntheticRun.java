@@ -0,0 +1,114 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 Alexandru Somai
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jenkinsci.plugins.runselector.benchmark;
+
+import hudson.EnvVars;
+import hudson.model.Result;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import java.io.IOException;
+
+/**
+ * A completed {@link Run} of {@link SyntheticJob} living only in memory.
+ */
+public class SyntheticRun extends Run<SyntheticJob, SyntheticRun> {
+    @CheckForNull
+    private final SyntheticRun previous;
+    @CheckForNull
+    private SyntheticRun next;
+    @CheckForNull
+    private String syntheticDisplayName;
+
+    SyntheticRun(@Nonnull SyntheticJob job, int number, long timestamp, @Nonnull Result result,
+                 @CheckForNull SyntheticRun previous) {
+        super(job, timestamp);
+        this.number = number;
+        this.result = result;
+        this.previous = previous;
+        if (previous != null) {
+            previous.next = this;
+        }
+    }
+
+    /**
+     * Sets the display name without saving the build.
+     *
+     * @param displayName the display name
+     */
+    public void setSyntheticDisplayName(@CheckForNull String displayName) {
+        this.syntheticDisplayName = displayName;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getDisplayName() {
+        return (syntheticDisplayName != null) ? syntheticDisplayName : super.getDisplayName();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isBuilding() {
+        return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @CheckForNull
+    public SyntheticRun getPreviousBuild() {
+        return previous;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @CheckForNull
+    public SyntheticRun getNextBuild() {
+        return next;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Only variables of the build itself, as the build has no node and no workspace.
+     */
+    @Override
+    public EnvVars getEnvironment(TaskListener listener) throws IOException, InterruptedException {
+        EnvVars env = new EnvVars();
+        env.put("JOB_NAME", getParent().getFullName());
+        env.put("BUILD_NUMBER", Integer.toString(getNumber()));
+        env.put("BUILD_ID", getId());
+        return env;
+    }
+}
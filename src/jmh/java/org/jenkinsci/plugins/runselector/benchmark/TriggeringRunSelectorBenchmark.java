@@ -0,0 +1,90 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 Alexandru Somai
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jenkinsci.plugins.runselector.benchmark;
+
+import hudson.model.Cause;
+import hudson.model.CauseAction;
+import hudson.model.Result;
+import hudson.model.Run;
+import org.jenkinsci.plugins.runselector.filters.NoRunFilter;
+import org.jenkinsci.plugins.runselector.selectors.TriggeringRunSelector;
+import org.jenkinsci.plugins.runselector.selectors.TriggeringRunSelector.UpstreamFilterStrategy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Arrays;
+
+/**
+ * Benchmarks for {@link TriggeringRunSelector}.
+ *
+ * Each build of the "middle" job is triggered both by the build of the "upstream" job
+ * with the same number and by the previous build of the "middle" job,
+ * and the build running the selection is triggered by the last build of the "middle" job.
+ * All builds of the "upstream" job are reachable, many of them in several ways.
+ */
+@State(Scope.Benchmark)
+public class TriggeringRunSelectorBenchmark {
+    @Param({"UseOldest", "UseNewest"})
+    public UpstreamFilterStrategy upstreamFilterStrategy;
+
+    private SyntheticRun triggeredBuild;
+
+    @Setup(Level.Trial)
+    public void createUpstreamGraph(JenkinsState jenkinsState, HistoryState history) {
+        SyntheticJob middle = new SyntheticJob(jenkinsState.jenkins, "middle");
+        SyntheticRun previous = null;
+        for (SyntheticRun upstream = history.job.getBuildByNumber(1);
+             upstream != null;
+             upstream = upstream.getNextBuild()) {
+            SyntheticRun build = middle.addBuild(Result.SUCCESS, upstream.getTimeInMillis() + 500L);
+            build.addAction(new CauseAction(
+                    (previous == null)
+                            ? Arrays.<Cause>asList(new SyntheticUpstreamCause(upstream))
+                            : Arrays.<Cause>asList(new SyntheticUpstreamCause(upstream), new SyntheticUpstreamCause(previous))
+            ));
+            previous = build;
+        }
+
+        triggeredBuild = new SyntheticJob(jenkinsState.jenkins, "triggered").addBuild(
+                Result.SUCCESS,
+                previous.getTimeInMillis() + 500L
+        );
+        triggeredBuild.addAction(new CauseAction(new SyntheticUpstreamCause(previous)));
+    }
+
+    /**
+     * Selects the upstream build that triggered the build.
+     */
+    @Benchmark
+    public Run<?, ?> selectTriggering(HistoryState history) throws Exception {
+        TriggeringRunSelector selector = new TriggeringRunSelector();
+        selector.setUpstreamFilterStrategy(upstreamFilterStrategy);
+        return selector.select(history.job, history.newContext(triggeredBuild, new NoRunFilter()));
+    }
+}
@@ -28,13 +28,17 @@ import com.google.common.collect.Lists;
 import hudson.ExtensionPoint;
 import hudson.model.AbstractDescribableImpl;
 import hudson.model.Descriptor;
+import hudson.model.Job;
 import hudson.model.Run;
 import jenkins.model.Jenkins;
 import org.jenkinsci.plugins.runselector.context.RunSelectorContext;
 import org.jenkinsci.plugins.runselector.filters.NoRunFilter;
+import org.jenkinsci.plugins.runselector.metrics.SelectionMetrics;
 
+import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 
 /**
@@ -52,6 +56,149 @@ public abstract class RunFilter extends AbstractDescribableImpl<RunFilter> imple
     public boolean isSelectable(@Nonnull Run<?, ?> candidate, @Nonnull RunSelectorContext context) {
         return true;
     }
+
+    /**
+     * Tests multiple builds at once.
+     * The default implementation calls {@link #isSelectable(Run, RunSelectorContext)}
+     * for each candidate, and stops when {@link RunSelectorContext#isBudgetExceeded()}.
+     * Results are incomplete then, and the caller fails with {@link RunSelectorContext#checkBudget(Run)}.
+     * Override this when the filter can share lookups among candidates
+     * (e.g. expanding variables or parsing its configuration).
+     * The result must be consistent with {@link #isSelectable(Run, RunSelectorContext)}.
+     *
+     * @param candidates the builds to check
+     * @param context the context of current runselector execution.
+     * @return indices of {@code candidates} that can be selected.
+     */
+    @Nonnull
+    public BitSet filterBatch(@Nonnull List<? extends Run<?, ?>> candidates, @Nonnull RunSelectorContext context) {
+        BitSet selectable = new BitSet(candidates.size());
+        for (int i = 0; i < candidates.size(); ++i) {
+            if (context.isBudgetExceeded()) {
+                break;
+            }
+            if (isSelectable(candidates.get(i), context)) {
+                selectable.set(i);
+            }
+        }
+        return selectable;
+    }
+
+    /**
+     * Returns numbers of builds in {@code job} this filter can accept,
+     * when this filter can tell them without loading builds
+     * (e.g. with {@link org.jenkinsci.plugins.runselector.index.RunIndex}).
+     * {@link RunSelector#select(Job, RunSelectorContext)} then checks only those builds.
+     * The result may contain numbers of builds not accepted or not existing,
+     * as builds are still tested with {@link #filterBatch(List, RunSelectorContext)},
+     * but must contain all builds this filter accepts.
+     *
+     * @param job the job to select a build from
+     * @param context the context of current runselector execution.
+     * @return numbers of builds this filter can accept,
+     *     or {@code null} if this filter cannot narrow builds down.
+     */
+    @CheckForNull
+    public BitSet getSelectableNumbers(@Nonnull Job<?, ?> job, @Nonnull RunSelectorContext context) {
+        return null;
+    }
+
+    /**
+     * Whether the result of this filter depends only on
+     * the configuration of this filter, variables referenced in it with {@code $NAME},
+     * and the candidate build.
+     * Results of selections with cacheable filters can be reused with
+     * {@link org.jenkinsci.plugins.runselector.cache.SelectionResultCache}.
+     *
+     * @return whether results of this filter can be cached.
+     */
+    public boolean isCacheable() {
+        return false;
+    }
+
+    /**
+     * Returns a filter accepting the same builds as this filter with redundant structure removed
+     * (e.g. {@link org.jenkinsci.plugins.runselector.filters.AndRunFilter} nested in another one).
+     * {@link RunSelector#select(hudson.model.Job, RunSelectorContext)} evaluates candidates
+     * with the simplified filter.
+     * Override this for filters combining other filters.
+     * Must not modify this filter, and should return this filter itself if nothing can be simplified.
+     *
+     * @return the simplified filter
+     */
+    @Nonnull
+    public RunFilter simplify() {
+        return this;
+    }
+
+    /**
+     * Applies {@link #filterBatch(List, RunSelectorContext)} of {@code filter}
+     * recording {@link SelectionMetrics}.
+     * Filters combining other filters should use this or
+     * {@link #filterSubset(RunFilter, List, BitSet, RunSelectorContext)}
+     * so that rejections are attributed to each filter.
+     * Nothing is accepted when {@link RunSelectorContext#isBudgetExceeded()}.
+     *
+     * @param filter the filter to apply
+     * @param candidates the builds to check
+     * @param context the context of current runselector execution.
+     * @return indices of {@code candidates} accepted by {@code filter}.
+     */
+    @Nonnull
+    protected static BitSet filterAll(
+            @Nonnull RunFilter filter,
+            @Nonnull List<? extends Run<?, ?>> candidates,
+            @Nonnull RunSelectorContext context
+    ) {
+        if (context.isBudgetExceeded()) {
+            // the caller fails with RunSelectorContext#checkBudget.
+            return new BitSet();
+        }
+        long started = System.nanoTime();
+        BitSet accepted = filter.filterBatch(candidates, context);
+        SelectionMetrics.get().getFilterMetrics(filter.getClass()).recordEvaluation(
+                System.nanoTime() - started,
+                candidates.size(),
+                candidates.size() - accepted.cardinality()
+        );
+        return accepted;
+    }
+
+    /**
+     * Applies {@link #filterBatch(List, RunSelectorContext)} of {@code filter}
+     * only to candidates specified with {@code subset}.
+     * Useful for filters combining other filters.
+     *
+     * @param filter the filter to apply
+     * @param candidates the builds to check
+     * @param subset indices of {@code candidates} to pass to {@code filter}
+     * @param context the context of current runselector execution.
+     * @return indices of {@code candidates} accepted by {@code filter}.
+     *     Always a subset of {@code subset}.
+     */
+    @Nonnull
+    protected static BitSet filterSubset(
+            @Nonnull RunFilter filter,
+            @Nonnull List<? extends Run<?, ?>> candidates,
+            @Nonnull BitSet subset,
+            @Nonnull RunSelectorContext context
+    ) {
+        if (subset.cardinality() == candidates.size()) {
+            return filterAll(filter, candidates, context);
+        }
+        int[] indices = new int[subset.cardinality()];
+        List<Run<?, ?>> targets = new ArrayList<Run<?, ?>>(indices.length);
+        for (int i = subset.nextSetBit(0); i >= 0; i = subset.nextSetBit(i + 1)) {
+            indices[targets.size()] = i;
+            targets.add(candidates.get(i));
+        }
+        BitSet accepted = filterAll(filter, targets, context);
+        BitSet result = new BitSet(candidates.size());
+        for (int i = accepted.nextSetBit(0); i >= 0 && i < indices.length; i = accepted.nextSetBit(i + 1)) {
+            result.set(indices[i]);
+        }
+        return result;
+    }
     
     /**
      * {@inheritDoc}
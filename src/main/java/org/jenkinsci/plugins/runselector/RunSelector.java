@@ -27,11 +27,17 @@ import hudson.ExtensionPoint;
 import hudson.model.AbstractDescribableImpl;
 import hudson.model.Job;
 import hudson.model.Run;
+import org.jenkinsci.plugins.runselector.context.EnvironmentUnavailableException;
 import org.jenkinsci.plugins.runselector.context.RunSelectorContext;
+import org.jenkinsci.plugins.runselector.context.SelectionBudget;
+import org.jenkinsci.plugins.runselector.metrics.SelectionMetrics;
 
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
 
 /**
  * Extension point for enumerating builds to copy artifacts from.
@@ -41,6 +47,13 @@ import java.io.IOException;
  * @author Alan Harder
  */
 public abstract class RunSelector extends AbstractDescribableImpl<RunSelector> implements ExtensionPoint {
+    /**
+     * The maximum number of candidates passed to {@link RunFilter#filterBatch(List, RunSelectorContext)} at once.
+     * Candidates are pulled in batches growing from 1 to this size,
+     * so that selections matching the first candidate don't load extra builds.
+     */
+    private static final int MAX_BATCH_SIZE = 64;
+
     /**
      * @param job       the job to pick a build from.
      * @param context   context for the current execution of runselector.
@@ -52,35 +65,58 @@ public abstract class RunSelector extends AbstractDescribableImpl<RunSelector> i
     public Run<?, ?> select(@Nonnull Job<?,?> job, @Nonnull final RunSelectorContext context)
             throws IOException, InterruptedException
     {
-        context.setLastMatchBuild(null);
-        while (true) {
-            Run<?, ?> candidate = getNextBuild(job, context);
-            context.setLastMatchBuild(candidate);
-            if (candidate == null) {
-                context.logDebug("{0}: No more matching builds.", getDisplayName());
-                return null;
-            }
-            context.logDebug("{0}: {1} found", getDisplayName(), candidate.getDisplayName());
-            RunFilter filter = context.getRunFilter();
-            if (!filter.isSelectable(candidate, context)) {
-                context.logDebug(
-                        "{0}: declined by the filter {1}",
-                        candidate.getFullDisplayName(),
-                        filter.getDisplayName()
-                );
-                continue;
-            }
-            context.logDebug("{0}: satisfied conditions.", candidate.getFullDisplayName());
-            return candidate;
+        try {
+            return stream(job, context).next();
+        } catch (EnvironmentUnavailableException e) {
+            e.rethrowCause();
+            throw e;
         }
     }
 
+    /**
+     * Selects multiple builds in a single pass.
+     *
+     * @param job       the job to pick builds from.
+     * @param context   context for the current execution of runselector.
+     * @param limit     the maximum number of builds to select. No limit if {@code 0} or less.
+     * @return  builds matching this selectors and conditions stored in the context, in the order of selection.
+     * @throws IOException if an error occurs while performing the operation.
+     * @throws InterruptedException if any thread interrupts the current thread.
+     */
+    @Nonnull
+    public List<Run<?, ?>> selectAll(@Nonnull Job<?, ?> job, @Nonnull RunSelectorContext context, int limit)
+            throws IOException, InterruptedException
+    {
+        try {
+            return stream(job, context).limit(limit).toList();
+        } catch (EnvironmentUnavailableException e) {
+            e.rethrowCause();
+            throw e;
+        }
+    }
+
+    /**
+     * Enumerates builds matching this selector and conditions stored in the context lazily.
+     * Each {@link RunStream#next()} continues from the build selected last time.
+     * The context is used by the stream and must not be shared with other selections
+     * until the stream is discarded.
+     *
+     * @param job       the job to pick builds from.
+     * @param context   context for the current execution of runselector.
+     * @return  the stream of matching builds.
+     */
+    @Nonnull
+    public RunStream stream(@Nonnull Job<?, ?> job, @Nonnull RunSelectorContext context) {
+        context.setLastMatchBuild(null);
+        return new SelectorRunStream(job, context);
+    }
+
     /**
      * Override this method to implement {@link RunSelector}.
      * Use {@link RunSelectorContext#getLastMatchBuild()} to
      * continue enumerating builds.
      * Or you can save the execution state
-     * with {@link RunSelectorContext#addExtension(Object)}
+     * with {@link RunSelectorContext#put(org.jenkinsci.plugins.runselector.context.ContextKey, Object)}
      *
      * @param job       the job to pick a build from.
      * @param context   context for the current execution of runselector.
@@ -97,6 +133,47 @@ public abstract class RunSelector extends AbstractDescribableImpl<RunSelector> i
         return null;
     }
 
+    /**
+     * Whether {@link #getNextBuild(Job, RunSelectorContext)} enumerates builds
+     * from the newest one to older ones without skipping any build
+     * {@link #isEnumerated(Run, RunSelectorContext)} accepts.
+     * When this returns {@code true},
+     * {@link #select(Job, RunSelectorContext)} can check only builds
+     * told by {@link RunFilter#getSelectableNumbers(Job, RunSelectorContext)}
+     * instead of enumerating builds.
+     *
+     * @return whether this selector enumerates builds in the order of build numbers.
+     */
+    public boolean isNewestFirst() {
+        return false;
+    }
+
+    /**
+     * Whether {@link #getNextBuild(Job, RunSelectorContext)} enumerates the build.
+     * Used only when {@link #isNewestFirst()} returns {@code true}.
+     *
+     * @param run       the build to test
+     * @param context   context for the current execution of runselector.
+     * @return whether the build is enumerated by this selector.
+     */
+    public boolean isEnumerated(@Nonnull Run<?, ?> run, @Nonnull RunSelectorContext context) {
+        return true;
+    }
+
+    /**
+     * Whether the result of {@link #select(Job, RunSelectorContext)} depends only on
+     * the configuration of this selector, variables referenced in it with {@code $NAME},
+     * and builds of the job.
+     * Results of cacheable selectors can be reused with
+     * {@link org.jenkinsci.plugins.runselector.cache.SelectionResultCache}.
+     * Selectors looking at the current build (e.g. its causes) must not be cacheable.
+     *
+     * @return whether results of this selector can be cached.
+     */
+    public boolean isCacheable() {
+        return false;
+    }
+
     /**
      * Returns the display name for this selector.
      * You can override this to output configurations of this selector
@@ -114,4 +191,205 @@ public abstract class RunSelector extends AbstractDescribableImpl<RunSelector> i
             return getClass().getName();
         }
     }
+
+    /**
+     * Enumerates builds with {@link #getNextBuild(Job, RunSelectorContext)}
+     * (or {@link RunFilter#getSelectableNumbers(Job, RunSelectorContext)})
+     * and tests them with the filter in batches.
+     * <p>
+     * Batches read ahead: a batch starts with one build and doubles up to {@link #MAX_BATCH_SIZE}
+     * only while no build in the previous batch is accepted,
+     * so builds loaded past the first match are fewer than builds scanned before it.
+     * Builds are tested one by one with filters not {@link RunFilter#isCacheable() cacheable},
+     * which may look into other builds or fingerprints for each candidate
+     * (e.g. {@link org.jenkinsci.plugins.runselector.filters.DownstreamRunFilter}),
+     * so that no build older than the match is tested.
+     * Batches never exceed the remaining {@link SelectionBudget},
+     * and the budget counts only builds returned or rejected by {@link #next()},
+     * not builds read ahead.
+     */
+    private class SelectorRunStream extends RunStream {
+        @Nonnull
+        private final Job<?, ?> job;
+        @Nonnull
+        private final RunSelectorContext context;
+        /**
+         * simplified once for each selection.
+         */
+        @Nonnull
+        private final RunFilter filter;
+        /**
+         * whether batches can grow, which tests builds past the match.
+         */
+        private final boolean readAhead;
+        private final List<Run<?, ?>> candidates = new ArrayList<Run<?, ?>>();
+        /**
+         * results of the filter for {@link #candidates}.
+         */
+        private BitSet selectable = new BitSet();
+        /**
+         * the index in {@link #candidates} to test next.
+         */
+        private int position = 0;
+        private int batchSize = 1;
+        private boolean started = false;
+        private boolean exhausted = false;
+        private boolean finished = false;
+        /**
+         * builds to check told by the filter, or {@code null} to enumerate builds.
+         */
+        @CheckForNull
+        private BitSet numbers;
+        private int nextNumber;
+        /**
+         * the last build returned from {@link #getNextBuild(Job, RunSelectorContext)},
+         * where the enumeration continues from.
+         */
+        @CheckForNull
+        private Run<?, ?> lastPulled;
+
+        SelectorRunStream(@Nonnull Job<?, ?> job, @Nonnull RunSelectorContext context) {
+            this.job = job;
+            this.context = context;
+            this.filter = context.getRunFilter().simplify();
+            this.readAhead = filter.isCacheable();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        @CheckForNull
+        public Run<?, ?> next() throws IOException, InterruptedException {
+            if (finished) {
+                return null;
+            }
+            long begin = System.nanoTime();
+            int scanned = 0;
+            int rejected = 0;
+            Run<?, ?> selected = null;
+            try {
+                while (true) {
+                    if (Thread.interrupted()) {
+                        // e.g. cancelled by FallbackRunSelector in parallel.
+                        throw new InterruptedException();
+                    }
+                    while (position < candidates.size()) {
+                        Run<?, ?> candidate = candidates.get(position);
+                        boolean accepted = selectable.get(position);
+                        context.consumeBudget(candidate);
+                        ++position;
+                        ++scanned;
+                        if (!accepted) {
+                            ++rejected;
+                            if (context.isVerbose()) {
+                                context.logDebug(
+                                        "{0}: declined by the filter {1}",
+                                        candidate.getFullDisplayName(),
+                                        filter.getDisplayName()
+                                );
+                                context.logEvent("declined", candidate, filter.getDisplayName());
+                            }
+                            continue;
+                        }
+                        context.setLastMatchBuild(candidate);
+                        if (context.isVerbose()) {
+                            context.logDebug("{0}: satisfied conditions.", candidate.getFullDisplayName());
+                            context.logEvent("selected", candidate, getDisplayName());
+                        }
+                        selected = candidate;
+                        return selected;
+                    }
+                    if (exhausted) {
+                        finished = true;
+                        if (context.isVerbose()) {
+                            context.logDebug("{0}: No more matching builds.", getDisplayName());
+                            context.logEvent("exhausted", null, getDisplayName());
+                        }
+                        return null;
+                    }
+                    pullBatch();
+                }
+            } catch (EnvironmentUnavailableException e) {
+                e.rethrowCause();
+                throw e;
+            } finally {
+                SelectionMetrics.get().getSelectorMetrics(RunSelector.this.getClass()).recordSelection(
+                        System.nanoTime() - begin,
+                        scanned,
+                        rejected,
+                        selected != null
+                );
+            }
+        }
+
+        /**
+         * Pulls the next batch of candidates and tests them with the filter.
+         */
+        private void pullBatch() throws IOException, InterruptedException {
+            if (!started) {
+                started = true;
+                numbers = isNewestFirst() ? filter.getSelectableNumbers(job, context) : null;
+                if (numbers != null) {
+                    // the filter tells the builds to check without loading other builds.
+                    nextNumber = numbers.length() - 1;
+                    if (context.isVerbose()) {
+                        context.logDebug("{0}: {1} builds to check", getDisplayName(), numbers.cardinality());
+                    }
+                }
+            }
+            candidates.clear();
+            position = 0;
+            // a build selected before may not be the last enumerated one.
+            context.setLastMatchBuild(lastPulled);
+            int size = batchSize;
+            SelectionBudget budget = context.getBudget();
+            if (budget != null && budget.getMaxCandidates() > 0) {
+                // at least one to tell the budget is exceeded.
+                size = Math.max(Math.min(size, budget.getMaxCandidates() - budget.getScanned()), 1);
+            }
+            while (candidates.size() < size) {
+                Run<?, ?> candidate = pull();
+                if (candidate == null) {
+                    exhausted = true;
+                    break;
+                }
+                if (context.isVerbose()) {
+                    context.logDebug("{0}: {1} found", getDisplayName(), candidate.getDisplayName());
+                    context.logEvent("found", candidate, getDisplayName());
+                }
+                candidates.add(candidate);
+            }
+            selectable = candidates.isEmpty() ? new BitSet() : RunFilter.filterAll(filter, candidates, context);
+            // filters stop early when the deadline passes in a batch.
+            context.checkBudget(candidates.isEmpty() ? null : candidates.get(candidates.size() - 1));
+            if (readAhead && numbers == null && selectable.isEmpty()) {
+                // grows only while no build matches, not to read far past a match.
+                // builds told by the filter are tested one by one not to load extra builds.
+                batchSize = Math.min(batchSize * 2, MAX_BATCH_SIZE);
+            }
+        }
+
+        @CheckForNull
+        private Run<?, ?> pull() throws IOException, InterruptedException {
+            if (numbers == null) {
+                Run<?, ?> candidate = getNextBuild(job, context);
+                context.setLastMatchBuild(candidate);
+                lastPulled = candidate;
+                return candidate;
+            }
+            while (nextNumber > 0) {
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                int number = nextNumber;
+                nextNumber = numbers.previousSetBit(number - 1);
+                Run<?, ?> candidate = job.getBuildByNumber(number);
+                if (candidate != null && isEnumerated(candidate, context)) {
+                    return candidate;
+                }
+            }
+            return null;
+        }
+    }
 }
@@ -0,0 +1,108 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 Alexandru Somai
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.runselector;
+
+import hudson.model.Run;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds selected by {@link RunSelector#stream(hudson.model.Job, org.jenkinsci.plugins.runselector.context.RunSelectorContext)},
+ * enumerated lazily.
+ * Each call of {@link #next()} continues enumerating builds from the last selected build,
+ * so selecting multiple builds costs a single pass over builds.
+ *
+ * Not thread-safe.
+ */
+public abstract class RunStream {
+    /**
+     * @return the next selected build, or {@code null} if no more builds match.
+     * @throws IOException if an error occurs while performing the operation.
+     * @throws InterruptedException if any thread interrupts the current thread.
+     */
+    @CheckForNull
+    public abstract Run<?, ?> next() throws IOException, InterruptedException;
+
+    /**
+     * @param limit the maximum number of builds to select. No limit if {@code 0} or less.
+     * @return a stream ending after {@code limit} builds are selected.
+     */
+    @Nonnull
+    public RunStream limit(final int limit) {
+        if (limit <= 0) {
+            return this;
+        }
+        final RunStream base = this;
+        return new RunStream() {
+            private int remaining = limit;
+
+            @Override
+            @CheckForNull
+            public Run<?, ?> next() throws IOException, InterruptedException {
+                if (remaining <= 0) {
+                    return null;
+                }
+                Run<?, ?> run = base.next();
+                if (run == null) {
+                    remaining = 0;
+                    return null;
+                }
+                --remaining;
+                return run;
+            }
+        };
+    }
+
+    /**
+     * @return all remaining builds in this stream.
+     * @throws IOException if an error occurs while performing the operation.
+     * @throws InterruptedException if any thread interrupts the current thread.
+     */
+    @Nonnull
+    public List<Run<?, ?>> toList() throws IOException, InterruptedException {
+        List<Run<?, ?>> runs = new ArrayList<Run<?, ?>>();
+        for (Run<?, ?> run = next(); run != null; run = next()) {
+            runs.add(run);
+        }
+        return runs;
+    }
+
+    /**
+     * @return a stream selecting no builds.
+     */
+    @Nonnull
+    public static RunStream empty() {
+        return new RunStream() {
+            @Override
+            @CheckForNull
+            public Run<?, ?> next() {
+                return null;
+            }
+        };
+    }
+}
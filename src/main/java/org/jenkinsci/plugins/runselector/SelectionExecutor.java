@@ -0,0 +1,191 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 Alexandru Somai
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.runselector;
+
+import hudson.security.ACL;
+import jenkins.model.Jenkins;
+import org.acegisecurity.Authentication;
+import org.acegisecurity.context.SecurityContext;
+import org.acegisecurity.context.SecurityContextHolder;
+
+import javax.annotation.Nonnull;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded thread pools shared by selections running concurrently
+ * (e.g. entries of {@link org.jenkinsci.plugins.runselector.selectors.FallbackRunSelector} in parallel),
+ * and by pipeline steps selecting builds not to block the CPS VM thread.
+ *
+ * The number of threads can be configured with the system properties
+ * {@code org.jenkinsci.plugins.runselector.SelectionExecutor.threads}
+ * and {@code org.jenkinsci.plugins.runselector.SelectionExecutor.stepThreads}.
+ */
+public final class SelectionExecutor {
+
+    private static final int THREADS = Math.max(1, Integer.getInteger(
+            SelectionExecutor.class.getName() + ".threads",
+            Math.max(2, Runtime.getRuntime().availableProcessors())
+    ));
+
+    private static final int STEP_THREADS = Math.max(1, Integer.getInteger(
+            SelectionExecutor.class.getName() + ".stepThreads",
+            THREADS
+    ));
+
+    private static final ThreadLocal<Boolean> IN_EXECUTOR = new ThreadLocal<Boolean>();
+
+    private static ExecutorService executor;
+
+    private static ExecutorService stepExecutor;
+
+    private SelectionExecutor() {
+    }
+
+    /**
+     * @return the shared thread pool
+     */
+    @Nonnull
+    private static synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = createPool(THREADS, new SelectionThreadFactory("Run selection thread", true));
+        }
+        return executor;
+    }
+
+    /**
+     * @return the thread pool for pipeline steps
+     */
+    @Nonnull
+    private static synchronized ExecutorService getStepExecutor() {
+        if (stepExecutor == null) {
+            stepExecutor = createPool(STEP_THREADS, new SelectionThreadFactory("Run selection step thread", false));
+        }
+        return stepExecutor;
+    }
+
+    @Nonnull
+    private static ExecutorService createPool(int threads, @Nonnull ThreadFactory factory) {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(
+                threads,
+                threads,
+                60L,
+                TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(),
+                factory
+        );
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    /**
+     * Whether the current thread is one of the shared thread pool.
+     * Tasks running in the pool must not wait for other tasks in the pool, or they can deadlock.
+     * Run them in the current thread instead.
+     *
+     * @return {@code true} if the current thread is one of the shared thread pool.
+     */
+    public static boolean isExecutorThread() {
+        return Boolean.TRUE.equals(IN_EXECUTOR.get());
+    }
+
+    /**
+     * Submits a task to the shared thread pool.
+     * The task runs with the authentication of the current thread.
+     *
+     * @param task the task to run
+     * @param <T>  the type of the result
+     * @return the future for the result
+     */
+    @Nonnull
+    public static <T> Future<T> submit(@Nonnull final Callable<T> task) {
+        return getExecutor().submit(withAuthentication(task));
+    }
+
+    /**
+     * Submits a pipeline step to the thread pool for steps.
+     * The task runs with the authentication of the current thread,
+     * and can wait for tasks submitted with {@link #submit(Callable)}.
+     *
+     * @param task the task to run
+     * @param <T>  the type of the result
+     * @return the future for the result. Cancel it to interrupt the task.
+     */
+    @Nonnull
+    public static <T> Future<T> submitStep(@Nonnull final Callable<T> task) {
+        return getStepExecutor().submit(withAuthentication(task));
+    }
+
+    @Nonnull
+    private static <T> Callable<T> withAuthentication(@Nonnull final Callable<T> task) {
+        final Authentication auth = Jenkins.getAuthentication();
+        return new Callable<T>() {
+            @Override
+            public T call() throws Exception {
+                SecurityContext orig = ACL.impersonate(auth);
+                try {
+                    return task.call();
+                } finally {
+                    SecurityContextHolder.setContext(orig);
+                }
+            }
+        };
+    }
+
+    /**
+     * Creates daemon threads, marked with {@link #IN_EXECUTOR} if specified.
+     */
+    private static class SelectionThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+        @Nonnull
+        private final String name;
+        private final boolean marked;
+
+        SelectionThreadFactory(@Nonnull String name, boolean marked) {
+            this.name = name;
+            this.marked = marked;
+        }
+
+        @Override
+        public Thread newThread(@Nonnull final Runnable r) {
+            Thread t = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    if (marked) {
+                        IN_EXECUTOR.set(Boolean.TRUE);
+                    }
+                    r.run();
+                }
+            }, name + " " + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+}
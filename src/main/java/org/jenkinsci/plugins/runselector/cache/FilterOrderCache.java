@@ -0,0 +1,142 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 Alexandru Somai
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jenkinsci.plugins.runselector.cache;
+
+import jenkins.model.Jenkins;
+import org.jenkinsci.plugins.runselector.RunFilter;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Bounded LRU cache of evaluation orders of children learned by filters combining other filters
+ * (e.g. {@link org.jenkinsci.plugins.runselector.filters.AndRunFilter}),
+ * keyed by the digest of the configuration of the combining filter.
+ * <p>
+ * Later selections with the same configuration start with the learned order,
+ * even if the filter is instantiated again (e.g. for each build of a pipeline).
+ * Only keys and orders are held, not filters.
+ */
+public final class FilterOrderCache {
+    private static final Logger LOGGER = Logger.getLogger(FilterOrderCache.class.getName());
+
+    private static final int DEFAULT_MAX_SIZE = 256;
+
+    private static final FilterOrderCache INSTANCE = new FilterOrderCache(
+            Integer.getInteger(FilterOrderCache.class.getName() + ".maxSize", DEFAULT_MAX_SIZE)
+    );
+
+    private final Map<String, int[]> cache;
+
+    /**
+     * @param maxSize the maximum number of orders to hold
+     */
+    FilterOrderCache(final int maxSize) {
+        this.cache = new LinkedHashMap<String, int[]>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, int[]> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * @return the cache shared in this Jenkins instance
+     */
+    @Nonnull
+    public static FilterOrderCache get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Computes the key for a filter.
+     * Compute it once for a filter, as it serializes the whole filter.
+     *
+     * @param filter the filter combining other filters
+     * @return the key identifying the configuration of {@code filter}.
+     *     {@code null} if the configuration cannot be serialized.
+     */
+    @CheckForNull
+    public String getKey(@Nonnull RunFilter filter) {
+        try {
+            return filter.getClass().getName() + ':' + XmlObjectCache.digest(Jenkins.XSTREAM2.toXML(filter));
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.FINE, "Failed to serialize " + filter, e);
+            return null;
+        }
+    }
+
+    /**
+     * @param key  the key computed with {@link #getKey(RunFilter)}
+     * @param size the number of children of the filter
+     * @return the learned order of indices of children. {@code null} if not learned yet.
+     */
+    @CheckForNull
+    public int[] getOrder(@Nonnull String key, int size) {
+        int[] order;
+        synchronized (cache) {
+            order = cache.get(key);
+        }
+        if (order == null || order.length != size) {
+            // children are changed.
+            return null;
+        }
+        return order.clone();
+    }
+
+    /**
+     * @param key   the key computed with {@link #getKey(RunFilter)}
+     * @param order the learned order of indices of children
+     */
+    public void putOrder(@Nonnull String key, @Nonnull int[] order) {
+        synchronized (cache) {
+            cache.put(key, order.clone());
+        }
+    }
+
+    /**
+     * Discards all learned orders.
+     */
+    public void clear() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * @return the number of learned orders
+     */
+    public int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+}
@@ -0,0 +1,479 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 Alexandru Somai
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jenkinsci.plugins.runselector.cache;
+
+import hudson.Extension;
+import hudson.Util;
+import hudson.XmlFile;
+import hudson.model.Item;
+import hudson.model.ItemGroup;
+import hudson.model.Job;
+import hudson.model.Run;
+import hudson.model.Saveable;
+import hudson.model.TaskListener;
+import hudson.model.listeners.ItemListener;
+import hudson.model.listeners.RunListener;
+import hudson.model.listeners.SaveableListener;
+import jenkins.model.Jenkins;
+import net.sf.json.JSONObject;
+import org.jenkinsci.plugins.runselector.RunFilter;
+import org.jenkinsci.plugins.runselector.RunSelector;
+import org.jenkinsci.plugins.runselector.context.EnvironmentUnavailableException;
+import org.jenkinsci.plugins.runselector.context.RunSelectorContext;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Bounded LRU cache of selected build numbers, shared among selections in this Jenkins instance.
+ * <p>
+ * Keyed by the job, the digest of the XML of the selector and the filter,
+ * values of variables referenced in them, and the current authentication.
+ * Used only when both the selector and the filter are cacheable
+ * ({@link RunSelector#isCacheable()} and {@link RunFilter#isCacheable()}),
+ * that is the result depends only on them and builds of the job.
+ * Results for a job are invalidated when a build of the job starts, completes, is updated or is deleted,
+ * or when the job is renamed or deleted.
+ * <p>
+ * Disabled by default. Configured with system properties:
+ * <dl>
+ *     <dt>{@code org.jenkinsci.plugins.runselector.cache.SelectionResultCache.enabled}</dt>
+ *     <dd>{@code true} to enable the cache</dd>
+ *     <dt>{@code org.jenkinsci.plugins.runselector.cache.SelectionResultCache.maxSize}</dt>
+ *     <dd>the maximum number of results to hold (1024 by default)</dd>
+ *     <dt>{@code org.jenkinsci.plugins.runselector.cache.SelectionResultCache.ttl}</dt>
+ *     <dd>seconds to hold results (600 by default)</dd>
+ * </dl>
+ */
+public final class SelectionResultCache {
+    private static final int DEFAULT_MAX_SIZE = 1024;
+    private static final long DEFAULT_TTL = 600;
+
+    /**
+     * Stored when no build is selected.
+     */
+    private static final int NONE = 0;
+
+    /**
+     * Variable references in XML: {@code $NAME} or {@code ${NAME}}.
+     */
+    private static final Pattern VARIABLE = Pattern.compile("\\$\\{?([A-Za-z_][A-Za-z0-9_]*)");
+
+    private static final SelectionResultCache INSTANCE = new SelectionResultCache(
+            Boolean.getBoolean(SelectionResultCache.class.getName() + ".enabled"),
+            Integer.getInteger(SelectionResultCache.class.getName() + ".maxSize", DEFAULT_MAX_SIZE),
+            TimeUnit.SECONDS.toNanos(Long.getLong(SelectionResultCache.class.getName() + ".ttl", DEFAULT_TTL))
+    );
+
+    private final boolean enabled;
+    private final long ttlNanos;
+    private final Map<String, Entry> cache;
+
+    /**
+     * Incremented for each invalidation of a job, by full names of jobs.
+     * Results computed across an invalidation are not stored.
+     * Removed when jobs are deleted or renamed, as results refer to the counter they were stored with.
+     */
+    private final ConcurrentMap<String, AtomicLong> generations = new ConcurrentHashMap<String, AtomicLong>();
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong invalidationCount = new AtomicLong();
+
+    /**
+     * @param enabled  whether to cache results
+     * @param maxSize  the maximum number of results to hold
+     * @param ttlNanos nanoseconds to hold results
+     */
+    SelectionResultCache(boolean enabled, final int maxSize, long ttlNanos) {
+        this.enabled = enabled;
+        this.ttlNanos = ttlNanos;
+        this.cache = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * @return the cache shared in this Jenkins instance
+     */
+    @Nonnull
+    public static SelectionResultCache get() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return whether results are cached
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Selects a build with {@link RunSelector#select(Job, RunSelectorContext)},
+     * or returns the build selected with the same configuration before.
+     *
+     * @param selector the selector
+     * @param job      the job to pick a build from.
+     * @param context  context for the current execution of runselector.
+     * @return the selected build
+     * @throws IOException if an error occurs while performing the operation.
+     * @throws InterruptedException if any thread interrupts the current thread.
+     */
+    @CheckForNull
+    public Run<?, ?> select(@Nonnull RunSelector selector, @Nonnull Job<?, ?> job, @Nonnull RunSelectorContext context)
+            throws IOException, InterruptedException
+    {
+        if (!enabled || !selector.isCacheable() || !context.getRunFilter().isCacheable()) {
+            return selector.select(job, context);
+        }
+        String key;
+        try {
+            key = getKey(selector, job, context);
+        } catch (EnvironmentUnavailableException e) {
+            e.rethrowCause();
+            throw e;
+        }
+        Integer number = getNumber(key);
+        if (number != null) {
+            Run<?, ?> run = (number != NONE) ? job.getBuildByNumber(number) : null;
+            if (number == NONE || run != null) {
+                hitCount.incrementAndGet();
+                if (context.isVerbose()) {
+                    context.logDebug("{0}: the result is cached: {1}", selector.getDisplayName(), number);
+                }
+                context.setLastMatchBuild(run);
+                return run;
+            }
+        }
+        missCount.incrementAndGet();
+        AtomicLong generation = getGeneration(job.getFullName());
+        long expected = generation.get();
+        Run<?, ?> run = selector.select(job, context);
+        if (generation.get() == expected) {
+            // no builds are updated during the selection.
+            synchronized (cache) {
+                cache.put(key, new Entry(generation, expected, (run != null) ? run.getNumber() : NONE));
+            }
+        }
+        return run;
+    }
+
+    @CheckForNull
+    private Integer getNumber(@Nonnull String key) {
+        Entry entry;
+        synchronized (cache) {
+            entry = cache.get(key);
+        }
+        if (entry == null) {
+            return null;
+        }
+        if (entry.generation != entry.counter.get()
+                || System.nanoTime() - entry.storedAt > ttlNanos) {
+            synchronized (cache) {
+                cache.remove(key);
+            }
+            return null;
+        }
+        return entry.number;
+    }
+
+    @Nonnull
+    private AtomicLong getGeneration(@Nonnull String jobName) {
+        AtomicLong generation = generations.get(jobName);
+        if (generation == null) {
+            AtomicLong created = new AtomicLong();
+            generation = generations.putIfAbsent(jobName, created);
+            if (generation == null) {
+                generation = created;
+            }
+        }
+        return generation;
+    }
+
+    @Nonnull
+    private static String getKey(@Nonnull RunSelector selector, @Nonnull Job<?, ?> job, @Nonnull RunSelectorContext context) {
+        String xml = Jenkins.XSTREAM2.toXML(selector) + '\n' + Jenkins.XSTREAM2.toXML(context.getRunFilter());
+        SortedMap<String, String> variables = new TreeMap<String, String>();
+        Matcher m = VARIABLE.matcher(xml);
+        while (m.find()) {
+            String name = m.group(1);
+            if (!variables.containsKey(name)) {
+                variables.put(name, context.expand("${" + name + "}"));
+            }
+        }
+        StringBuilder sb = new StringBuilder(xml);
+        for (Map.Entry<String, String> variable : variables.entrySet()) {
+            sb.append('\n').append(variable.getKey()).append('=').append(variable.getValue());
+        }
+        sb.append('\n').append(Jenkins.getAuthentication().getName());
+        return job.getFullName() + ':' + digest(sb.toString());
+    }
+
+    @Nonnull
+    private static String digest(@Nonnull String value) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            return Util.toHexString(md.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 is always supported by Java platforms.
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Discards results for a job.
+     *
+     * @param jobName the full name of the job
+     */
+    public void invalidate(@Nonnull String jobName) {
+        AtomicLong generation = generations.get(jobName);
+        if (generation != null) {
+            // entries with old generations are discarded when looked up.
+            generation.incrementAndGet();
+            invalidationCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Discards results for a job not to exist with that name any more, and stops tracking it.
+     *
+     * @param jobName the full name of the job
+     */
+    void forget(@Nonnull String jobName) {
+        AtomicLong generation = generations.get(jobName);
+        if (generation != null) {
+            // results stored with the removed counter are discarded when looked up.
+            generation.incrementAndGet();
+            invalidationCount.incrementAndGet();
+            generations.remove(jobName, generation);
+        }
+    }
+
+    /**
+     * Discards results for an item renamed, moved or deleted, and for jobs in it if it's a folder.
+     * Folders don't notify jobs in them when deleted.
+     *
+     * @param item        the item
+     * @param oldFullName the full name of the item before renamed or moved
+     */
+    void forget(@Nonnull Item item, @Nonnull String oldFullName) {
+        String fullName = item.getFullName();
+        forget(oldFullName);
+        forget(fullName);
+        if (item instanceof ItemGroup) {
+            for (Job<?, ?> job : item.getAllJobs()) {
+                String jobName = job.getFullName();
+                forget(jobName);
+                if (jobName.startsWith(fullName + "/")) {
+                    forget(oldFullName + jobName.substring(fullName.length()));
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the number of jobs tracked for invalidations
+     */
+    int getTrackedJobCount() {
+        return generations.size();
+    }
+
+    /**
+     * Discards all results.
+     */
+    public void clear() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * @return the number of cached results
+     */
+    public int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    /**
+     * @return the number of times cached results were returned
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * @return the number of times builds were selected as results were not cached
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * @return the ratio of {@link #getHitCount()} to all lookups. {@code 0} if never looked up.
+     */
+    public double getHitRate() {
+        long hits = getHitCount();
+        long total = hits + getMissCount();
+        return (total > 0) ? (double)hits / total : 0;
+    }
+
+    /**
+     * Clears statistics.
+     */
+    public void resetStatistics() {
+        hitCount.set(0);
+        missCount.set(0);
+        invalidationCount.set(0);
+    }
+
+    /**
+     * @return statistics as JSON
+     */
+    @Nonnull
+    public JSONObject toJSON() {
+        JSONObject json = new JSONObject();
+        json.put("enabled", enabled);
+        json.put("size", size());
+        json.put("hits", getHitCount());
+        json.put("misses", getMissCount());
+        json.put("hitRate", getHitRate());
+        json.put("invalidations", invalidationCount.get());
+        return json;
+    }
+
+    /**
+     * A cached result.
+     */
+    private static final class Entry {
+        @Nonnull
+        private final AtomicLong counter;
+        private final long generation;
+        private final int number;
+        private final long storedAt = System.nanoTime();
+
+        Entry(@Nonnull AtomicLong counter, long generation, int number) {
+            this.counter = counter;
+            this.generation = generation;
+            this.number = number;
+        }
+    }
+
+    /**
+     * Invalidates results when builds start, complete or are deleted.
+     */
+    @Extension
+    public static class RunListenerImpl extends RunListener<Run<?, ?>> {
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onStarted(Run<?, ?> run, TaskListener listener) {
+            get().invalidate(run.getParent().getFullName());
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onCompleted(Run<?, ?> run, @Nonnull TaskListener listener) {
+            get().invalidate(run.getParent().getFullName());
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onFinalized(Run<?, ?> run) {
+            get().invalidate(run.getParent().getFullName());
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onDeleted(Run<?, ?> run) {
+            get().invalidate(run.getParent().getFullName());
+        }
+    }
+
+    /**
+     * Invalidates results when builds are updated (e.g. display names or "keep forever").
+     */
+    @Extension
+    public static class SaveableListenerImpl extends SaveableListener {
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onChange(Saveable o, XmlFile file) {
+            if (o instanceof Run) {
+                get().invalidate(((Run<?, ?>)o).getParent().getFullName());
+            }
+        }
+    }
+
+    /**
+     * Invalidates results when jobs are renamed, moved or deleted.
+     */
+    @Extension
+    public static class ItemListenerImpl extends ItemListener {
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onLocationChanged(Item item, String oldFullName, String newFullName) {
+            get().forget(item, oldFullName);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onDeleted(Item item) {
+            get().forget(item, item.getFullName());
+        }
+    }
+}
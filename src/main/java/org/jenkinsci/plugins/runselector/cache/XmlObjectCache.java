@@ -0,0 +1,163 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 Alexandru Somai
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jenkinsci.plugins.runselector.cache;
+
+import com.thoughtworks.xstream.XStream;
+import hudson.Util;
+import org.jenkinsci.plugins.runselector.codec.CompactCodec;
+import org.jenkinsci.plugins.runselector.filters.ParameterizedRunFilter;
+import org.jenkinsci.plugins.runselector.selectors.RunSelectorParameter;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded LRU cache of objects deserialized from XML expressions
+ * (or values in {@link CompactCodec}),
+ * keyed by the SHA-256 digest of the XML.
+ * <p>
+ * Used by {@link ParameterizedRunFilter} and {@link RunSelectorParameter},
+ * which would deserialize the same XML for every selection otherwise.
+ * Cached objects are shared among selections, and must not be modified.
+ */
+public final class XmlObjectCache {
+    private static final int DEFAULT_MAX_SIZE = 256;
+
+    private static final XmlObjectCache INSTANCE = new XmlObjectCache(
+            Integer.getInteger(XmlObjectCache.class.getName() + ".maxSize", DEFAULT_MAX_SIZE)
+    );
+
+    private final Map<String, Object> cache;
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    /**
+     * @param maxSize the maximum number of objects to hold
+     */
+    XmlObjectCache(final int maxSize) {
+        this.cache = new LinkedHashMap<String, Object>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Object> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * @return the cache shared in this Jenkins instance
+     */
+    @Nonnull
+    public static XmlObjectCache get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Deserializes an object, or returns the cached one deserialized from the same XML.
+     *
+     * @param <T>     specified with {@code type}
+     * @param xstream used to deserialize the object if not cached
+     * @param xml     the XML expression of the object, or the value encoded with {@link CompactCodec}
+     * @param type    the expected class of the object
+     * @return the deserialized object
+     * @throws com.thoughtworks.xstream.XStreamException if the object cannot be deserialized
+     * @throws ClassCastException if the object isn't an instance of {@code type}
+     * @throws IllegalArgumentException if the value in {@link CompactCodec} cannot be decoded
+     */
+    @CheckForNull
+    public <T> T fromXml(@Nonnull XStream xstream, @Nonnull String xml, @Nonnull Class<T> type) {
+        // keys by the type not to pass objects deserialized with another XStream.
+        String key = type.getName() + ':' + digest(xml);
+        Object cached;
+        synchronized (cache) {
+            cached = cache.get(key);
+        }
+        if (cached != null) {
+            hitCount.incrementAndGet();
+            return type.cast(cached);
+        }
+        missCount.incrementAndGet();
+        T object = CompactCodec.isEncoded(xml)
+                ? CompactCodec.get().decode(xml, type)
+                : type.cast(xstream.fromXML(xml));
+        if (object != null) {
+            synchronized (cache) {
+                cache.put(key, object);
+            }
+        }
+        return object;
+    }
+
+    /**
+     * Discards all cached objects.
+     * Should be called when the way to deserialize objects changes (e.g. aliases are updated).
+     */
+    public void clear() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * @return the number of cached objects
+     */
+    public int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    /**
+     * @return the number of times cached objects were returned
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * @return the number of times objects were deserialized
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    @Nonnull
+    static String digest(@Nonnull String xml) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            return Util.toHexString(md.digest(xml.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 is always supported by Java platforms.
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,241 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 Alexandru Somai
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.runselector.codec;
+
+import hudson.init.InitMilestone;
+import hudson.init.Initializer;
+import hudson.model.Descriptor;
+import jenkins.model.Jenkins;
+import org.jenkinsci.plugins.runselector.RunFilter;
+import org.jenkinsci.plugins.runselector.RunSelector;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Compact single-line encoding of {@link RunSelector}s and {@link RunFilter}s
+ * used for values of {@link org.jenkinsci.plugins.runselector.selectors.RunSelectorParameter}
+ * and {@link org.jenkinsci.plugins.runselector.filters.RunFilterParameter}.
+ * <p>
+ * An encoded value is {@link #PREFIX} followed by a JSON object
+ * with the simple class name in {@code "@"} and properties bound with
+ * {@link org.kohsuke.stapler.DataBoundConstructor} and {@link org.kohsuke.stapler.DataBoundSetter}
+ * in the order of names:
+ * <pre>rs1:{"@":"StatusRunSelector","buildStatus":"STABLE"}</pre>
+ * Codecs for classes of registered descriptors are built once,
+ * and only those classes can be instantiated.
+ * Values not starting with {@link #PREFIX} are XStream XML expressions used in former versions.
+ */
+public final class CompactCodec {
+    private static final Logger LOGGER = Logger.getLogger(CompactCodec.class.getName());
+
+    /**
+     * The prefix of encoded values, including the version of the encoding.
+     */
+    public static final String PREFIX = "rs1:";
+
+    @CheckForNull
+    private static volatile CompactCodec instance;
+
+    /**
+     * codecs keyed by simple names and full names of classes.
+     */
+    @Nonnull
+    private final Map<String, DescribableCodec> codecsByName;
+    @Nonnull
+    private final Map<Class<?>, DescribableCodec> codecsByClass;
+
+    /**
+     * @param classes classes to encode. Classes of their properties are also registered.
+     */
+    CompactCodec(@Nonnull Iterable<? extends Class<?>> classes) {
+        Map<String, DescribableCodec> codecsByName = new HashMap<String, DescribableCodec>();
+        Map<Class<?>, DescribableCodec> codecsByClass = new HashMap<Class<?>, DescribableCodec>();
+        Deque<Class<?>> pending = new ArrayDeque<Class<?>>();
+        for (Class<?> clazz : classes) {
+            pending.add(clazz);
+        }
+        while (!pending.isEmpty()) {
+            Class<?> clazz = pending.poll();
+            if (codecsByClass.containsKey(clazz)) {
+                continue;
+            }
+            DescribableCodec codec;
+            try {
+                codec = DescribableCodec.of(clazz);
+            } catch (IllegalArgumentException e) {
+                // encoded with XStream instead.
+                LOGGER.log(Level.FINE, "{0} is not supported in the compact encoding: {1}", new Object[] {clazz, e.getMessage()});
+                continue;
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Failed to inspect " + clazz, e);
+                continue;
+            } catch (LinkageError e) {
+                LOGGER.log(Level.WARNING, "Failed to inspect " + clazz, e);
+                continue;
+            }
+            codecsByClass.put(clazz, codec);
+            codecsByName.put(clazz.getName(), codec);
+            if (!codecsByName.containsKey(clazz.getSimpleName())) {
+                codecsByName.put(clazz.getSimpleName(), codec);
+            }
+            for (Class<?> type : codec.getPropertyTypes()) {
+                if (isNestable(type) && !codecsByClass.containsKey(type)) {
+                    pending.add(type);
+                }
+            }
+        }
+        this.codecsByName = Collections.unmodifiableMap(codecsByName);
+        this.codecsByClass = Collections.unmodifiableMap(codecsByClass);
+    }
+
+    /**
+     * @param type the type of a property
+     * @return whether the type can be a nested object in the encoding.
+     */
+    private static boolean isNestable(@Nonnull Class<?> type) {
+        return !type.isPrimitive() && !type.isEnum() && !type.isArray()
+                && !type.getName().startsWith("java.");
+    }
+
+    /**
+     * @return the codec for registered selectors and filters
+     */
+    @Nonnull
+    public static CompactCodec get() {
+        CompactCodec codec = instance;
+        if (codec == null) {
+            codec = createFromDescriptors();
+            instance = codec;
+        }
+        return codec;
+    }
+
+    /**
+     * Rebuilds codecs for registered descriptors.
+     */
+    @Initializer(after = InitMilestone.PLUGINS_STARTED)
+    public static void reset() {
+        instance = null;
+    }
+
+    @Nonnull
+    private static CompactCodec createFromDescriptors() {
+        List<Class<?>> classes = new ArrayList<Class<?>>();
+        Jenkins jenkins = Jenkins.getInstance();
+        if (jenkins != null) {
+            for (Descriptor<RunSelector> d : jenkins.getDescriptorList(RunSelector.class)) {
+                classes.add(d.clazz);
+            }
+            for (Descriptor<RunFilter> d : jenkins.getDescriptorList(RunFilter.class)) {
+                classes.add(d.clazz);
+            }
+        }
+        return new CompactCodec(classes);
+    }
+
+    /**
+     * @param value a value of a parameter
+     * @return whether the value is encoded in the compact encoding
+     */
+    public static boolean isEncoded(@CheckForNull String value) {
+        return value != null && value.startsWith(PREFIX);
+    }
+
+    /**
+     * @param object the selector or the filter to encode
+     * @return the encoded value. {@code null} if the object or an object in it isn't supported.
+     */
+    @CheckForNull
+    public String encode(@Nonnull Object object) {
+        try {
+            return PREFIX + CompactJson.write(encodeObject(object));
+        } catch (IllegalArgumentException e) {
+            LOGGER.log(Level.FINE, "Could not encode " + object, e);
+            return null;
+        }
+    }
+
+    /**
+     * @param <T>   specified with {@code type}
+     * @param value the encoded value
+     * @param type  the expected type
+     * @return the decoded object
+     * @throws IllegalArgumentException if the value is malformed or contains unsupported objects
+     */
+    @Nonnull
+    public <T> T decode(@Nonnull String value, @Nonnull Class<T> type) {
+        if (!isEncoded(value)) {
+            throw new IllegalArgumentException("Unsupported encoding: " + value);
+        }
+        Object json = CompactJson.parse(value, PREFIX.length());
+        if (!(json instanceof Map)) {
+            throw new IllegalArgumentException("Not an object: " + value);
+        }
+        @SuppressWarnings("unchecked")
+        Map<String, Object> map = (Map<String, Object>) json;
+        return type.cast(decodeObject(map, type));
+    }
+
+    /**
+     * @param clazz a registered class
+     * @return the name used in the encoding
+     */
+    @Nonnull
+    String getName(@Nonnull Class<?> clazz) {
+        DescribableCodec codec = codecsByName.get(clazz.getSimpleName());
+        return (codec != null && codec.getType() == clazz) ? clazz.getSimpleName() : clazz.getName();
+    }
+
+    @Nonnull
+    Map<String, Object> encodeObject(@Nonnull Object object) {
+        DescribableCodec codec = codecsByClass.get(object.getClass());
+        if (codec == null) {
+            throw new IllegalArgumentException(object.getClass() + " is not supported");
+        }
+        return codec.encode(object, this);
+    }
+
+    @Nonnull
+    Object decodeObject(@Nonnull Map<String, Object> json, @Nonnull Class<?> type) {
+        Object name = json.get(DescribableCodec.TYPE_KEY);
+        DescribableCodec codec = (name instanceof String) ? codecsByName.get(name) : null;
+        if (codec == null) {
+            throw new IllegalArgumentException("Unsupported type: " + name);
+        }
+        if (!type.isAssignableFrom(codec.getType())) {
+            throw new IllegalArgumentException(String.format("%s is not a %s", name, type.getName()));
+        }
+        return codec.decode(json, this);
+    }
+}
@@ -0,0 +1,326 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 Alexandru Somai
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.runselector.codec;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal single-line JSON used by {@link CompactCodec}.
+ * Objects are {@link Map}s, arrays are {@link List}s,
+ * and other values are {@link String}, {@link Boolean}, {@link Long}, {@link Double} or {@code null}.
+ * Written without whitespaces, and keys in the order of maps,
+ * so that the same value is always written in the same way.
+ */
+final class CompactJson {
+    private final String text;
+    private int pos;
+
+    private CompactJson(@Nonnull String text, int pos) {
+        this.text = text;
+        this.pos = pos;
+    }
+
+    /**
+     * @param value the value to write
+     * @return the JSON expression
+     * @throws IllegalArgumentException if the value contains unsupported objects
+     */
+    @Nonnull
+    static String write(@CheckForNull Object value) {
+        StringBuilder sb = new StringBuilder();
+        write(sb, value);
+        return sb.toString();
+    }
+
+    private static void write(@Nonnull StringBuilder sb, @CheckForNull Object value) {
+        if (value == null) {
+            sb.append("null");
+        } else if (value instanceof String) {
+            writeString(sb, (String) value);
+        } else if (value instanceof Boolean || value instanceof Long || value instanceof Integer) {
+            sb.append(value);
+        } else if (value instanceof Double && !((Double) value).isNaN() && !((Double) value).isInfinite()) {
+            sb.append(value);
+        } else if (value instanceof Map) {
+            sb.append('{');
+            boolean first = true;
+            for (Map.Entry<?, ?> e : ((Map<?, ?>) value).entrySet()) {
+                if (!first) {
+                    sb.append(',');
+                }
+                first = false;
+                writeString(sb, (String) e.getKey());
+                sb.append(':');
+                write(sb, e.getValue());
+            }
+            sb.append('}');
+        } else if (value instanceof List) {
+            sb.append('[');
+            boolean first = true;
+            for (Object e : (List<?>) value) {
+                if (!first) {
+                    sb.append(',');
+                }
+                first = false;
+                write(sb, e);
+            }
+            sb.append(']');
+        } else {
+            throw new IllegalArgumentException("Unsupported value: " + value.getClass());
+        }
+    }
+
+    private static void writeString(@Nonnull StringBuilder sb, @Nonnull String s) {
+        sb.append('"');
+        for (int i = 0; i < s.length(); ++i) {
+            char c = s.charAt(i);
+            switch (c) {
+            case '"':
+                sb.append("\\\"");
+                break;
+            case '\\':
+                sb.append("\\\\");
+                break;
+            case '\n':
+                sb.append("\\n");
+                break;
+            case '\r':
+                sb.append("\\r");
+                break;
+            case '\t':
+                sb.append("\\t");
+                break;
+            default:
+                if (c < 0x20) {
+                    sb.append(String.format("\\u%04x", (int) c));
+                } else {
+                    sb.append(c);
+                }
+            }
+        }
+        sb.append('"');
+    }
+
+    /**
+     * @param text  the text to parse
+     * @param start the index the JSON expression starts at
+     * @return the parsed value
+     * @throws IllegalArgumentException if the text is malformed
+     */
+    @CheckForNull
+    static Object parse(@Nonnull String text, int start) {
+        CompactJson parser = new CompactJson(text, start);
+        Object value = parser.readValue();
+        parser.skipWhitespaces();
+        if (parser.pos != text.length()) {
+            throw parser.error("Unexpected trailing characters");
+        }
+        return value;
+    }
+
+    @CheckForNull
+    private Object readValue() {
+        skipWhitespaces();
+        if (pos >= text.length()) {
+            throw error("Unexpected end");
+        }
+        char c = text.charAt(pos);
+        switch (c) {
+        case '{':
+            return readObject();
+        case '[':
+            return readArray();
+        case '"':
+            return readString();
+        case 't':
+            expect("true");
+            return Boolean.TRUE;
+        case 'f':
+            expect("false");
+            return Boolean.FALSE;
+        case 'n':
+            expect("null");
+            return null;
+        default:
+            return readNumber();
+        }
+    }
+
+    @Nonnull
+    private Map<String, Object> readObject() {
+        Map<String, Object> map = new LinkedHashMap<String, Object>();
+        ++pos;
+        skipWhitespaces();
+        if (peek() == '}') {
+            ++pos;
+            return map;
+        }
+        while (true) {
+            skipWhitespaces();
+            if (peek() != '"') {
+                throw error("Expected a key");
+            }
+            String key = readString();
+            skipWhitespaces();
+            if (peek() != ':') {
+                throw error("Expected ':'");
+            }
+            ++pos;
+            map.put(key, readValue());
+            skipWhitespaces();
+            char c = peek();
+            ++pos;
+            if (c == '}') {
+                return map;
+            }
+            if (c != ',') {
+                throw error("Expected ',' or '}'");
+            }
+        }
+    }
+
+    @Nonnull
+    private List<Object> readArray() {
+        List<Object> list = new ArrayList<Object>();
+        ++pos;
+        skipWhitespaces();
+        if (peek() == ']') {
+            ++pos;
+            return list;
+        }
+        while (true) {
+            list.add(readValue());
+            skipWhitespaces();
+            char c = peek();
+            ++pos;
+            if (c == ']') {
+                return list;
+            }
+            if (c != ',') {
+                throw error("Expected ',' or ']'");
+            }
+        }
+    }
+
+    @Nonnull
+    private String readString() {
+        StringBuilder sb = new StringBuilder();
+        ++pos;
+        while (true) {
+            if (pos >= text.length()) {
+                throw error("Unterminated string");
+            }
+            char c = text.charAt(pos++);
+            if (c == '"') {
+                return sb.toString();
+            }
+            if (c != '\\') {
+                sb.append(c);
+                continue;
+            }
+            if (pos >= text.length()) {
+                throw error("Unterminated string");
+            }
+            c = text.charAt(pos++);
+            switch (c) {
+            case 'n':
+                sb.append('\n');
+                break;
+            case 'r':
+                sb.append('\r');
+                break;
+            case 't':
+                sb.append('\t');
+                break;
+            case 'b':
+                sb.append('\b');
+                break;
+            case 'f':
+                sb.append('\f');
+                break;
+            case 'u':
+                if (pos + 4 > text.length()) {
+                    throw error("Malformed escape");
+                }
+                try {
+                    sb.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                } catch (NumberFormatException e) {
+                    throw error("Malformed escape");
+                }
+                pos += 4;
+                break;
+            default:
+                // '"', '\\', '/'
+                sb.append(c);
+            }
+        }
+    }
+
+    @Nonnull
+    private Object readNumber() {
+        int start = pos;
+        while (pos < text.length() && "+-0123456789.eE".indexOf(text.charAt(pos)) >= 0) {
+            ++pos;
+        }
+        String number = text.substring(start, pos);
+        try {
+            if (number.indexOf('.') < 0 && number.indexOf('e') < 0 && number.indexOf('E') < 0) {
+                return Long.valueOf(number);
+            }
+            return Double.valueOf(number);
+        } catch (NumberFormatException e) {
+            throw error("Unexpected value");
+        }
+    }
+
+    private void expect(@Nonnull String literal) {
+        if (!text.startsWith(literal, pos)) {
+            throw error("Unexpected value");
+        }
+        pos += literal.length();
+    }
+
+    private char peek() {
+        if (pos >= text.length()) {
+            throw error("Unexpected end");
+        }
+        return text.charAt(pos);
+    }
+
+    private void skipWhitespaces() {
+        while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+            ++pos;
+        }
+    }
+
+    @Nonnull
+    private IllegalArgumentException error(@Nonnull String message) {
+        return new IllegalArgumentException(String.format("%s at %d: %s", message, pos, text));
+    }
+}
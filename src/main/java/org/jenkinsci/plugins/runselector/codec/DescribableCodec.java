@@ -0,0 +1,445 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 Alexandru Somai
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.runselector.codec;
+
+import org.kohsuke.stapler.ClassDescriptor;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import java.beans.Introspector;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Converts objects of a class from and to JSON values of {@link CompactJson}
+ * with its {@link DataBoundConstructor} and {@link DataBoundSetter}s,
+ * just like the pipeline syntax.
+ * Reflection is done once when this is created.
+ */
+final class DescribableCodec {
+    /**
+     * the key for the name of the class in JSON objects.
+     */
+    static final String TYPE_KEY = "@";
+
+    /**
+     * primitive types and numbers restored from JSON values.
+     */
+    private static final Set<Class<?>> SUPPORTED_PRIMITIVE_TYPES = new HashSet<Class<?>>(Arrays.<Class<?>>asList(
+            boolean.class,
+            int.class, Integer.class,
+            long.class, Long.class,
+            short.class, Short.class,
+            byte.class, Byte.class,
+            float.class, Float.class,
+            double.class, Double.class
+    ));
+
+    @Nonnull
+    private final Class<?> clazz;
+    @Nonnull
+    private final Constructor<?> constructor;
+    @Nonnull
+    private final String[] parameterNames;
+    @Nonnull
+    private final Type[] parameterTypes;
+    /**
+     * setters keyed by property names.
+     */
+    @Nonnull
+    private final Map<String, Method> setters;
+    /**
+     * getters of all properties, sorted by names.
+     * {@code null} values for properties not readable,
+     * which makes objects of the class not encodable.
+     */
+    @Nonnull
+    private final Map<String, Member> getters;
+
+    private DescribableCodec(
+            @Nonnull Class<?> clazz,
+            @Nonnull Constructor<?> constructor,
+            @Nonnull String[] parameterNames,
+            @Nonnull Map<String, Method> setters,
+            @Nonnull Map<String, Member> getters
+    ) {
+        this.clazz = clazz;
+        this.constructor = constructor;
+        this.parameterNames = parameterNames;
+        this.parameterTypes = constructor.getGenericParameterTypes();
+        this.setters = setters;
+        this.getters = getters;
+    }
+
+    /**
+     * @param clazz the class to convert
+     * @return the codec for the class
+     * @throws IllegalArgumentException if the class cannot be instantiated with {@link DataBoundConstructor}
+     */
+    @Nonnull
+    static DescribableCodec of(@Nonnull Class<?> clazz) {
+        if (Modifier.isAbstract(clazz.getModifiers())) {
+            throw new IllegalArgumentException(clazz + " is abstract");
+        }
+        Constructor<?> constructor = null;
+        for (Constructor<?> c : clazz.getConstructors()) {
+            if (c.isAnnotationPresent(DataBoundConstructor.class)) {
+                constructor = c;
+                break;
+            }
+        }
+        if (constructor == null) {
+            throw new IllegalArgumentException(clazz + " has no @DataBoundConstructor");
+        }
+        String[] parameterNames = ClassDescriptor.loadParameterNames(constructor);
+        if (parameterNames.length != constructor.getParameterTypes().length) {
+            throw new IllegalArgumentException("Could not load parameter names of " + constructor);
+        }
+
+        Map<String, Method> setters = new LinkedHashMap<String, Method>();
+        for (Method m : clazz.getMethods()) {
+            if (m.isAnnotationPresent(DataBoundSetter.class)
+                    && m.getName().startsWith("set")
+                    && m.getParameterTypes().length == 1) {
+                setters.put(Introspector.decapitalize(m.getName().substring(3)), m);
+            }
+        }
+
+        for (Type t : constructor.getGenericParameterTypes()) {
+            checkSupported(t);
+        }
+        for (Method setter : setters.values()) {
+            checkSupported(setter.getGenericParameterTypes()[0]);
+        }
+
+        Map<String, Member> getters = new TreeMap<String, Member>();
+        for (String name : parameterNames) {
+            getters.put(name, Member.of(clazz, name));
+        }
+        for (String name : setters.keySet()) {
+            getters.put(name, Member.of(clazz, name));
+        }
+        return new DescribableCodec(
+                clazz,
+                constructor,
+                parameterNames,
+                Collections.unmodifiableMap(setters),
+                Collections.unmodifiableMap(getters)
+        );
+    }
+
+    /**
+     * Checks that values of a property type can be restored from JSON.
+     * Collections are restored as {@link ArrayList}s.
+     * Types other than primitives, strings, enums and collections are converted as nested objects.
+     *
+     * @param type the type of a property
+     * @throws IllegalArgumentException if values of the type cannot be restored
+     */
+    private static void checkSupported(@Nonnull Type type) {
+        Class<?> raw = rawType(type);
+        if (Collection.class.isAssignableFrom(raw)) {
+            if (!raw.isAssignableFrom(ArrayList.class)) {
+                throw new IllegalArgumentException(type + " is not a List");
+            }
+            checkSupported(elementType(type));
+            return;
+        }
+        if (raw == char.class || raw == Character.class || raw.isArray() || Map.class.isAssignableFrom(raw)) {
+            throw new IllegalArgumentException(type + " is not supported");
+        }
+        if ((raw.isPrimitive() || Number.class.isAssignableFrom(raw))
+                && !SUPPORTED_PRIMITIVE_TYPES.contains(raw)) {
+            throw new IllegalArgumentException(type + " is not supported");
+        }
+    }
+
+    /**
+     * @return the class to convert
+     */
+    @Nonnull
+    Class<?> getType() {
+        return clazz;
+    }
+
+    /**
+     * @return types of values of properties, including element types of collections.
+     */
+    @Nonnull
+    List<Class<?>> getPropertyTypes() {
+        List<Class<?>> types = new ArrayList<Class<?>>();
+        for (Type t : parameterTypes) {
+            addTypes(types, t);
+        }
+        for (Method setter : setters.values()) {
+            addTypes(types, setter.getGenericParameterTypes()[0]);
+        }
+        return types;
+    }
+
+    private static void addTypes(@Nonnull List<Class<?>> types, @Nonnull Type type) {
+        Class<?> raw = rawType(type);
+        if (Collection.class.isAssignableFrom(raw)) {
+            addTypes(types, elementType(type));
+        } else {
+            types.add(raw);
+        }
+    }
+
+    /**
+     * @param object the object to convert
+     * @param codec  converts nested objects
+     * @return the JSON object
+     * @throws IllegalArgumentException if the object cannot be converted
+     */
+    @Nonnull
+    Map<String, Object> encode(@Nonnull Object object, @Nonnull CompactCodec codec) {
+        Map<String, Object> json = new LinkedHashMap<String, Object>();
+        json.put(TYPE_KEY, codec.getName(clazz));
+        for (Map.Entry<String, Member> e : getters.entrySet()) {
+            if (e.getValue() == null) {
+                throw new IllegalArgumentException(String.format(
+                        "Could not read %s of %s",
+                        e.getKey(),
+                        clazz.getName()
+                ));
+            }
+            Object value = toJson(e.getValue().get(object), codec);
+            if (value != null) {
+                json.put(e.getKey(), value);
+            }
+        }
+        return json;
+    }
+
+    @CheckForNull
+    private static Object toJson(@CheckForNull Object value, @Nonnull CompactCodec codec) {
+        if (value == null || value instanceof String || value instanceof Boolean) {
+            return value;
+        }
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof Float || value instanceof Double) {
+            return ((Number) value).doubleValue();
+        }
+        if (value instanceof Enum) {
+            return ((Enum<?>) value).name();
+        }
+        if (value instanceof Collection) {
+            List<Object> list = new ArrayList<Object>(((Collection<?>) value).size());
+            for (Object e : (Collection<?>) value) {
+                list.add(toJson(e, codec));
+            }
+            return list;
+        }
+        return codec.encodeObject(value);
+    }
+
+    /**
+     * @param json  the JSON object
+     * @param codec converts nested objects
+     * @return the object
+     * @throws IllegalArgumentException if the JSON object cannot be converted
+     */
+    @Nonnull
+    Object decode(@Nonnull Map<String, Object> json, @Nonnull CompactCodec codec) {
+        Object[] args = new Object[parameterNames.length];
+        for (int i = 0; i < parameterNames.length; ++i) {
+            args[i] = fromJson(json.get(parameterNames[i]), parameterTypes[i], codec);
+        }
+        try {
+            Object object = constructor.newInstance(args);
+            for (Map.Entry<String, Method> e : setters.entrySet()) {
+                if (json.containsKey(e.getKey())) {
+                    e.getValue().invoke(
+                            object,
+                            fromJson(json.get(e.getKey()), e.getValue().getGenericParameterTypes()[0], codec)
+                    );
+                }
+            }
+            return object;
+        } catch (InstantiationException e) {
+            throw new IllegalArgumentException("Could not instantiate " + clazz.getName(), e);
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("Could not instantiate " + clazz.getName(), e);
+        } catch (InvocationTargetException e) {
+            throw new IllegalArgumentException("Could not instantiate " + clazz.getName(), e.getCause());
+        }
+    }
+
+    @CheckForNull
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object fromJson(@CheckForNull Object value, @Nonnull Type type, @Nonnull CompactCodec codec) {
+        Class<?> raw = rawType(type);
+        if (value == null) {
+            if (raw == boolean.class) {
+                return false;
+            }
+            if (raw.isPrimitive()) {
+                return fromJson(0L, raw, codec);
+            }
+            return null;
+        }
+        if (raw == String.class) {
+            return value.toString();
+        }
+        if (raw == boolean.class || raw == Boolean.class) {
+            return (value instanceof Boolean) ? value : Boolean.valueOf(value.toString());
+        }
+        if (raw.isPrimitive() || Number.class.isAssignableFrom(raw)) {
+            Number n = (value instanceof Number) ? (Number) value : Double.valueOf(value.toString());
+            if (raw == int.class || raw == Integer.class) {
+                return n.intValue();
+            }
+            if (raw == long.class || raw == Long.class) {
+                return n.longValue();
+            }
+            if (raw == short.class || raw == Short.class) {
+                return n.shortValue();
+            }
+            if (raw == byte.class || raw == Byte.class) {
+                return n.byteValue();
+            }
+            if (raw == float.class || raw == Float.class) {
+                return n.floatValue();
+            }
+            if (raw == double.class || raw == Double.class) {
+                return n.doubleValue();
+            }
+        }
+        if (raw.isEnum()) {
+            return Enum.valueOf((Class<? extends Enum>) raw, value.toString());
+        }
+        if (Collection.class.isAssignableFrom(raw) && value instanceof List) {
+            List<Object> list = new ArrayList<Object>(((List<?>) value).size());
+            for (Object e : (List<?>) value) {
+                list.add(fromJson(e, elementType(type), codec));
+            }
+            return list;
+        }
+        if (value instanceof Map) {
+            return codec.decodeObject((Map<String, Object>) value, raw);
+        }
+        throw new IllegalArgumentException(String.format("Could not convert %s to %s", value, type));
+    }
+
+    @Nonnull
+    private static Class<?> rawType(@Nonnull Type type) {
+        if (type instanceof Class) {
+            return (Class<?>) type;
+        }
+        if (type instanceof ParameterizedType) {
+            return rawType(((ParameterizedType) type).getRawType());
+        }
+        return Object.class;
+    }
+
+    @Nonnull
+    private static Type elementType(@Nonnull Type type) {
+        if (type instanceof ParameterizedType) {
+            Type[] args = ((ParameterizedType) type).getActualTypeArguments();
+            if (args.length == 1) {
+                return args[0];
+            }
+        }
+        return Object.class;
+    }
+
+    /**
+     * Reads a property with its getter, or the field of the same name.
+     */
+    private static final class Member {
+        @CheckForNull
+        private final Method getter;
+        @CheckForNull
+        private final Field field;
+
+        private Member(@CheckForNull Method getter, @CheckForNull Field field) {
+            this.getter = getter;
+            this.field = field;
+        }
+
+        /**
+         * @param clazz the class to read the property from
+         * @param name  the name of the property
+         * @return the accessor. {@code null} if the property is not readable.
+         */
+        @CheckForNull
+        static Member of(@Nonnull Class<?> clazz, @Nonnull String name) {
+            String capitalized = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+            for (String getterName : new String[] {"get" + capitalized, "is" + capitalized}) {
+                try {
+                    Method m = clazz.getMethod(getterName);
+                    if (m.getReturnType() != void.class) {
+                        if (!Modifier.isPublic(m.getDeclaringClass().getModifiers())) {
+                            m.setAccessible(true);
+                        }
+                        return new Member(m, null);
+                    }
+                } catch (NoSuchMethodException e) {
+                    // try the next one.
+                }
+            }
+            for (Class<?> c = clazz; c != null; c = c.getSuperclass()) {
+                try {
+                    Field f = c.getDeclaredField(name);
+                    f.setAccessible(true);
+                    return new Member(null, f);
+                } catch (NoSuchFieldException e) {
+                    // try the super class.
+                }
+            }
+            return null;
+        }
+
+        @CheckForNull
+        Object get(@Nonnull Object object) {
+            try {
+                return (getter != null) ? getter.invoke(object) : field.get(object);
+            } catch (IllegalAccessException e) {
+                throw new IllegalArgumentException(e);
+            } catch (InvocationTargetException e) {
+                throw new IllegalArgumentException(e.getCause());
+            }
+        }
+    }
+}
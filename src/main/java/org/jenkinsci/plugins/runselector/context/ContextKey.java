@@ -0,0 +1,76 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 Alexandru Somai
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.runselector.context;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+/**
+ * A key for a typed slot in {@link RunSelectorContext},
+ * used with {@link RunSelectorContext#get(ContextKey)} and {@link RunSelectorContext#put(ContextKey, Object)}.
+ * Keys are compared with the identity, so allocate one as a constant and reuse it:
+ * <pre>
+ * private static final ContextKey&lt;State&gt; STATE = new ContextKey&lt;State&gt;(State.class);
+ * </pre>
+ * Values implementing {@link Cloneable} with a public {@code clone()} are cloned
+ * with {@link RunSelectorContext#clone()}, just like extensions.
+ *
+ * @param <T> the type of values
+ */
+public final class ContextKey<T> {
+    @Nonnull
+    private final Class<T> type;
+
+    /**
+     * @param type the type of values
+     */
+    public ContextKey(@Nonnull Class<T> type) {
+        this.type = type;
+    }
+
+    /**
+     * @return the type of values
+     */
+    @Nonnull
+    public Class<T> getType() {
+        return type;
+    }
+
+    /**
+     * @param value a value stored with this key
+     * @return the value cast to the type
+     */
+    @CheckForNull
+    T cast(@CheckForNull Object value) {
+        return type.cast(value);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return "ContextKey[" + type.getName() + "]";
+    }
+}
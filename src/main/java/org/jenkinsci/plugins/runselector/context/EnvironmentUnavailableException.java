@@ -0,0 +1,66 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 Alexandru Somai
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.runselector.context;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+
+/**
+ * Thrown from {@link RunSelectorContext#expand(String)} and {@link RunSelectorContext#getEnvVars()}
+ * when the environment variables for the current build cannot be constructed.
+ * Selections rethrow the cause with {@link #rethrowCause()}.
+ */
+public class EnvironmentUnavailableException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * @param cause the failure to construct the environment variables
+     */
+    public EnvironmentUnavailableException(@Nonnull IOException cause) {
+        super(cause);
+    }
+
+    /**
+     * @param cause the interruption while constructing the environment variables
+     */
+    public EnvironmentUnavailableException(@Nonnull InterruptedException cause) {
+        super(cause);
+    }
+
+    /**
+     * Rethrows the original checked exception.
+     *
+     * @throws IOException          failed to construct the environment variables
+     * @throws InterruptedException interrupted while constructing the environment variables
+     */
+    public void rethrowCause() throws IOException, InterruptedException {
+        Throwable cause = getCause();
+        if (cause instanceof InterruptedException) {
+            InterruptedException e = new InterruptedException(cause.getMessage());
+            e.initCause(this);
+            throw e;
+        }
+        throw new IOException(cause.getMessage(), this);
+    }
+}
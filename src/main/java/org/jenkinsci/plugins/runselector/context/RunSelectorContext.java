@@ -31,6 +31,7 @@ import hudson.model.ParametersAction;
 import hudson.model.Run;
 import hudson.model.TaskListener;
 import jenkins.model.Jenkins;
+import net.sf.json.JSONObject;
 import org.jenkinsci.plugins.runselector.RunFilter;
 import org.jenkinsci.plugins.runselector.RunSelector;
 import org.jenkinsci.plugins.runselector.filters.NoRunFilter;
@@ -39,10 +40,18 @@ import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.text.MessageFormat;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -51,26 +60,76 @@ import java.util.logging.Logger;
  * This allows us to adding new fields without affecting existing plugins.
  * <p>
  * You can manage plugin specific information using
- * {@link #addExtension(Object)} and {@link #getExtension(Class)}.
+ * {@link #addExtension(Object)} and {@link #getExtension(Class)},
+ * or typed slots with {@link #put(ContextKey, Object)} and {@link #get(ContextKey)},
+ * which are looked up without scanning extensions.
+ * <p>
+ * Values computed only from the configuration and environment variables
+ * (e.g. expanded and parsed configurations of filters)
+ * can be memoized with {@link #expand(String)} and {@link #setPreparedState(Object, Object)}
+ * not to compute them for each candidate build.
  */
 public class RunSelectorContext implements Cloneable {
 
     private static final Logger LOGGER = Logger.getLogger(RunSelectorContext.class.getName());
 
+    /**
+     * the logger for {@link #logEvent(String, Run, String)}
+     */
+    private static final Logger EVENT_LOGGER = Logger.getLogger("org.jenkinsci.plugins.runselector.events");
+
+    /**
+     * {@code clone()} of extension classes, looked up once for each class.
+     */
+    private static final ClassValue<ExtensionCloner> EXTENSION_CLONERS = new ClassValue<ExtensionCloner>() {
+        @Override
+        protected ExtensionCloner computeValue(Class<?> type) {
+            return ExtensionCloner.of(type);
+        }
+    };
+
     @Nonnull
     private final Jenkins jenkins;
     @Nonnull
     private final Run<?, ?> build;
     @Nonnull
     private final TaskListener listener;
+    /**
+     * Environment variables constructed on demand.
+     * Shared with clones and never modified: {@link #getEnvVars()} returns a copy.
+     */
     @Nonnull
+    private Environment environment;
+    /**
+     * environment variables retrieved with {@link #getEnvVars()}, which callers can modify.
+     * Copied from {@link #environment} when retrieved first.
+     * {@code null} if not retrieved yet.
+     */
+    @CheckForNull
     private EnvVars envVars;
+    /**
+     * Environment variables {@link #expandedValues} and {@link #preparedStates} were computed with.
+     * Never modified. {@code null} if {@link #envVars} is not retrieved yet.
+     */
+    @CheckForNull
+    private Map<String, String> memoizedEnvVars;
     @Nonnull
     private RunFilter runFilter;
     @Nonnull
     private List<Object> extensionList;
+    /**
+     * values of typed slots. {@code null} until a value is put.
+     */
+    @CheckForNull
+    private Map<ContextKey<?>, Object> slots;
     @CheckForNull
     private Run<?, ?> lastMatchBuild;
+    @Nonnull
+    private Map<String, String> expandedValues;
+    @Nonnull
+    private Map<Object, Object> preparedStates;
+    @CheckForNull
+    private SelectionBudget budget;
 
     private boolean verbose;
 
@@ -80,10 +139,13 @@ public class RunSelectorContext implements Cloneable {
      * @param jenkins  the Jenkins instance
      * @param build    the build running runselector
      * @param listener listener for the build running runselector
+     * @throws IOException never thrown, as environment variables are constructed on demand.
+     *     Declared for compatibility with former versions.
+     * @throws InterruptedException never thrown. Declared for compatibility with former versions.
      */
     public RunSelectorContext(@Nonnull Jenkins jenkins, @Nonnull Run<?, ?> build, @Nonnull TaskListener listener)
-            throws IOException, InterruptedException {
-
+            throws IOException, InterruptedException
+    {
         this(jenkins, build, listener, new NoRunFilter());
     }
 
@@ -93,18 +155,22 @@ public class RunSelectorContext implements Cloneable {
      * @param jenkins  the Jenkins instance
      * @param build    the build running runselector
      * @param listener listener for the build running runselector
+     * @throws IOException never thrown, as environment variables are constructed on demand.
+     *     Declared for compatibility with former versions.
+     * @throws InterruptedException never thrown. Declared for compatibility with former versions.
      */
     public RunSelectorContext(@Nonnull Jenkins jenkins, @Nonnull Run<?, ?> build, @Nonnull TaskListener listener,
-                              @Nonnull RunFilter runFilter)
-            throws IOException, InterruptedException {
-
+                              @Nonnull RunFilter runFilter) throws IOException, InterruptedException {
         this.jenkins = jenkins;
         this.build = build;
         this.listener = listener;
         this.runFilter = runFilter;
 
-        this.envVars = constructEnvVars();
+        // constructed when used first, as most selections don't refer variables.
+        this.environment = new Environment(build, listener);
         this.extensionList = new ArrayList<Object>();
+        this.expandedValues = new HashMap<String, String>();
+        this.preparedStates = new IdentityHashMap<Object, Object>();
     }
 
     /**
@@ -132,13 +198,101 @@ public class RunSelectorContext implements Cloneable {
     }
 
     /**
+     * The returned object can be modified.
+     * Values memoized with {@link #expand(String)} and {@link #setPreparedState(Object, Object)}
+     * are discarded when it gets modified.
+     * Use {@link #expand(String)} just to expand variables,
+     * as the environment variables are copied when this is called first.
+     * <p>
+     * Environment variables are constructed when this or {@link #expand(String)} is called first,
+     * and failures are thrown as the unchecked {@link EnvironmentUnavailableException}
+     * (also from {@link org.jenkinsci.plugins.runselector.RunFilter#isSelectable(Run, RunSelectorContext)}
+     * calling this).
+     * {@link org.jenkinsci.plugins.runselector.RunSelector#select(hudson.model.Job, RunSelectorContext)}
+     * rethrows its cause as {@link IOException} or {@link InterruptedException}.
+     *
      * @return environment variables for the current build
+     * @throws EnvironmentUnavailableException failed to construct the environment variables
      */
     @Nonnull
     public EnvVars getEnvVars() {
+        if (envVars == null) {
+            EnvVars base = environment.get();
+            envVars = new EnvVars(base);
+            // memoized values are computed with the same variables.
+            memoizedEnvVars = base;
+        }
         return envVars;
     }
 
+    /**
+     * Expands variables in a value with the environment variables for the current build.
+     * Results are memoized in this context,
+     * and the same value is expanded only once for a selection.
+     *
+     * @param value value to expand
+     * @return the expanded value
+     * @throws EnvironmentUnavailableException failed to construct the environment variables
+     */
+    @Nonnull
+    public String expand(@Nonnull String value) {
+        validateMemos();
+        String expanded = expandedValues.get(value);
+        if (expanded == null) {
+            expanded = ((envVars != null) ? envVars : environment.get()).expand(value);
+            expandedValues.put(value, expanded);
+        }
+        return expanded;
+    }
+
+    /**
+     * Memoizes a state computed from the configuration of {@code owner} and
+     * environment variables (e.g. parsed configuration of a filter).
+     * States are discarded when this context gets cloned or
+     * the environment variables retrieved with {@link #getEnvVars()} are modified.
+     *
+     * @param owner the object the state is for. Compared with the identity.
+     * @param state the state to memoize. {@code null} to remove.
+     */
+    public void setPreparedState(@Nonnull Object owner, @CheckForNull Object state) {
+        validateMemos();
+        if (state == null) {
+            preparedStates.remove(owner);
+        } else {
+            preparedStates.put(owner, state);
+        }
+    }
+
+    /**
+     * @param <T>   specified with {@code type}
+     * @param owner the object the state is for. Compared with the identity.
+     * @param type  the class of the state
+     * @return the state memoized with {@link #setPreparedState(Object, Object)}.
+     *     {@code null} if not memoized or not an instance of {@code type}.
+     */
+    @CheckForNull
+    public <T> T getPreparedState(@Nonnull Object owner, @Nonnull Class<T> type) {
+        validateMemos();
+        Object state = preparedStates.get(owner);
+        return type.isInstance(state) ? type.cast(state) : null;
+    }
+
+    /**
+     * Discards memoized values if the environment variables are modified since they are memoized.
+     */
+    private void validateMemos() {
+        if (envVars == null || envVars.equals(memoizedEnvVars)) {
+            return;
+        }
+        memoizedEnvVars = new EnvVars(envVars);
+        if (!expandedValues.isEmpty()) {
+            expandedValues.clear();
+        }
+        if (!preparedStates.isEmpty()) {
+            preparedStates.clear();
+        }
+    }
+
     /**
      * Shortcut for {@code getListener().getLogger()}
      *
@@ -196,6 +350,71 @@ public class RunSelectorContext implements Cloneable {
         return lastMatchBuild;
     }
 
+    /**
+     * Limits the selection.
+     * The budget is shared with clones of this context.
+     *
+     * @param budget the budget. {@code null} for no limit.
+     */
+    public void setBudget(@CheckForNull SelectionBudget budget) {
+        this.budget = budget;
+    }
+
+    /**
+     * @return the budget of the selection. {@code null} if not limited.
+     */
+    @CheckForNull
+    public SelectionBudget getBudget() {
+        return budget;
+    }
+
+    /**
+     * Counts a candidate against the budget.
+     * Called by {@link RunSelector#select(hudson.model.Job, RunSelectorContext)}
+     * for each candidate.
+     *
+     * @param candidate the candidate to scan
+     * @throws SelectionBudgetExceededException if the candidate exceeds the budget
+     * @throws InterruptedException if the current thread is interrupted
+     */
+    public void consumeBudget(@Nonnull Run<?, ?> candidate) throws SelectionBudgetExceededException, InterruptedException {
+        SelectionBudget budget = this.budget;
+        if (budget != null) {
+            budget.consume(candidate);
+        } else if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+    }
+
+    /**
+     * Tells whether the selection should stop, without counting a candidate.
+     * Filters testing many candidates at once stop early when this is {@code true},
+     * and the caller fails with {@link #checkBudget(Run)}.
+     *
+     * @return whether the deadline of the budget passed or the current thread is interrupted
+     */
+    public boolean isBudgetExceeded() {
+        SelectionBudget budget = this.budget;
+        return (budget != null) ? budget.isExceeded() : Thread.currentThread().isInterrupted();
+    }
+
+    /**
+     * Checks the deadline of the budget without counting a candidate.
+     * Call this in long operations between candidates.
+     *
+     * @param candidate the candidate being scanned. {@code null} if none.
+     * @throws SelectionBudgetExceededException if the deadline passed
+     * @throws InterruptedException if the current thread is interrupted
+     */
+    public void checkBudget(@CheckForNull Run<?, ?> candidate) throws SelectionBudgetExceededException, InterruptedException {
+        SelectionBudget budget = this.budget;
+        if (budget != null) {
+            budget.check(candidate);
+        } else if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+    }
+
     /**
      * @return additional information by plugins
      */
@@ -229,13 +448,12 @@ public class RunSelectorContext implements Cloneable {
      */
     public boolean replaceExtension(@Nonnull Object extension) {
         boolean removed = false;
-        while (true) {
-            Object e = getExtension(extension.getClass());
-            if (e == null) {
-                break;
+        Class<?> clazz = extension.getClass();
+        for (Iterator<Object> it = getExtensionList().iterator(); it.hasNext(); ) {
+            if (clazz.isInstance(it.next())) {
+                it.remove();
+                removed = true;
             }
-            removeExtension(e);
-            removed = true;
         }
         addExtension(extension);
         return removed;
@@ -256,6 +474,38 @@ public class RunSelectorContext implements Cloneable {
         return null;
     }
 
+    /**
+     * Retrieves the value of a typed slot.
+     *
+     * @param <T> the type of the value
+     * @param key the key of the slot
+     * @return the value put with {@link #put(ContextKey, Object)}. {@code null} if not put.
+     */
+    @CheckForNull
+    public <T> T get(@Nonnull ContextKey<T> key) {
+        Map<ContextKey<?>, Object> slots = this.slots;
+        return (slots != null) ? key.cast(slots.get(key)) : null;
+    }
+
+    /**
+     * Puts a value to a typed slot to hold plugin specific information.
+     *
+     * @param <T>   the type of the value
+     * @param key   the key of the slot
+     * @param value the value. {@code null} to remove.
+     * @return the previous value
+     */
+    @CheckForNull
+    public <T> T put(@Nonnull ContextKey<T> key, @CheckForNull T value) {
+        if (value == null) {
+            return (slots != null) ? key.cast(slots.remove(key)) : null;
+        }
+        if (slots == null) {
+            slots = new IdentityHashMap<ContextKey<?>, Object>();
+        }
+        return key.cast(slots.put(key, value));
+    }
+
     private void log(@Nonnull String message) {
         getConsole().println(message);
     }
@@ -297,7 +547,54 @@ public class RunSelectorContext implements Cloneable {
 
     /**
      * Outputs a log message in {@link MessageFormat} formats
-     * if {@link #isVerbose()} is {@code true}
+     * if {@link #isVerbose()} is {@code true}.
+     * Doesn't allocate arguments when not verbose.
+     *
+     * @param pattern   pattern for {@link MessageFormat}
+     * @param arg0      the value to format
+     */
+    public void logDebug(@Nonnull String pattern, Object arg0) {
+        if (isVerbose()) {
+            log(MessageFormat.format(pattern, arg0));
+        }
+    }
+
+    /**
+     * Outputs a log message in {@link MessageFormat} formats
+     * if {@link #isVerbose()} is {@code true}.
+     * Doesn't allocate arguments when not verbose.
+     *
+     * @param pattern   pattern for {@link MessageFormat}
+     * @param arg0      the first value to format
+     * @param arg1      the second value to format
+     */
+    public void logDebug(@Nonnull String pattern, Object arg0, Object arg1) {
+        if (isVerbose()) {
+            log(MessageFormat.format(pattern, arg0, arg1));
+        }
+    }
+
+    /**
+     * Outputs a log message in {@link MessageFormat} formats
+     * if {@link #isVerbose()} is {@code true}.
+     * Doesn't allocate arguments when not verbose.
+     *
+     * @param pattern   pattern for {@link MessageFormat}
+     * @param arg0      the first value to format
+     * @param arg1      the second value to format
+     * @param arg2      the third value to format
+     */
+    public void logDebug(@Nonnull String pattern, Object arg0, Object arg1, Object arg2) {
+        if (isVerbose()) {
+            log(MessageFormat.format(pattern, arg0, arg1, arg2));
+        }
+    }
+
+    /**
+     * Outputs a log message in {@link MessageFormat} formats
+     * if {@link #isVerbose()} is {@code true}.
+     * Callers in loops should check {@link #isVerbose()} first,
+     * as arguments are evaluated even when not verbose.
      *
      * @param pattern   pattern for {@link MessageFormat}
      * @param arguments values to format
@@ -308,6 +605,35 @@ public class RunSelectorContext implements Cloneable {
         }
     }
 
+    /**
+     * Outputs a structured event as a JSON line to the logger {@code org.jenkinsci.plugins.runselector.events}
+     * in level {@link Level#FINE}, if {@link #isVerbose()} is {@code true}.
+     * Events can be collected with a log recorder and processed later.
+     * <p>
+     * An event looks like:
+     * <pre>{"event":"declined","build":"downstream#12","job":"upstream","number":10,"by":"Display Name Run Filter"}</pre>
+     *
+     * @param event     the kind of the event (e.g. {@code found}, {@code declined}, {@code selected}, {@code exhausted})
+     * @param candidate the build the event is about. {@code null} if not about a specific build.
+     * @param by        the display name of the selector or the filter causing the event
+     */
+    public void logEvent(@Nonnull String event, @CheckForNull Run<?, ?> candidate, @CheckForNull String by) {
+        if (!isVerbose() || !EVENT_LOGGER.isLoggable(Level.FINE)) {
+            return;
+        }
+        JSONObject json = new JSONObject();
+        json.put("event", event);
+        json.put("build", build.getExternalizableId());
+        if (candidate != null) {
+            json.put("job", candidate.getParent().getFullName());
+            json.put("number", candidate.getNumber());
+        }
+        if (by != null) {
+            json.put("by", by);
+        }
+        EVENT_LOGGER.fine(json.toString());
+    }
+
     /**
      * Outputs a log message with an exception
      *
@@ -319,29 +645,134 @@ public class RunSelectorContext implements Cloneable {
     }
 
     private void copyExtensionListFrom(RunSelectorContext src) {
-        this.extensionList = new ArrayList<Object>();
+        this.extensionList = new ArrayList<Object>(src.extensionList.size());
         for (Object ext : src.extensionList) {
-            if (ext instanceof Cloneable) {
+            this.extensionList.add(EXTENSION_CLONERS.get(ext.getClass()).cloneExtension(ext));
+        }
+    }
+
+    /**
+     * Clones extensions with their public {@code clone()}.
+     */
+    private static final class ExtensionCloner {
+        /**
+         * {@code clone()} of the class taking and returning {@link Object}.
+         * {@code null} if not applicable.
+         */
+        @CheckForNull
+        private final MethodHandle handle;
+
+        private ExtensionCloner(@CheckForNull MethodHandle handle) {
+            this.handle = handle;
+        }
+
+        @Nonnull
+        static ExtensionCloner of(@Nonnull Class<?> type) {
+            if (!Cloneable.class.isAssignableFrom(type)) {
+                return new ExtensionCloner(null);
+            }
+            try {
+                Method m = type.getMethod("clone");
+                if (!Modifier.isPublic(m.getDeclaringClass().getModifiers())) {
+                    // e.g. a public clone() of a private class.
+                    m.setAccessible(true);
+                }
+                return new ExtensionCloner(MethodHandles.publicLookup().unreflect(m)
+                        .asType(MethodType.methodType(Object.class, Object.class)));
+            } catch (NoSuchMethodException e) {
+                LOGGER.log(
+                        Level.WARNING,
+                        "Could not clone {0} as clone() is not public.",
+                        type
+                );
+            } catch (Exception e) {
+                LOGGER.log(
+                        Level.WARNING,
+                        MessageFormat.format("Could not clone {0}.", type),
+                        e
+                );
+            }
+            return new ExtensionCloner(null);
+        }
+
+        @Nonnull
+        Object cloneExtension(@Nonnull Object ext) {
+            if (handle == null) {
+                return ext;
+            }
+            try {
+                return (Object) handle.invokeExact(ext);
+            } catch (Throwable t) {
+                if (t instanceof Error) {
+                    throw (Error) t;
+                }
+                LOGGER.log(
+                        Level.WARNING,
+                        MessageFormat.format("Could not clone {0}.", ext.getClass()),
+                        t
+                );
+                return ext;
+            }
+        }
+    }
+
+    /**
+     * Environment variables for the current build, constructed when used first.
+     * Thread-safe, as it can be shared with clones used in other threads.
+     */
+    private static final class Environment {
+        @Nonnull
+        private final Run<?, ?> build;
+        @Nonnull
+        private final TaskListener listener;
+        @CheckForNull
+        private volatile EnvVars envVars;
+        /**
+         * the failure to construct {@link #envVars}, rethrown on every access.
+         */
+        @CheckForNull
+        private volatile IOException failure;
+
+        Environment(@Nonnull Run<?, ?> build, @Nonnull TaskListener listener) {
+            this.build = build;
+            this.listener = listener;
+        }
+
+        /**
+         * Failures are memoized and rethrown on every access.
+         * Interruptions are not memoized, and the construction is retried on the next access.
+         *
+         * @return the environment variables. Must not be modified.
+         * @throws EnvironmentUnavailableException failed to construct or interrupted
+         */
+        @Nonnull
+        EnvVars get() {
+            EnvVars v = envVars;
+            if (v != null) {
+                return v;
+            }
+            synchronized (this) {
+                v = envVars;
+                if (v != null) {
+                    return v;
+                }
+                if (failure != null) {
+                    throw new EnvironmentUnavailableException(failure);
+                }
                 try {
-                    Method m = ext.getClass().getMethod("clone");
-                    this.extensionList.add(m.invoke(ext));
-                } catch (NoSuchMethodException e) {
-                    LOGGER.log(
-                            Level.WARNING,
-                            "Could not clone {0} as clone() is not public.",
-                            ext.getClass()
-                    );
-                    this.extensionList.add(ext);
-                } catch (Exception e) {
-                    LOGGER.log(
-                            Level.WARNING,
-                            MessageFormat.format("Could not clone {0}.", ext.getClass()),
-                            e
-                    );
-                    this.extensionList.add(ext);
+                    v = constructEnvVars(build, listener);
+                } catch (IOException e) {
+                    listener.getLogger().println("Failed to construct environment variables: " + e);
+                    LOGGER.log(Level.WARNING, "Failed to construct environment variables for " + build, e);
+                    failure = e;
+                    throw new EnvironmentUnavailableException(e);
+                } catch (InterruptedException e) {
+                    // aborts the selection. Not memoized.
+                    Thread.currentThread().interrupt();
+                    throw new EnvironmentUnavailableException(e);
                 }
-            } else {
-                this.extensionList.add(ext);
+                envVars = v;
+                return v;
             }
         }
     }
@@ -349,11 +780,14 @@ public class RunSelectorContext implements Cloneable {
     /**
      * Constructs the environment variables for the current build.
      *
+     * @param build    the current build
+     * @param listener listener for the current build
      * @return the current build environment variables
      * @throws IOException
      * @throws InterruptedException
      */
-    private EnvVars constructEnvVars() throws IOException, InterruptedException {
+    private static EnvVars constructEnvVars(@Nonnull Run<?, ?> build, @Nonnull TaskListener listener)
+            throws IOException, InterruptedException {
         EnvVars envVars = build.getEnvironment(listener);
         if (build instanceof AbstractBuild) {
             envVars.putAll(((AbstractBuild<?, ?>) build).getBuildVariables()); // Add in matrix axes..
@@ -388,8 +822,20 @@ public class RunSelectorContext implements Cloneable {
         } catch (CloneNotSupportedException e) {
             throw new IllegalStateException(e);
         }
-        c.envVars = new EnvVars(this.envVars);
+        if (envVars != null) {
+            // the caller of getEnvVars() may still modify it.
+            c.envVars = new EnvVars(envVars);
+        }
         c.copyExtensionListFrom(this);
+        if (slots != null) {
+            c.slots = new IdentityHashMap<ContextKey<?>, Object>(slots.size());
+            for (Map.Entry<ContextKey<?>, Object> e : slots.entrySet()) {
+                c.slots.put(e.getKey(), EXTENSION_CLONERS.get(e.getValue().getClass()).cloneExtension(e.getValue()));
+            }
+        }
+        // the clone may get different environment variables.
+        c.expandedValues = new HashMap<String, String>();
+        c.preparedStates = new IdentityHashMap<Object, Object>();
 
         return c;
     }
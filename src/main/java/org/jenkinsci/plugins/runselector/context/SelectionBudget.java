@@ -0,0 +1,156 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 Alexandru Somai
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jenkinsci.plugins.runselector.context;
+
+import hudson.model.Run;
+import org.jenkinsci.plugins.runselector.Messages;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Limits of a selection: the maximum number of candidates to scan and the deadline.
+ * <p>
+ * Shared among clones of {@link RunSelectorContext}
+ * (e.g. entries of {@link org.jenkinsci.plugins.runselector.selectors.FallbackRunSelector}),
+ * so the limits apply to the whole selection.
+ */
+public final class SelectionBudget {
+    private final int maxCandidates;
+    private final long timeoutMillis;
+    private final long startedAt = System.nanoTime();
+    private final AtomicInteger scanned = new AtomicInteger();
+
+    /**
+     * The budget starts when created.
+     *
+     * @param maxCandidates the maximum number of candidates to scan. {@code 0} for no limit.
+     * @param timeoutMillis milliseconds till the deadline. {@code 0} for no limit.
+     */
+    public SelectionBudget(int maxCandidates, long timeoutMillis) {
+        this.maxCandidates = Math.max(maxCandidates, 0);
+        this.timeoutMillis = Math.max(timeoutMillis, 0);
+    }
+
+    /**
+     * @return the maximum number of candidates to scan. {@code 0} for no limit.
+     */
+    public int getMaxCandidates() {
+        return maxCandidates;
+    }
+
+    /**
+     * @return milliseconds till the deadline. {@code 0} for no limit.
+     */
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    /**
+     * @return the number of candidates scanned so far
+     */
+    public int getScanned() {
+        return scanned.get();
+    }
+
+    /**
+     * @return milliseconds since the selection started
+     */
+    public long getElapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+    }
+
+    /**
+     * @return whether this budget has any limit
+     */
+    public boolean isLimited() {
+        return maxCandidates > 0 || timeoutMillis > 0;
+    }
+
+    /**
+     * Counts a candidate to scan.
+     *
+     * @param candidate the candidate to scan
+     * @throws SelectionBudgetExceededException if the candidate exceeds the budget
+     * @throws InterruptedException if the current thread is interrupted
+     */
+    public void consume(@Nonnull Run<?, ?> candidate) throws SelectionBudgetExceededException, InterruptedException {
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        int count = scanned.incrementAndGet();
+        if (maxCandidates > 0 && count > maxCandidates) {
+            throw exceeded(count - 1, candidate);
+        }
+        if (isTimedOut()) {
+            throw exceeded(count - 1, candidate);
+        }
+    }
+
+    /**
+     * Tells whether the selection should stop, without counting a candidate.
+     * Used in long operations not allowed to throw exceptions, which then stop early
+     * and let {@link #check(Run)} fail.
+     *
+     * @return whether the deadline passed or the current thread is interrupted
+     */
+    public boolean isExceeded() {
+        return Thread.currentThread().isInterrupted() || isTimedOut();
+    }
+
+    /**
+     * Checks the deadline without counting a candidate.
+     * Used in long operations between candidates (e.g. looking into upstream builds).
+     *
+     * @param candidate the candidate being scanned. {@code null} if none.
+     * @throws SelectionBudgetExceededException if the deadline passed
+     * @throws InterruptedException if the current thread is interrupted
+     */
+    public void check(@CheckForNull Run<?, ?> candidate) throws SelectionBudgetExceededException, InterruptedException {
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        if (isTimedOut()) {
+            throw exceeded(scanned.get(), candidate);
+        }
+    }
+
+    private boolean isTimedOut() {
+        return timeoutMillis > 0 && getElapsedMillis() > timeoutMillis;
+    }
+
+    @Nonnull
+    private SelectionBudgetExceededException exceeded(int count, @CheckForNull Run<?, ?> candidate) {
+        return new SelectionBudgetExceededException(Messages.SelectionBudget_Exceeded(
+                count,
+                getElapsedMillis(),
+                (maxCandidates > 0) ? Integer.toString(maxCandidates) : "-",
+                (timeoutMillis > 0) ? Long.toString(timeoutMillis) : "-",
+                (candidate != null) ? candidate.getFullDisplayName() : "-"
+        ));
+    }
+}
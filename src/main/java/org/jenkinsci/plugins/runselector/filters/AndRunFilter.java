@@ -25,15 +25,22 @@
 package org.jenkinsci.plugins.runselector.filters;
 
 import hudson.Extension;
+import hudson.Util;
+import hudson.model.Job;
 import hudson.model.Run;
 import org.jenkinsci.Symbol;
 import org.jenkinsci.plugins.runselector.RunFilter;
 import org.jenkinsci.plugins.runselector.RunFilterDescriptor;
+import org.jenkinsci.plugins.runselector.cache.FilterOrderCache;
 import org.jenkinsci.plugins.runselector.context.RunSelectorContext;
 import org.kohsuke.stapler.DataBoundConstructor;
 
+import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -42,13 +49,25 @@ import java.util.List;
 public class AndRunFilter extends RunFilter {
     @Nonnull
     private final List<RunFilter> runFilterList;
+
+    /**
+     * the result of {@link #simplify()}
+     */
+    private transient volatile RunFilter simplified;
+
+    /**
+     * the key in {@link FilterOrderCache}, computed once as it serializes the whole filter.
+     * Empty if the filter cannot be serialized.
+     */
+    private transient volatile String orderKey;
     
     /**
      * @param runFilterList run filter to conjunct
      */
     @DataBoundConstructor
     public AndRunFilter(@Nonnull List<RunFilter> runFilterList) {
-        this.runFilterList = runFilterList;
+        // copied not to be modified, as the simplified filter is memoized.
+        this.runFilterList = new ArrayList<RunFilter>(runFilterList);
     }
     
     /**
@@ -61,13 +80,40 @@ public class AndRunFilter extends RunFilter {
     }
     
     /**
-     * @return run filter to conjunct
+     * @return run filter to conjunct. Unmodifiable.
      */
     @Nonnull
     public List<RunFilter> getRunFilterList() {
-        return runFilterList;
+        return Collections.unmodifiableList(runFilterList);
     }
     
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Nonnull
+    public RunFilter simplify() {
+        RunFilter result = simplified;
+        if (result == null) {
+            result = RunFilterSimplifier.simplify(this, getRunFilterList(), true);
+            simplified = result;
+        }
+        return result;
+    }
+
+    /**
+     * @return the key in {@link FilterOrderCache}. {@code null} if the filter cannot be serialized.
+     */
+    @CheckForNull
+    private String getOrderKey() {
+        String key = orderKey;
+        if (key == null) {
+            key = Util.fixNull(FilterOrderCache.get().getKey(this));
+            orderKey = key;
+        }
+        return Util.fixEmpty(key);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -75,12 +121,91 @@ public class AndRunFilter extends RunFilter {
     public boolean isSelectable(Run<?, ?> candidate, RunSelectorContext context) {
         for (RunFilter filter: getRunFilterList()) {
             if (!filter.isSelectable(candidate, context)) {
-                context.logDebug(
-                        "{0}: declined by the filters {1} (in {2})",
-                        candidate.getFullDisplayName(),
-                        filter.getDisplayName(),
-                        getDisplayName()
-                );
+                if (context.isVerbose()) {
+                    context.logDebug(
+                            "{0}: declined by the filters {1} (in {2})",
+                            candidate.getFullDisplayName(),
+                            filter.getDisplayName(),
+                            getDisplayName()
+                    );
+                }
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Passes to each filter only candidates accepted by preceding filters.
+     * Filters are evaluated in the order learned with {@link ChildFilterStatistics},
+     * the cheapest and most often rejecting one first.
+     * 
+     * {@inheritDoc}
+     */
+    @Override
+    public BitSet filterBatch(List<? extends Run<?, ?>> candidates, RunSelectorContext context) {
+        List<RunFilter> filters = getRunFilterList();
+        ChildFilterStatistics stats = ChildFilterStatistics.of(this, getOrderKey(), filters.size(), context);
+        BitSet selectable = new BitSet(candidates.size());
+        selectable.set(0, candidates.size());
+        for (int index : stats.getOrder()) {
+            if (selectable.isEmpty()) {
+                break;
+            }
+            RunFilter filter = filters.get(index);
+            long started = System.nanoTime();
+            BitSet accepted = filterSubset(filter, candidates, selectable, context);
+            stats.record(index, System.nanoTime() - started, selectable.cardinality() - accepted.cardinality());
+            if (context.isVerbose()) {
+                BitSet declined = (BitSet)selectable.clone();
+                declined.andNot(accepted);
+                for (int i = declined.nextSetBit(0); i >= 0; i = declined.nextSetBit(i + 1)) {
+                    context.logDebug(
+                            "{0}: declined by the filters {1} (in {2})",
+                            candidates.get(i).getFullDisplayName(),
+                            filter.getDisplayName(),
+                            getDisplayName()
+                    );
+                }
+            }
+            selectable = accepted;
+        }
+        stats.reorder();
+        return selectable;
+    }
+    
+    /**
+     * Intersects builds of filters which can narrow builds down.
+     *
+     * {@inheritDoc}
+     */
+    @Override
+    @CheckForNull
+    public BitSet getSelectableNumbers(@Nonnull Job<?, ?> job, @Nonnull RunSelectorContext context) {
+        BitSet numbers = null;
+        for (RunFilter filter : getRunFilterList()) {
+            BitSet filterNumbers = filter.getSelectableNumbers(job, context);
+            if (filterNumbers == null) {
+                continue;
+            }
+            if (numbers == null) {
+                numbers = (BitSet)filterNumbers.clone();
+            } else {
+                numbers.and(filterNumbers);
+            }
+        }
+        return numbers;
+    }
+    
+    /**
+     * Cacheable when all filters are cacheable.
+     *
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isCacheable() {
+        for (RunFilter filter : getRunFilterList()) {
+            if (!filter.isCacheable()) {
                 return false;
             }
         }
@@ -0,0 +1,150 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 Alexandru Somai
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jenkinsci.plugins.runselector.filters;
+
+import org.jenkinsci.plugins.runselector.RunFilter;
+import org.jenkinsci.plugins.runselector.cache.FilterOrderCache;
+import org.jenkinsci.plugins.runselector.context.RunSelectorContext;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Evaluation costs and short-circuit rates of children of {@link AndRunFilter} or {@link OrRunFilter}
+ * in a selection, used to evaluate the cheapest and the most decisive child first.
+ * <p>
+ * A child "short-circuits" a candidate when the result of the combinator is decided by that child
+ * (rejected in {@link AndRunFilter}, or accepted in {@link OrRunFilter}).
+ * Evaluating children in ascending order of (cost per candidate) / (short-circuit rate),
+ * that is (total time) / (short-circuited candidates), minimizes the expected cost.
+ * Reordering doesn't change results as filters don't have side effects.
+ */
+final class ChildFilterStatistics {
+    /**
+     * the number of short-circuited candidates assumed for children not short-circuiting any candidates yet.
+     */
+    private static final double MIN_SHORT_CIRCUITS = 0.5;
+
+    private final long[] nanos;
+    private final long[] shortCircuits;
+    private final boolean[] evaluated;
+    /**
+     * the key in {@link FilterOrderCache}. {@code null} not to save the order.
+     */
+    @CheckForNull
+    private final String key;
+    private int[] order;
+
+    private ChildFilterStatistics(int size, @CheckForNull String key, int[] order) {
+        this.nanos = new long[size];
+        this.shortCircuits = new long[size];
+        this.evaluated = new boolean[size];
+        this.key = key;
+        this.order = order;
+    }
+
+    /**
+     * @param owner   the combinator
+     * @param key     the key of {@code owner} in {@link FilterOrderCache}. {@code null} not to save the order.
+     * @param size    the number of children of {@code owner}
+     * @param context the current selecting context
+     * @return statistics for {@code owner} in the selection
+     */
+    @Nonnull
+    static ChildFilterStatistics of(@Nonnull RunFilter owner, @CheckForNull String key, int size, @Nonnull RunSelectorContext context) {
+        ChildFilterStatistics stats = context.getPreparedState(owner, ChildFilterStatistics.class);
+        if (stats == null || stats.order.length != size) {
+            int[] order = (key != null) ? FilterOrderCache.get().getOrder(key, size) : null;
+            if (order == null) {
+                order = new int[size];
+                for (int i = 0; i < size; ++i) {
+                    order[i] = i;
+                }
+            }
+            stats = new ChildFilterStatistics(size, key, order);
+            context.setPreparedState(owner, stats);
+        }
+        return stats;
+    }
+
+    /**
+     * @return indices of children in the order to evaluate
+     */
+    @Nonnull
+    int[] getOrder() {
+        return order;
+    }
+
+    /**
+     * @param child         the index of the child
+     * @param nanos         the time the child took
+     * @param shortCircuits the number of candidates short-circuited by the child
+     */
+    void record(int child, long nanos, int shortCircuits) {
+        this.nanos[child] += nanos;
+        this.shortCircuits[child] += shortCircuits;
+        this.evaluated[child] = true;
+    }
+
+    /**
+     * Sorts children with recorded statistics, and saves the order to {@link FilterOrderCache} if changed.
+     * Children not evaluated yet keep their relative positions after evaluated ones.
+     */
+    void reorder() {
+        Integer[] sorted = new Integer[order.length];
+        for (int i = 0; i < order.length; ++i) {
+            sorted[i] = order[i];
+        }
+        // stable sort: ties keep the current order.
+        Arrays.sort(sorted, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer o1, Integer o2) {
+                if (evaluated[o1] != evaluated[o2]) {
+                    return evaluated[o1] ? -1 : 1;
+                }
+                if (!evaluated[o1]) {
+                    return 0;
+                }
+                return Double.compare(rank(o1), rank(o2));
+            }
+        });
+        int[] newOrder = new int[sorted.length];
+        for (int i = 0; i < sorted.length; ++i) {
+            newOrder[i] = sorted[i];
+        }
+        if (!Arrays.equals(order, newOrder)) {
+            order = newOrder;
+            if (key != null) {
+                FilterOrderCache.get().putOrder(key, newOrder);
+            }
+        }
+    }
+
+    private double rank(int child) {
+        return nanos[child] / Math.max(shortCircuits[child], MIN_SHORT_CIRCUITS);
+    }
+}
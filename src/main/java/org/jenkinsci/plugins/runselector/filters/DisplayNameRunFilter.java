@@ -2,14 +2,19 @@ package org.jenkinsci.plugins.runselector.filters;
 
 import hudson.Extension;
 import hudson.Util;
+import hudson.model.Job;
 import hudson.model.Run;
 import org.jenkinsci.Symbol;
 import org.jenkinsci.plugins.runselector.RunFilter;
 import org.jenkinsci.plugins.runselector.RunFilterDescriptor;
 import org.jenkinsci.plugins.runselector.context.RunSelectorContext;
+import org.jenkinsci.plugins.runselector.index.RunIndex;
 import org.kohsuke.stapler.DataBoundConstructor;
 
+import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
+import java.util.BitSet;
+import java.util.List;
 
 /**
  * Filters the build based on its display name.
@@ -33,13 +38,57 @@ public class DisplayNameRunFilter extends RunFilter {
 
     @Override
     public boolean isSelectable(@Nonnull Run<?, ?> candidate, @Nonnull RunSelectorContext context) {
-        String resolvedDisplayName = context.getEnvVars().expand(runDisplayName);
+        String resolvedDisplayName = resolveDisplayName(context);
+        return resolvedDisplayName != null && resolvedDisplayName.equals(candidate.getDisplayName());
+    }
+
+    @Override
+    public BitSet filterBatch(@Nonnull List<? extends Run<?, ?>> candidates, @Nonnull RunSelectorContext context) {
+        BitSet selectable = new BitSet(candidates.size());
+        String resolvedDisplayName = resolveDisplayName(context);
+        if (resolvedDisplayName == null) {
+            return selectable;
+        }
+        for (int i = 0; i < candidates.size(); ++i) {
+            if (resolvedDisplayName.equals(candidates.get(i).getDisplayName())) {
+                selectable.set(i);
+            }
+        }
+        return selectable;
+    }
+
+    /**
+     * Looks up builds with {@link RunIndex} not to load other builds.
+     *
+     * {@inheritDoc}
+     */
+    @Override
+    @CheckForNull
+    public BitSet getSelectableNumbers(@Nonnull Job<?, ?> job, @Nonnull RunSelectorContext context) {
+        String resolvedDisplayName = resolveDisplayName(context);
+        if (resolvedDisplayName == null) {
+            // accepts nothing.
+            return new BitSet();
+        }
+        return RunIndex.get().getBuildNumbersByDisplayName(job, resolvedDisplayName);
+    }
+
+    @CheckForNull
+    private String resolveDisplayName(@Nonnull RunSelectorContext context) {
+        String resolvedDisplayName = context.expand(runDisplayName);
         if (resolvedDisplayName.startsWith("$")) {
             context.logDebug("Unresolved variable {0}", resolvedDisplayName);
-            return false;
+            return null;
         }
+        return resolvedDisplayName;
+    }
 
-        return resolvedDisplayName.equals(candidate.getDisplayName());
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isCacheable() {
+        return true;
     }
 
     @Symbol("displayName")
@@ -38,12 +38,15 @@ import org.apache.commons.lang.StringUtils;
 import org.jenkinsci.plugins.runselector.RunFilter;
 import org.jenkinsci.plugins.runselector.RunFilterDescriptor;
 import org.jenkinsci.plugins.runselector.context.RunSelectorContext;
+import org.jenkinsci.plugins.runselector.index.RunIndex;
+import org.jenkinsci.plugins.runselector.index.UpstreamIndex;
 import org.kohsuke.stapler.AncestorInPath;
 import org.kohsuke.stapler.DataBoundConstructor;
 import org.kohsuke.stapler.QueryParameter;
 
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
+import java.util.BitSet;
 
 /**
  * Select a build which is a downstream of a specified build.
@@ -97,22 +100,132 @@ public class DownstreamRunFilter extends RunFilter {
             return false;
         }
         
+        Prepared prepared = prepare(context);
+        AbstractProject<?,?> upstreamJob = prepared.upstreamJob;
+        if (upstreamJob == null) {
+            // already reported in prepare.
+            return false;
+        }
+        
+        AbstractBuild<?,?> upstreamBuild = ((AbstractBuild<?,?>)run).getUpstreamRelationshipBuild(upstreamJob);
+        if (upstreamBuild == null || !upstreamBuild.hasPermission(Item.READ)) {
+            if (context.isVerbose()) {
+                context.logDebug(
+                        "{0}: No upstream build of project '{1}' is found for build {2}.",
+                        getDisplayName(),
+                        upstreamJob.getFullName(),
+                        run.getFullDisplayName()
+                );
+            }
+            return false;
+        }
+        
+        if (prepared.number == upstreamBuild.getNumber()) {
+            // build number matches.
+            return true;
+        }
+        
+        String buildNumber = prepared.buildNumber;
+        if (buildNumber.equals(upstreamBuild.getId()) || buildNumber.equals(upstreamBuild.getDisplayName())) {
+            // id or display name matches.
+            return true;
+        }
+        
+        if (context.isVerbose()) {
+            context.logDebug(
+                    "{0}: build {1} doesn't match {2}-{3}.",
+                    getDisplayName(),
+                    run.getParent().getFullName(),
+                    run.getDisplayName(),
+                    buildNumber
+            );
+        }
+        return false;
+    }
+    
+    /**
+     * Looks up downstream builds with {@link UpstreamIndex}
+     * not to test each candidate with fingerprint records.
+     * Cannot narrow builds down when the configuration cannot be resolved,
+     * so that {@link #isSelectable(Run, RunSelectorContext)} reports the problem.
+     *
+     * {@inheritDoc}
+     */
+    @Override
+    @CheckForNull
+    public BitSet getSelectableNumbers(@Nonnull Job<?, ?> job, @Nonnull RunSelectorContext context) {
+        if (!(job instanceof AbstractProject<?,?>)) {
+            return null;
+        }
+        Prepared prepared = prepare(context);
+        AbstractProject<?,?> upstreamJob = prepared.upstreamJob;
+        if (upstreamJob == null) {
+            return null;
+        }
+        String buildNumber = prepared.buildNumber;
+        
+        // upstream builds matching the number, the id or the display name.
+        BitSet upstreamNumbers = RunIndex.get().getBuildNumbersByDisplayName(upstreamJob, buildNumber);
+        if (upstreamNumbers == null) {
+            return null;
+        }
+        if (prepared.number > 0) {
+            upstreamNumbers.set(prepared.number);
+        }
+        Run<?,?> upstreamBuild = upstreamJob.getBuild(buildNumber);
+        if (upstreamBuild != null) {
+            upstreamNumbers.set(upstreamBuild.getNumber());
+        }
+        
+        BitSet numbers = UpstreamIndex.get().getDownstreamBuildNumbers(job, upstreamJob.getFullName(), upstreamNumbers);
+        if (numbers != null && context.isVerbose()) {
+            context.logDebug(
+                    "{0}: {1} candidates of downstream builds of {2}-{3} in the index.",
+                    getDisplayName(),
+                    numbers.cardinality(),
+                    upstreamJob.getFullName(),
+                    buildNumber
+            );
+        }
+        return numbers;
+    }
+    
+    /**
+     * Resolves the upstream project and the build number once for a selection,
+     * as they don't depend on candidates.
+     * Problems are reported only when resolving.
+     *
+     * @param context the context of current runselector execution.
+     * @return the resolved configuration
+     */
+    @Nonnull
+    private Prepared prepare(@Nonnull RunSelectorContext context) {
+        Prepared prepared = context.getPreparedState(this, Prepared.class);
+        if (prepared == null) {
+            prepared = resolve(context);
+            context.setPreparedState(this, prepared);
+        }
+        return prepared;
+    }
+    
+    @Nonnull
+    private Prepared resolve(@Nonnull RunSelectorContext context) {
         Job<?,?> copier = context.getBuild().getParent();
         if (copier instanceof AbstractProject<?,?>) {
             copier = ((AbstractProject<?,?>)copier).getRootProject();
         }
         
-        String projectName = context.getEnvVars().expand(getUpstreamProjectName());
-        String buildNumber = context.getEnvVars().expand(getUpstreamBuildNumber());
+        String projectName = context.expand(getUpstreamProjectName());
+        String buildNumber = context.expand(getUpstreamBuildNumber());
         
         if (StringUtils.isBlank(projectName)) {
             context.logInfo("{0}: Upstream project name gets empty.", getDisplayName());
-            return false;
+            return new Prepared(null, buildNumber);
         }
         
         if (StringUtils.isBlank(buildNumber)) {
             context.logInfo("{0}: Upstream build number gets empty.", getDisplayName());
-            return false;
+            return new Prepared(null, buildNumber);
         }
         
         Job<?,?> upstreamJob = context.getJenkins().getItem(
@@ -122,7 +235,7 @@ public class DownstreamRunFilter extends RunFilter {
         );
         if (upstreamJob == null || !upstreamJob.hasPermission(Item.READ)) {
             context.logInfo("{0}: Upstream project '{1}' is not found.", getDisplayName(), projectName);
-            return false;
+            return new Prepared(null, buildNumber);
         }
         if (!(upstreamJob instanceof AbstractProject)) {
             // As this feature depends on `AbstractBuild#getUpstreamRelationshipBuild(AbstractProject<?,?>)`
@@ -131,43 +244,43 @@ public class DownstreamRunFilter extends RunFilter {
                 upstreamJob.getFullName(),
                 upstreamJob.getClass().getName()
             );
-            return false;
+            return new Prepared(null, buildNumber);
         }
+        return new Prepared((AbstractProject<?,?>)upstreamJob, buildNumber);
+    }
+    
+    /**
+     * The configuration resolved for a selection.
+     */
+    private static final class Prepared {
+        /**
+         * the upstream project, or {@code null} if not resolved.
+         */
+        @CheckForNull
+        private final AbstractProject<?,?> upstreamJob;
         
-        AbstractBuild<?,?> upstreamBuild = ((AbstractBuild<?,?>)run).getUpstreamRelationshipBuild((AbstractProject<?, ?>)upstreamJob);
-        if (upstreamBuild == null || !upstreamBuild.hasPermission(Item.READ)) {
-            context.logDebug(
-                    "{0}: No upstream build of project '{1}' is found for build {2}.",
-                    getDisplayName(),
-                    upstreamJob.getFullName(),
-                    run.getFullDisplayName()
-            );
-            return false;
-        }
+        /**
+         * the expanded build number, id or display name.
+         */
+        @Nonnull
+        private final String buildNumber;
         
-        try {
-            int number = Integer.parseInt(buildNumber);
-            if (number == upstreamBuild.getNumber()) {
-                // build number matches.
-                return true;
-            }
-        } catch (NumberFormatException e) {
-            // Ignore. Nothing to do.
-        }
+        /**
+         * {@link #buildNumber} parsed as a number, or {@code -1} if it's not a number.
+         */
+        private final int number;
         
-        if (buildNumber.equals(upstreamBuild.getId()) || buildNumber.equals(upstreamBuild.getDisplayName())) {
-            // id or display name matches.
-            return true;
+        private Prepared(@CheckForNull AbstractProject<?,?> upstreamJob, @Nonnull String buildNumber) {
+            this.upstreamJob = upstreamJob;
+            this.buildNumber = buildNumber;
+            int parsed = -1;
+            try {
+                parsed = Integer.parseInt(buildNumber);
+            } catch (NumberFormatException e) {
+                // Ignore. Nothing to do.
+            }
+            this.number = parsed;
         }
-        
-        context.logDebug(
-                "{0}: build {1} doesn't match {2}-{3}.",
-                getDisplayName(),
-                run.getParent().getFullName(),
-                run.getDisplayName(),
-                buildNumber
-        );
-        return false;
     }
     
     /**
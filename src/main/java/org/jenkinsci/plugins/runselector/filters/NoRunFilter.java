@@ -48,6 +48,14 @@ public class NoRunFilter extends RunFilter {
         return DESCRIPTOR;
     }
     
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isCacheable() {
+        return true;
+    }
+    
     /**
      *
      */
@@ -33,6 +33,8 @@ import org.jenkinsci.plugins.runselector.context.RunSelectorContext;
 import org.kohsuke.stapler.DataBoundConstructor;
 
 import javax.annotation.Nonnull;
+import java.util.BitSet;
+import java.util.List;
 
 /**
  * Accepts a build when the underlying filters doesn't accept it.
@@ -40,6 +42,11 @@ import javax.annotation.Nonnull;
 public class NotRunFilter extends RunFilter {
     @Nonnull
     private final RunFilter runFilter;
+
+    /**
+     * the result of {@link #simplify()}
+     */
+    private transient volatile RunFilter simplified;
     
     /**
      * @param runFilter run filter to invert
@@ -57,22 +64,78 @@ public class NotRunFilter extends RunFilter {
         return runFilter;
     }
     
+    /**
+     * Removes double negations.
+     *
+     * {@inheritDoc}
+     */
+    @Override
+    @Nonnull
+    public RunFilter simplify() {
+        RunFilter result = simplified;
+        if (result == null) {
+            RunFilter child = getRunFilter().simplify();
+            if (getClass() != NotRunFilter.class) {
+                result = this;
+            } else if (child.getClass() == NotRunFilter.class) {
+                result = ((NotRunFilter)child).getRunFilter();
+            } else if (child != getRunFilter()) {
+                result = new NotRunFilter(child);
+            } else {
+                result = this;
+            }
+            simplified = result;
+        }
+        return result;
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public boolean isSelectable(Run<?, ?> candidate, RunSelectorContext context) {
         boolean result = getRunFilter().isSelectable(candidate, context);
-        context.logDebug(
-                "{0}: filters result by {1} is reverted: {2} -> {3}",
-                candidate.getFullDisplayName(),
-                getRunFilter().getDisplayName(),
-                result,
-                !result
-        );
+        if (context.isVerbose()) {
+            context.logDebug(
+                    "{0}: filters result by {1} is reverted: {2} -> {3}",
+                    candidate.getFullDisplayName(),
+                    getRunFilter().getDisplayName(),
+                    result,
+                    !result
+            );
+        }
         return !result;
     }
     
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public BitSet filterBatch(List<? extends Run<?, ?>> candidates, RunSelectorContext context) {
+        BitSet result = filterAll(getRunFilter(), candidates, context);
+        if (context.isVerbose()) {
+            for (int i = 0; i < candidates.size(); ++i) {
+                context.logDebug(
+                        "{0}: filters result by {1} is reverted: {2} -> {3}",
+                        candidates.get(i).getFullDisplayName(),
+                        getRunFilter().getDisplayName(),
+                        result.get(i),
+                        !result.get(i)
+                );
+            }
+        }
+        result.flip(0, candidates.size());
+        return result;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isCacheable() {
+        return getRunFilter().isCacheable();
+    }
+    
     /**
      * the descriptor for {@link NotRunFilter}
      */
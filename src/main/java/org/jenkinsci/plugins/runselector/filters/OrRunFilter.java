@@ -25,15 +25,22 @@
 package org.jenkinsci.plugins.runselector.filters;
 
 import hudson.Extension;
+import hudson.Util;
+import hudson.model.Job;
 import hudson.model.Run;
 import org.jenkinsci.Symbol;
 import org.jenkinsci.plugins.runselector.RunFilter;
 import org.jenkinsci.plugins.runselector.RunFilterDescriptor;
+import org.jenkinsci.plugins.runselector.cache.FilterOrderCache;
 import org.jenkinsci.plugins.runselector.context.RunSelectorContext;
 import org.kohsuke.stapler.DataBoundConstructor;
 
+import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -42,13 +49,25 @@ import java.util.List;
 public class OrRunFilter extends RunFilter {
     @Nonnull
     private final List<RunFilter> runFilterList;
+
+    /**
+     * the result of {@link #simplify()}
+     */
+    private transient volatile RunFilter simplified;
+
+    /**
+     * the key in {@link FilterOrderCache}, computed once as it serializes the whole filter.
+     * Empty if the filter cannot be serialized.
+     */
+    private transient volatile String orderKey;
     
     /**
      * @param runFilterList run filter to disjunct
      */
     @DataBoundConstructor
     public OrRunFilter(@Nonnull List<RunFilter> runFilterList) {
-        this.runFilterList = runFilterList;
+        // copied not to be modified, as the simplified filter is memoized.
+        this.runFilterList = new ArrayList<RunFilter>(runFilterList);
     }
     
     /**
@@ -61,13 +80,40 @@ public class OrRunFilter extends RunFilter {
     }
     
     /**
-     * @return run filter to disjunct
+     * @return run filter to disjunct. Unmodifiable.
      */
     @Nonnull
     public List<RunFilter> getRunFilterList() {
-        return runFilterList;
+        return Collections.unmodifiableList(runFilterList);
     }
     
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Nonnull
+    public RunFilter simplify() {
+        RunFilter result = simplified;
+        if (result == null) {
+            result = RunFilterSimplifier.simplify(this, getRunFilterList(), false);
+            simplified = result;
+        }
+        return result;
+    }
+
+    /**
+     * @return the key in {@link FilterOrderCache}. {@code null} if the filter cannot be serialized.
+     */
+    @CheckForNull
+    private String getOrderKey() {
+        String key = orderKey;
+        if (key == null) {
+            key = Util.fixNull(FilterOrderCache.get().getKey(this));
+            orderKey = key;
+        }
+        return Util.fixEmpty(key);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -75,18 +121,94 @@ public class OrRunFilter extends RunFilter {
     public boolean isSelectable(Run<?, ?> candidate, RunSelectorContext context) {
         for (RunFilter filter: getRunFilterList()) {
             if (filter.isSelectable(candidate, context)) {
-                context.logDebug(
-                        "{0}: accepted by the filters {1} in {2}",
-                        candidate.getFullDisplayName(),
-                        filter.getDisplayName(),
-                        getDisplayName()
-                );
+                if (context.isVerbose()) {
+                    context.logDebug(
+                            "{0}: accepted by the filters {1} in {2}",
+                            candidate.getFullDisplayName(),
+                            filter.getDisplayName(),
+                            getDisplayName()
+                    );
+                }
                 return true;
             }
         }
         return false;
     }
     
+    /**
+     * Passes to each filter only candidates declined by preceding filters.
+     * Filters are evaluated in the order learned with {@link ChildFilterStatistics},
+     * the cheapest and most often accepting one first.
+     * 
+     * {@inheritDoc}
+     */
+    @Override
+    public BitSet filterBatch(List<? extends Run<?, ?>> candidates, RunSelectorContext context) {
+        List<RunFilter> filters = getRunFilterList();
+        ChildFilterStatistics stats = ChildFilterStatistics.of(this, getOrderKey(), filters.size(), context);
+        BitSet selectable = new BitSet(candidates.size());
+        BitSet remaining = new BitSet(candidates.size());
+        remaining.set(0, candidates.size());
+        for (int index : stats.getOrder()) {
+            if (remaining.isEmpty()) {
+                break;
+            }
+            RunFilter filter = filters.get(index);
+            long started = System.nanoTime();
+            BitSet accepted = filterSubset(filter, candidates, remaining, context);
+            stats.record(index, System.nanoTime() - started, accepted.cardinality());
+            if (context.isVerbose()) {
+                for (int i = accepted.nextSetBit(0); i >= 0; i = accepted.nextSetBit(i + 1)) {
+                    context.logDebug(
+                            "{0}: accepted by the filters {1} in {2}",
+                            candidates.get(i).getFullDisplayName(),
+                            filter.getDisplayName(),
+                            getDisplayName()
+                    );
+                }
+            }
+            selectable.or(accepted);
+            remaining.andNot(accepted);
+        }
+        stats.reorder();
+        return selectable;
+    }
+    
+    /**
+     * Unites builds of all filters.
+     * Cannot narrow builds down when any of filters cannot.
+     *
+     * {@inheritDoc}
+     */
+    @Override
+    @CheckForNull
+    public BitSet getSelectableNumbers(@Nonnull Job<?, ?> job, @Nonnull RunSelectorContext context) {
+        BitSet numbers = new BitSet();
+        for (RunFilter filter : getRunFilterList()) {
+            BitSet filterNumbers = filter.getSelectableNumbers(job, context);
+            if (filterNumbers == null) {
+                return null;
+            }
+            numbers.or(filterNumbers);
+        }
+        return numbers;
+    }
+    
+    /**
+     * Cacheable when all filters are cacheable.
+     *
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isCacheable() {
+        for (RunFilter filter : getRunFilterList()) {
+            if (!filter.isCacheable()) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
     /**
      * the descriptor for {@link OrRunFilter}
      */
@@ -34,11 +34,15 @@ import org.apache.commons.lang.StringUtils;
 import org.jenkinsci.Symbol;
 import org.jenkinsci.plugins.runselector.RunFilter;
 import org.jenkinsci.plugins.runselector.RunFilterDescriptor;
+import org.jenkinsci.plugins.runselector.cache.XmlObjectCache;
+import org.jenkinsci.plugins.runselector.codec.CompactCodec;
 import org.jenkinsci.plugins.runselector.context.RunSelectorContext;
 import org.kohsuke.stapler.DataBoundConstructor;
 
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
+import java.util.BitSet;
+import java.util.List;
 import java.util.logging.Logger;
 
 /**
@@ -72,17 +76,45 @@ public class ParameterizedRunFilter extends RunFilter {
      */
     @Override
     public boolean isSelectable(Run<?, ?> candidate, RunSelectorContext context) {
-        String xml = context.getEnvVars().expand(getParameter());
+        RunFilter filter = resolveFilter(context);
+        if (filter == null) {
+            return true;
+        }
+        return filter.isSelectable(candidate, context);
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public BitSet filterBatch(List<? extends Run<?, ?>> candidates, RunSelectorContext context) {
+        RunFilter filter = resolveFilter(context);
+        if (filter == null) {
+            BitSet selectable = new BitSet(candidates.size());
+            selectable.set(0, candidates.size());
+            return selectable;
+        }
+        return filterAll(filter, candidates, context);
+    }
+    
+    @CheckForNull
+    private RunFilter resolveFilter(RunSelectorContext context) {
+        String xml = context.expand(getParameter());
         context.logDebug("{0}: Expanded run filter: {1}", getDisplayName(), xml);
         RunFilter filter = getFilterFromXml(xml);
         if (filter == null) {
             context.logDebug("{0}: No filters is specified", getDisplayName());
-            return true;
+            return null;
         }
-        return filter.isSelectable(candidate, context);
+        // cached filters are shared, and memorize simplified ones.
+        return filter.simplify();
     }
     
     /**
+     * Also accepts values encoded with {@link CompactCodec}.
+     * The returned filter is cached and shared among callers,
+     * and must not be modified.
+     * 
      * @param xml XML expression of the filters
      * @return filters
      */
@@ -91,7 +123,7 @@ public class ParameterizedRunFilter extends RunFilter {
         if (StringUtils.isBlank(xml)) {
             return null;
         }
-        return (RunFilter)XSTREAM.fromXML(xml);
+        return XmlObjectCache.get().fromXml(XSTREAM, xml, RunFilter.class);
     }
     
     /**
@@ -105,6 +137,24 @@ public class ParameterizedRunFilter extends RunFilter {
         }
         return XSTREAM.toXML(filter).replaceAll("[\n\r]+", "");
     }
+
+    /**
+     * Encodes filters with {@link CompactCodec}, or XML for filters it doesn't support.
+     *
+     * @param filter filters
+     * @return the encoded filters
+     */
+    @CheckForNull
+    public static String encode(@CheckForNull RunFilter filter) {
+        if (filter == null) {
+            return null;
+        }
+        String value = CompactCodec.get().encode(filter);
+        if (value != null) {
+            return value;
+        }
+        return encodeToXml(filter);
+    }
     
     
     /**
@@ -115,6 +165,7 @@ public class ParameterizedRunFilter extends RunFilter {
         for (RunFilterDescriptor d : RunFilter.all()) {
             XSTREAM.alias(d.clazz.getSimpleName(), d.clazz);
         }
+        XmlObjectCache.get().clear();
     }
     
     /**
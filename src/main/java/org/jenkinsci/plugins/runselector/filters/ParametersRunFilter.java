@@ -37,8 +37,11 @@ import org.jenkinsci.plugins.runselector.RunFilterDescriptor;
 import org.jenkinsci.plugins.runselector.context.RunSelectorContext;
 import org.kohsuke.stapler.DataBoundConstructor;
 
+import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -67,13 +70,20 @@ public class ParametersRunFilter extends RunFilter {
         return paramsToMatch;
     }
 
+    @SuppressWarnings("unchecked")
     private List<StringParameterValue> getFilterParameters(@Nonnull RunSelectorContext context) {
+        List<StringParameterValue> filters = context.getPreparedState(this, List.class);
+        if (filters != null) {
+            return filters;
+        }
         // Initialize.. parse out the given parameters/values.
-        List<StringParameterValue> filters = new ArrayList<StringParameterValue>(5);
-        Matcher m = PARAMVAL_PATTERN.matcher(context.getEnvVars().expand(getParamsToMatch()));
+        filters = new ArrayList<StringParameterValue>(5);
+        Matcher m = PARAMVAL_PATTERN.matcher(context.expand(getParamsToMatch()));
         while (m.find()) {
             filters.add(new StringParameterValue(m.group(1), m.group(2)));
         }
+        filters = Collections.unmodifiableList(filters);
+        context.setPreparedState(this, filters);
         return filters;
     }
     /**
@@ -81,11 +91,101 @@ public class ParametersRunFilter extends RunFilter {
      */
     @Override
     public boolean isSelectable(@Nonnull Run<?,?> run, @Nonnull RunSelectorContext context) {
+        return isSelectable(run, getFilterParameters(context), context);
+    }
+    
+    /**
+     * Parses the parameters to match only once for all candidates.
+     * 
+     * {@inheritDoc}
+     */
+    @Override
+    public BitSet filterBatch(@Nonnull List<? extends Run<?, ?>> candidates, @Nonnull RunSelectorContext context) {
+        List<StringParameterValue> filters = getFilterParameters(context);
+        BitSet selectable = new BitSet(candidates.size());
+        for (int i = 0; i < candidates.size(); ++i) {
+            if (context.isBudgetExceeded()) {
+                // the caller fails with RunSelectorContext#checkBudget.
+                break;
+            }
+            if (isSelectable(candidates.get(i), filters, context)) {
+                selectable.set(i);
+            }
+        }
+        return selectable;
+    }
+    
+    private boolean isSelectable(
+            @Nonnull Run<?,?> run,
+            @Nonnull List<StringParameterValue> filters,
+            @Nonnull RunSelectorContext context
+    ) {
+        EnvVars otherEnv = getParametersEnvironment(run, filters);
+        if (otherEnv == null) {
+            otherEnv = getFullEnvironment(run);
+            if (otherEnv == null) {
+                return false;
+            }
+        }
+        for (StringParameterValue spv : filters) {
+            if (!spv.value.equals(otherEnv.get(spv.getName()))) {
+                if (context.isVerbose()) {
+                    context.logDebug(
+                            "{0}: {1} is declined",
+                            getDisplayName(),
+                            run.getDisplayName()
+                    );
+                }
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Builds variables only from {@link ParametersAction}s of the build.
+     * This is much faster than {@link Run#getEnvironment(TaskListener)},
+     * which runs all {@link hudson.model.EnvironmentContributor}s.
+     * Parameters override other environment variables in {@link Run#getEnvironment(TaskListener)}
+     * (see {@link #getFullEnvironment(Run)}), so the values are the same.
+     * 
+     * @param run the build to retrieve parameters from
+     * @param filters parameters to match
+     * @return variables for build parameters.
+     *     {@code null} if some of {@code filters} isn't a build parameter of {@code run}.
+     */
+    @CheckForNull
+    private static EnvVars getParametersEnvironment(
+            @Nonnull Run<?,?> run,
+            @Nonnull List<StringParameterValue> filters
+    ) {
+        List<ParametersAction> actions = run.getActions(ParametersAction.class);
+        EnvVars env = new EnvVars();
+        for (StringParameterValue spv : filters) {
+            ParameterValue pv = null;
+            for (ParametersAction pa : actions) {
+                // the last action wins, as in Run#getEnvironment(TaskListener).
+                ParameterValue value = pa.getParameter(spv.getName());
+                if (value != null) {
+                    pv = value;
+                }
+            }
+            if (pv == null) {
+                // may be provided by other than build parameters.
+                return null;
+            }
+            pv.buildEnvironment(run, env);
+        }
+        return env;
+    }
+    
+    @CheckForNull
+    private static EnvVars getFullEnvironment(@Nonnull Run<?,?> run) {
         EnvVars otherEnv;
         try {
             otherEnv = run.getEnvironment(TaskListener.NULL);
         } catch (Exception ex) {
-            return false;
+            return null;
         }
         if(!(run instanceof AbstractBuild)) {
             // Abstract#getEnvironment(TaskListener) put build parameters to
@@ -103,18 +203,7 @@ public class ParametersRunFilter extends RunFilter {
                 }
             }
         }
-        List<StringParameterValue> filters = getFilterParameters(context);
-        for (StringParameterValue spv : filters) {
-            if (!spv.value.equals(otherEnv.get(spv.getName()))) {
-                context.logDebug(
-                        "{0}: {1} is declined",
-                        getDisplayName(),
-                        run.getDisplayName()
-                );
-                return false;
-            }
-        }
-        return true;
+        return otherEnv;
     }
     
     @Override
@@ -126,6 +215,14 @@ public class ParametersRunFilter extends RunFilter {
         );
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isCacheable() {
+        return true;
+    }
+
     @Symbol("parameters")
     @Extension
     public static class DescriptorImpl extends RunFilterDescriptor {
@@ -71,7 +71,7 @@ public class RunFilterParameter extends SimpleParameterDefinition {
      */
     @Override
     public ParameterValue getDefaultParameterValue() {
-        return createValue(ParameterizedRunFilter.encodeToXml(getDefaultFilter()));
+        return createValue(ParameterizedRunFilter.encode(getDefaultFilter()));
     }
 
     /**
@@ -88,7 +88,7 @@ public class RunFilterParameter extends SimpleParameterDefinition {
     @Override
     public ParameterValue createValue(StaplerRequest req, JSONObject jo) {
         RunFilter filter = req.bindJSON(RunFilter.class, jo);
-        return createValue(ParameterizedRunFilter.encodeToXml(filter));
+        return createValue(ParameterizedRunFilter.encode(filter));
     }
     
     /**
@@ -0,0 +1,127 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 Alexandru Somai
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jenkinsci.plugins.runselector.filters;
+
+import org.jenkinsci.plugins.runselector.RunFilter;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Implements {@link RunFilter#simplify()} for {@link AndRunFilter} and {@link OrRunFilter}.
+ * <p>
+ * Children are simplified, then:
+ * <ul>
+ *     <li>nested combinators of the same kind are flattened,</li>
+ *     <li>children not affecting the result are removed (accept-all in "and", reject-all in "or"),</li>
+ *     <li>children deciding the result replace the combinator (reject-all in "and", accept-all in "or"),</li>
+ *     <li>the same filter instance appearing twice is evaluated only once,</li>
+ *     <li>combinators with a single child are replaced with the child.</li>
+ * </ul>
+ * Only {@link AndRunFilter} and {@link OrRunFilter} themselves are simplified, not their subclasses.
+ */
+final class RunFilterSimplifier {
+    private RunFilterSimplifier() {
+    }
+
+    /**
+     * @param filter a filter
+     * @return whether {@code filter} accepts all builds.
+     */
+    static boolean isAcceptAll(@Nonnull RunFilter filter) {
+        return filter.getClass() == NoRunFilter.class;
+    }
+
+    /**
+     * @param filter a filter
+     * @return whether {@code filter} rejects all builds.
+     */
+    static boolean isRejectAll(@Nonnull RunFilter filter) {
+        return filter.getClass() == NotRunFilter.class && isAcceptAll(((NotRunFilter)filter).getRunFilter());
+    }
+
+    /**
+     * @param combinator the combinator to simplify
+     * @param children   children of {@code combinator}
+     * @param conjunction {@code true} for {@link AndRunFilter}, {@code false} for {@link OrRunFilter}
+     * @return the simplified filter. {@code combinator} itself if nothing is simplified.
+     */
+    @Nonnull
+    static RunFilter simplify(@Nonnull RunFilter combinator, @Nonnull List<RunFilter> children, boolean conjunction) {
+        Class<? extends RunFilter> kind = conjunction ? AndRunFilter.class : OrRunFilter.class;
+        if (combinator.getClass() != kind) {
+            return combinator;
+        }
+
+        List<RunFilter> simplified = new ArrayList<RunFilter>(children.size());
+        Set<RunFilter> seen = Collections.newSetFromMap(new IdentityHashMap<RunFilter, Boolean>());
+        boolean changed = false;
+        for (RunFilter child : children) {
+            RunFilter simplifiedChild = child.simplify();
+            List<RunFilter> flattened;
+            if (simplifiedChild.getClass() == kind) {
+                flattened = conjunction
+                        ? ((AndRunFilter)simplifiedChild).getRunFilterList()
+                        : ((OrRunFilter)simplifiedChild).getRunFilterList();
+                changed = true;
+            } else {
+                flattened = Collections.singletonList(simplifiedChild);
+                changed |= (simplifiedChild != child);
+            }
+            for (RunFilter filter : flattened) {
+                if (conjunction ? isAcceptAll(filter) : isRejectAll(filter)) {
+                    // doesn't affect the result.
+                    changed = true;
+                    continue;
+                }
+                if (conjunction ? isRejectAll(filter) : isAcceptAll(filter)) {
+                    // decides the result.
+                    return filter;
+                }
+                if (!seen.add(filter)) {
+                    changed = true;
+                    continue;
+                }
+                simplified.add(filter);
+            }
+        }
+
+        if (simplified.isEmpty()) {
+            // "and" without children accepts all, "or" without children rejects all.
+            return conjunction ? new NoRunFilter() : new NotRunFilter(new NoRunFilter());
+        }
+        if (simplified.size() == 1) {
+            return simplified.get(0);
+        }
+        if (!changed) {
+            return combinator;
+        }
+        return conjunction ? new AndRunFilter(simplified) : new OrRunFilter(simplified);
+    }
+}
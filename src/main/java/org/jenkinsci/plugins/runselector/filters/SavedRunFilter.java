@@ -47,6 +47,14 @@ public class SavedRunFilter extends RunFilter {
         return run.isKeepLog();
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isCacheable() {
+        return true;
+    }
+
     /**
      * the descriptor for {@link SavedRunFilter}
      */
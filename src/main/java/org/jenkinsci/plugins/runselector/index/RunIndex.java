@@ -0,0 +1,487 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 Alexandru Somai
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jenkinsci.plugins.runselector.index;
+
+import hudson.Extension;
+import hudson.XmlFile;
+import hudson.model.Job;
+import hudson.model.Result;
+import hudson.model.Run;
+import hudson.model.Saveable;
+import hudson.model.TaskListener;
+import hudson.model.listeners.RunListener;
+import hudson.model.listeners.SaveableListener;
+import hudson.security.ACL;
+import jenkins.util.Timer;
+import org.acegisecurity.context.SecurityContext;
+import org.acegisecurity.context.SecurityContextHolder;
+import org.jenkinsci.plugins.runselector.filters.DisplayNameRunFilter;
+import org.jenkinsci.plugins.runselector.selectors.StatusRunSelector;
+import org.jenkinsci.plugins.runselector.selectors.StatusRunSelector.BuildStatus;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Index of build numbers by build results and by display names for each job.
+ * <p>
+ * Allows {@link StatusRunSelector} to jump to the previous build with the specific status
+ * without loading builds in between,
+ * and {@link DisplayNameRunFilter} to find builds with the display name without loading other builds.
+ * Jobs are indexed lazily: the index for a job is built in background
+ * when it's queried for the first time,
+ * and kept up to date with {@link ListenerImpl} and {@link SaveableListenerImpl} after that.
+ * Only the newest {@link #MAX_INDEXED_BUILDS} builds are loaded to build the index,
+ * and older builds are reported as candidates for callers to check.
+ * Events notified while the index is being built are applied after the builds are indexed,
+ * so that they win over the state read from builds.
+ * <p>
+ * Numbers returned from the index are only hints.
+ * Callers must check the actual build, as it can be deleted or updated concurrently.
+ */
+public final class RunIndex {
+    private static final Logger LOGGER = Logger.getLogger(RunIndex.class.getName());
+
+    /**
+     * Returned when the index for the job isn't built yet.
+     */
+    public static final int UNKNOWN = -1;
+
+    /**
+     * Returned when there's no matching build.
+     */
+    public static final int NONE = 0;
+
+    /**
+     * The maximum number of builds loaded to build the index for a job. {@code 0} for no limit.
+     */
+    private static final int MAX_INDEXED_BUILDS = Integer.getInteger(RunIndex.class.getName() + ".maxBuilds", 500);
+
+    private static final RunIndex INSTANCE = new RunIndex();
+
+    /**
+     * Indices for each job. Jobs are compared with the identity.
+     */
+    private final Map<Job<?, ?>, JobIndex> indices = new WeakHashMap<Job<?, ?>, JobIndex>();
+
+    /**
+     * @return the index for this Jenkins instance
+     */
+    @Nonnull
+    public static RunIndex get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Looks for the newest build older than {@code number}, which has the status
+     * or is still running (its result is not determined yet).
+     *
+     * @param job    the job to look for a build in
+     * @param number builds older than this are looked for
+     * @param status {@link BuildStatus#UNSTABLE} or {@link BuildStatus#SUCCESSFUL}
+     * @return the number of the build, {@link #NONE} if no such build,
+     *     or {@link #UNKNOWN} if the job isn't indexed yet or builds older than {@code number} aren't indexed.
+     *     The number of the newest build not indexed can be returned
+     *     when no indexed build has the status.
+     * @throws IllegalArgumentException if {@code status} isn't supported
+     */
+    public int getPreviousBuildNumber(@Nonnull Job<?, ?> job, int number, @Nonnull BuildStatus status) {
+        JobIndex index = getReadyIndex(job);
+        if (index == null) {
+            return UNKNOWN;
+        }
+        return index.getPreviousBuildNumber(number, status);
+    }
+
+    /**
+     * Looks for builds with the display name.
+     * Builds without custom display names are considered to have the display name "#(build number)",
+     * as {@link Run#getDisplayName()} returns.
+     *
+     * @param job         the job to look for builds in
+     * @param displayName the display name
+     * @return numbers of builds with the display name
+     *     (may contain numbers of builds not existing or not indexed),
+     *     or {@code null} if the job isn't indexed yet.
+     */
+    @CheckForNull
+    public BitSet getBuildNumbersByDisplayName(@Nonnull Job<?, ?> job, @Nonnull String displayName) {
+        JobIndex index = getReadyIndex(job);
+        if (index == null) {
+            return null;
+        }
+        return index.getBuildNumbersByDisplayName(displayName);
+    }
+
+    /**
+     * Forgets a build known not to exist.
+     *
+     * @param job    the job of the build
+     * @param number the number of the build
+     */
+    public void remove(@Nonnull Job<?, ?> job, int number) {
+        JobIndex index = getIndex(job);
+        if (index != null) {
+            index.remove(number);
+        }
+    }
+
+    @CheckForNull
+    private JobIndex getIndex(@Nonnull Job<?, ?> job) {
+        synchronized (indices) {
+            return indices.get(job);
+        }
+    }
+
+    /**
+     * @param job the job
+     * @return the index if it's ready. Starts building the index if not started yet.
+     */
+    @CheckForNull
+    private JobIndex getReadyIndex(@Nonnull final Job<?, ?> job) {
+        final JobIndex index;
+        synchronized (indices) {
+            JobIndex existing = indices.get(job);
+            if (existing != null) {
+                return existing.isReady() ? existing : null;
+            }
+            index = new JobIndex();
+            indices.put(job, index);
+        }
+        Timer.get().submit(new Runnable() {
+            @Override
+            public void run() {
+                SecurityContext orig = ACL.impersonate(ACL.SYSTEM);
+                try {
+                    index.build(job);
+                } catch (RuntimeException e) {
+                    LOGGER.log(Level.WARNING, "Failed to index builds of " + job.getFullName(), e);
+                    synchronized (indices) {
+                        // retry next time.
+                        indices.remove(job);
+                    }
+                } finally {
+                    SecurityContextHolder.setContext(orig);
+                }
+            }
+        });
+        return null;
+    }
+
+    /**
+     * The index for a job.
+     */
+    private static class JobIndex {
+        private volatile boolean ready;
+
+        /**
+         * Events notified while building the index, applied after builds are indexed.
+         * {@code null} once the index is ready.
+         */
+        @CheckForNull
+        private List<Runnable> journal = new ArrayList<Runnable>();
+
+        /**
+         * The lowest build number indexed. Older builds are not indexed.
+         */
+        private int indexedFrom = 1;
+
+        /**
+         * Completed builds with {@link Result#UNSTABLE}.
+         */
+        private final BitSet unstable = new BitSet();
+
+        /**
+         * Completed builds with {@link Result#SUCCESS} or {@link Result#UNSTABLE}.
+         */
+        private final BitSet successful = new BitSet();
+
+        /**
+         * Builds not completed yet.
+         */
+        private final BitSet building = new BitSet();
+
+        /**
+         * Builds with custom display names, by display names.
+         */
+        private final Map<String, BitSet> displayNames = new HashMap<String, BitSet>();
+
+        /**
+         * Custom display names of builds, by build numbers.
+         */
+        private final Map<Integer, String> customDisplayNames = new HashMap<Integer, String>();
+
+        public boolean isReady() {
+            return ready;
+        }
+
+        public void build(@Nonnull Job<?, ?> job) {
+            long start = System.currentTimeMillis();
+            int count = 0;
+            int lowest = 1;
+            for (Run<?, ?> run = job.getLastBuild(); run != null; run = run.getPreviousBuild()) {
+                synchronized (this) {
+                    if (run.isBuilding()) {
+                        building.set(run.getNumber());
+                    } else {
+                        setResult(run.getNumber(), run.getResult());
+                    }
+                    setCustomDisplayName(run);
+                }
+                ++count;
+                if (MAX_INDEXED_BUILDS > 0 && count >= MAX_INDEXED_BUILDS) {
+                    lowest = run.getNumber();
+                    break;
+                }
+            }
+            synchronized (this) {
+                indexedFrom = lowest;
+                // events notified during indexing are newer than the states read from builds.
+                for (Runnable event : journal) {
+                    event.run();
+                }
+                journal = null;
+                ready = true;
+            }
+            LOGGER.log(
+                    Level.FINE,
+                    "Indexed {0} builds of {1} in {2} ms",
+                    new Object[]{count, job.getFullName(), System.currentTimeMillis() - start}
+            );
+        }
+
+        /**
+         * Applies an event now, or after builds are indexed if the index is being built.
+         *
+         * @param event the event to apply
+         */
+        private synchronized void apply(@Nonnull Runnable event) {
+            if (journal != null) {
+                journal.add(event);
+            } else {
+                event.run();
+            }
+        }
+
+        public void onStarted(final int number) {
+            apply(new Runnable() {
+                @Override
+                public void run() {
+                    building.set(number);
+                }
+            });
+        }
+
+        public void onCompleted(final int number, @CheckForNull final Result result) {
+            apply(new Runnable() {
+                @Override
+                public void run() {
+                    setResult(number, result);
+                }
+            });
+        }
+
+        public void onDisplayNameChanged(@Nonnull final Run<?, ?> run) {
+            apply(new Runnable() {
+                @Override
+                public void run() {
+                    setCustomDisplayName(run);
+                }
+            });
+        }
+
+        public void remove(final int number) {
+            apply(new Runnable() {
+                @Override
+                public void run() {
+                    building.clear(number);
+                    unstable.clear(number);
+                    successful.clear(number);
+                    setCustomDisplayName(number, null);
+                }
+            });
+        }
+
+        private void setResult(int number, @CheckForNull Result result) {
+            building.clear(number);
+            unstable.set(number, Result.UNSTABLE.equals(result));
+            successful.set(number, result != null && result.isBetterOrEqualTo(Result.UNSTABLE));
+        }
+
+        private void setCustomDisplayName(@Nonnull Run<?, ?> run) {
+            setCustomDisplayName(run.getNumber(), run.hasCustomDisplayName() ? run.getDisplayName() : null);
+        }
+
+        private void setCustomDisplayName(int number, @CheckForNull String displayName) {
+            String old = (displayName != null)
+                    ? customDisplayNames.put(number, displayName)
+                    : customDisplayNames.remove(number);
+            if (old != null) {
+                BitSet numbers = displayNames.get(old);
+                if (numbers != null) {
+                    numbers.clear(number);
+                    if (numbers.isEmpty()) {
+                        displayNames.remove(old);
+                    }
+                }
+            }
+            if (displayName != null) {
+                BitSet numbers = displayNames.get(displayName);
+                if (numbers == null) {
+                    numbers = new BitSet();
+                    displayNames.put(displayName, numbers);
+                }
+                numbers.set(number);
+            }
+        }
+
+        @Nonnull
+        public synchronized BitSet getBuildNumbersByDisplayName(@Nonnull String displayName) {
+            BitSet numbers = displayNames.get(displayName);
+            BitSet result = (numbers != null) ? (BitSet)numbers.clone() : new BitSet();
+            // builds not indexed may have the display name.
+            result.set(1, indexedFrom);
+            if (displayName.startsWith("#")) {
+                // the default display name.
+                try {
+                    int number = Integer.parseInt(displayName.substring(1));
+                    if (number > 0 && !customDisplayNames.containsKey(number)
+                            && displayName.equals("#" + number)) {
+                        result.set(number);
+                    }
+                } catch (NumberFormatException e) {
+                    // not a default display name.
+                }
+            }
+            return result;
+        }
+
+        public synchronized int getPreviousBuildNumber(int number, @Nonnull BuildStatus status) {
+            BitSet matching;
+            switch (status) {
+                case UNSTABLE:
+                    matching = unstable;
+                    break;
+                case SUCCESSFUL:
+                    matching = successful;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Not supported: " + status);
+            }
+            if (number <= 1) {
+                return NONE;
+            }
+            if (number <= indexedFrom) {
+                return UNKNOWN;
+            }
+            int previous = Math.max(
+                    matching.previousSetBit(number - 1),
+                    building.previousSetBit(number - 1)
+            );
+            if (previous >= indexedFrom) {
+                return previous;
+            }
+            // the caller checks builds not indexed.
+            return (indexedFrom > 1) ? indexedFrom - 1 : NONE;
+        }
+    }
+
+    /**
+     * Keeps indices up to date.
+     */
+    @Extension
+    public static class ListenerImpl extends RunListener<Run<?, ?>> {
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onStarted(Run<?, ?> run, TaskListener listener) {
+            JobIndex index = get().getIndex(run.getParent());
+            if (index != null) {
+                index.onStarted(run.getNumber());
+                index.onDisplayNameChanged(run);
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onCompleted(Run<?, ?> run, @Nonnull TaskListener listener) {
+            JobIndex index = get().getIndex(run.getParent());
+            if (index != null) {
+                index.onCompleted(run.getNumber(), run.getResult());
+                index.onDisplayNameChanged(run);
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onFinalized(Run<?, ?> run) {
+            // the result might be updated after onCompleted.
+            onCompleted(run, TaskListener.NULL);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onDeleted(Run<?, ?> run) {
+            get().remove(run.getParent(), run.getNumber());
+        }
+    }
+
+    /**
+     * Keeps display names in indices up to date,
+     * as {@link Run#setDisplayName(String)} saves the build.
+     */
+    @Extension
+    public static class SaveableListenerImpl extends SaveableListener {
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onChange(Saveable o, XmlFile file) {
+            if (!(o instanceof Run)) {
+                return;
+            }
+            Run<?, ?> run = (Run<?, ?>)o;
+            JobIndex index = get().getIndex(run.getParent());
+            if (index != null) {
+                index.onDisplayNameChanged(run);
+            }
+        }
+    }
+}
@@ -0,0 +1,504 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 Alexandru Somai
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jenkinsci.plugins.runselector.index;
+
+import hudson.Extension;
+import hudson.model.AbstractBuild;
+import hudson.model.Cause;
+import hudson.model.Fingerprint;
+import hudson.model.Item;
+import hudson.model.Job;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.model.listeners.ItemListener;
+import hudson.model.listeners.RunListener;
+import hudson.security.ACL;
+import hudson.tasks.Fingerprinter.FingerprintAction;
+import jenkins.util.Timer;
+import org.acegisecurity.context.SecurityContext;
+import org.acegisecurity.context.SecurityContextHolder;
+import org.jenkinsci.plugins.runselector.filters.DownstreamRunFilter;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Index of downstream build numbers by upstream builds for each job.
+ * <p>
+ * Allows {@link DownstreamRunFilter} to find downstream builds of an upstream build
+ * without calling {@link AbstractBuild#getUpstreamRelationshipBuild(hudson.model.AbstractProject)}
+ * for each candidate, which loads fingerprint records.
+ * Upstream builds of a build are the originals of its fingerprints
+ * (the newest one for each upstream job, as {@link AbstractBuild#getUpstreamRelationship(hudson.model.AbstractProject)})
+ * and builds in its {@link Cause.UpstreamCause}s.
+ * Jobs are indexed lazily: the index for a job is built in background
+ * when it's queried for the first time,
+ * and kept up to date with {@link ListenerImpl} after that.
+ * Only the newest {@link #MAX_INDEXED_BUILDS} builds are loaded to build the index,
+ * and older builds are reported as candidates for callers to check.
+ * Events notified while the index is being built are applied after the builds are indexed.
+ * Builds still running are looked into when queried, as fingerprints can be recorded till they complete.
+ * <p>
+ * Not available when {@code hudson.upstreamCulprits} is set,
+ * as upstream relationships then change whenever upstream jobs use the fingerprints again.
+ * <p>
+ * Numbers returned from the index are only hints.
+ * Callers must check the actual build, as it can be deleted or updated concurrently.
+ */
+public final class UpstreamIndex {
+    private static final Logger LOGGER = Logger.getLogger(UpstreamIndex.class.getName());
+
+    /**
+     * Whether {@link AbstractBuild#getUpstreamRelationship(hudson.model.AbstractProject)}
+     * looks at all usages of fingerprints, not only the originals.
+     * Read once, as Jenkins does.
+     */
+    private static final boolean UPSTREAM_CULPRITS = Boolean.getBoolean("hudson.upstreamCulprits");
+
+    /**
+     * The maximum number of builds loaded to build the index for a job. {@code 0} for no limit.
+     */
+    private static final int MAX_INDEXED_BUILDS = Integer.getInteger(UpstreamIndex.class.getName() + ".maxBuilds", 500);
+
+    private static final UpstreamIndex INSTANCE = new UpstreamIndex();
+
+    /**
+     * Indices for each downstream job. Jobs are compared with the identity.
+     */
+    private final Map<Job<?, ?>, JobIndex> indices = new WeakHashMap<Job<?, ?>, JobIndex>();
+
+    /**
+     * @return the index for this Jenkins instance
+     */
+    @Nonnull
+    public static UpstreamIndex get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Looks for downstream builds of upstream builds.
+     * Builds still running are looked into with their fingerprints recorded so far.
+     *
+     * @param job             the downstream job to look for builds in
+     * @param upstreamJobName the full name of the upstream job
+     * @param upstreamNumbers numbers of upstream builds
+     * @return numbers of downstream builds (may contain numbers of builds not existing or not matching),
+     *     or {@code null} if the job isn't indexed yet or the index isn't available.
+     */
+    @CheckForNull
+    public BitSet getDownstreamBuildNumbers(
+            @Nonnull Job<?, ?> job,
+            @Nonnull String upstreamJobName,
+            @Nonnull BitSet upstreamNumbers
+    ) {
+        if (UPSTREAM_CULPRITS) {
+            return null;
+        }
+        JobIndex index = getReadyIndex(job);
+        if (index == null) {
+            return null;
+        }
+        BitSet result = index.getDownstreamBuildNumbers(upstreamJobName, upstreamNumbers);
+        BitSet building = index.getBuilding();
+        for (int i = building.nextSetBit(0); i >= 0; i = building.nextSetBit(i + 1)) {
+            Run<?, ?> run = job.getBuildByNumber(i);
+            if (run == null) {
+                continue;
+            }
+            BitSet numbers = run.isBuilding() ? getUpstreamBuilds(run).get(upstreamJobName) : null;
+            if (!run.isBuilding() || (numbers != null && numbers.intersects(upstreamNumbers))) {
+                // builds completed after getBuilding() are checked by the caller.
+                result.set(i);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Forgets a build known not to exist.
+     *
+     * @param job    the job of the build
+     * @param number the number of the build
+     */
+    public void remove(@Nonnull Job<?, ?> job, int number) {
+        JobIndex index = getIndex(job);
+        if (index != null) {
+            index.remove(number);
+        }
+    }
+
+    /**
+     * Forgets all indices.
+     * Used when jobs are renamed, as upstream jobs are recorded with their names.
+     */
+    public void clear() {
+        synchronized (indices) {
+            indices.clear();
+        }
+    }
+
+    @CheckForNull
+    private JobIndex getIndex(@Nonnull Job<?, ?> job) {
+        synchronized (indices) {
+            return indices.get(job);
+        }
+    }
+
+    /**
+     * @param job the job
+     * @return the index if it's ready. Starts building the index if not started yet.
+     */
+    @CheckForNull
+    private JobIndex getReadyIndex(@Nonnull final Job<?, ?> job) {
+        final JobIndex index;
+        synchronized (indices) {
+            JobIndex existing = indices.get(job);
+            if (existing != null) {
+                return existing.isReady() ? existing : null;
+            }
+            index = new JobIndex();
+            indices.put(job, index);
+        }
+        Timer.get().submit(new Runnable() {
+            @Override
+            public void run() {
+                SecurityContext orig = ACL.impersonate(ACL.SYSTEM);
+                try {
+                    index.build(job);
+                } catch (RuntimeException e) {
+                    LOGGER.log(Level.WARNING, "Failed to index upstream builds of " + job.getFullName(), e);
+                    synchronized (indices) {
+                        // retry next time.
+                        indices.remove(job);
+                    }
+                } finally {
+                    SecurityContextHolder.setContext(orig);
+                }
+            }
+        });
+        return null;
+    }
+
+    /**
+     * Collects upstream builds of a build.
+     *
+     * @param run the downstream build
+     * @return upstream build numbers by full names of upstream jobs
+     */
+    @Nonnull
+    private static Map<String, BitSet> getUpstreamBuilds(@Nonnull Run<?, ?> run) {
+        Map<String, BitSet> upstreams = new HashMap<String, BitSet>();
+        if (run instanceof AbstractBuild) {
+            FingerprintAction action = run.getAction(FingerprintAction.class);
+            if (action != null) {
+                // only the newest original in each job is the upstream build.
+                Map<String, Integer> newest = new HashMap<String, Integer>();
+                for (Fingerprint fingerprint : action.getFingerprints().values()) {
+                    Fingerprint.BuildPtr original = fingerprint.getOriginal();
+                    if (original == null) {
+                        continue;
+                    }
+                    Integer number = newest.get(original.getName());
+                    if (number == null || number < original.getNumber()) {
+                        newest.put(original.getName(), original.getNumber());
+                    }
+                }
+                for (Map.Entry<String, Integer> entry : newest.entrySet()) {
+                    addUpstreamBuild(upstreams, entry.getKey(), entry.getValue());
+                }
+            }
+        }
+        for (Cause cause : run.getCauses()) {
+            if (cause instanceof Cause.UpstreamCause) {
+                Cause.UpstreamCause upstreamCause = (Cause.UpstreamCause)cause;
+                addUpstreamBuild(upstreams, upstreamCause.getUpstreamProject(), upstreamCause.getUpstreamBuild());
+            }
+        }
+        return upstreams;
+    }
+
+    private static void addUpstreamBuild(@Nonnull Map<String, BitSet> upstreams, @Nonnull String jobName, int number) {
+        if (number <= 0) {
+            return;
+        }
+        BitSet numbers = upstreams.get(jobName);
+        if (numbers == null) {
+            numbers = new BitSet();
+            upstreams.put(jobName, numbers);
+        }
+        numbers.set(number);
+    }
+
+    /**
+     * The index for a downstream job.
+     */
+    private static class JobIndex {
+        private volatile boolean ready;
+
+        /**
+         * Events notified while building the index, applied after builds are indexed.
+         * {@code null} once the index is ready.
+         */
+        @CheckForNull
+        private List<Runnable> journal = new ArrayList<Runnable>();
+
+        /**
+         * The lowest build number indexed. Older builds are not indexed.
+         */
+        private int indexedFrom = 1;
+
+        /**
+         * Downstream builds by upstream build numbers by full names of upstream jobs.
+         */
+        private final Map<String, Map<Integer, BitSet>> downstreams = new HashMap<String, Map<Integer, BitSet>>();
+
+        /**
+         * Upstream builds recorded for each downstream build, used to forget them.
+         */
+        private final Map<Integer, Map<String, BitSet>> upstreams = new HashMap<Integer, Map<String, BitSet>>();
+
+        /**
+         * Builds not completed yet.
+         */
+        private final BitSet building = new BitSet();
+
+        public boolean isReady() {
+            return ready;
+        }
+
+        public void build(@Nonnull Job<?, ?> job) {
+            long start = System.currentTimeMillis();
+            int count = 0;
+            int lowest = 1;
+            for (Run<?, ?> run = job.getLastBuild(); run != null; run = run.getPreviousBuild()) {
+                boolean isBuilding = run.isBuilding();
+                Map<String, BitSet> upstreamBuilds = isBuilding ? null : getUpstreamBuilds(run);
+                synchronized (this) {
+                    if (isBuilding) {
+                        building.set(run.getNumber());
+                    } else {
+                        setUpstreamBuilds(run.getNumber(), upstreamBuilds);
+                    }
+                }
+                ++count;
+                if (MAX_INDEXED_BUILDS > 0 && count >= MAX_INDEXED_BUILDS) {
+                    lowest = run.getNumber();
+                    break;
+                }
+            }
+            synchronized (this) {
+                indexedFrom = lowest;
+                // events notified during indexing are newer than the states read from builds.
+                for (Runnable event : journal) {
+                    event.run();
+                }
+                journal = null;
+                ready = true;
+            }
+            LOGGER.log(
+                    Level.FINE,
+                    "Indexed upstream builds of {0} builds of {1} in {2} ms",
+                    new Object[]{count, job.getFullName(), System.currentTimeMillis() - start}
+            );
+        }
+
+        /**
+         * Applies an event now, or after builds are indexed if the index is being built.
+         *
+         * @param event the event to apply
+         */
+        private synchronized void apply(@Nonnull Runnable event) {
+            if (journal != null) {
+                journal.add(event);
+            } else {
+                event.run();
+            }
+        }
+
+        public void onStarted(final int number) {
+            apply(new Runnable() {
+                @Override
+                public void run() {
+                    building.set(number);
+                }
+            });
+        }
+
+        public void onCompleted(final int number, @Nonnull final Map<String, BitSet> upstreamBuilds) {
+            apply(new Runnable() {
+                @Override
+                public void run() {
+                    setUpstreamBuilds(number, upstreamBuilds);
+                }
+            });
+        }
+
+        public void remove(final int number) {
+            apply(new Runnable() {
+                @Override
+                public void run() {
+                    forget(number);
+                }
+            });
+        }
+
+        private void setUpstreamBuilds(int number, @Nonnull Map<String, BitSet> upstreamBuilds) {
+            forget(number);
+            for (Map.Entry<String, BitSet> entry : upstreamBuilds.entrySet()) {
+                Map<Integer, BitSet> byNumber = downstreams.get(entry.getKey());
+                if (byNumber == null) {
+                    byNumber = new HashMap<Integer, BitSet>();
+                    downstreams.put(entry.getKey(), byNumber);
+                }
+                BitSet upstreamNumbers = entry.getValue();
+                for (int i = upstreamNumbers.nextSetBit(0); i >= 0; i = upstreamNumbers.nextSetBit(i + 1)) {
+                    BitSet numbers = byNumber.get(i);
+                    if (numbers == null) {
+                        numbers = new BitSet();
+                        byNumber.put(i, numbers);
+                    }
+                    numbers.set(number);
+                }
+            }
+            if (!upstreamBuilds.isEmpty()) {
+                upstreams.put(number, upstreamBuilds);
+            }
+        }
+
+        private void forget(int number) {
+            building.clear(number);
+            Map<String, BitSet> upstreamBuilds = upstreams.remove(number);
+            if (upstreamBuilds == null) {
+                return;
+            }
+            for (Map.Entry<String, BitSet> entry : upstreamBuilds.entrySet()) {
+                Map<Integer, BitSet> byNumber = downstreams.get(entry.getKey());
+                if (byNumber == null) {
+                    continue;
+                }
+                BitSet upstreamNumbers = entry.getValue();
+                for (int i = upstreamNumbers.nextSetBit(0); i >= 0; i = upstreamNumbers.nextSetBit(i + 1)) {
+                    BitSet numbers = byNumber.get(i);
+                    if (numbers != null) {
+                        numbers.clear(number);
+                        if (numbers.isEmpty()) {
+                            byNumber.remove(i);
+                        }
+                    }
+                }
+                if (byNumber.isEmpty()) {
+                    downstreams.remove(entry.getKey());
+                }
+            }
+        }
+
+        @Nonnull
+        public synchronized BitSet getBuilding() {
+            return (BitSet)building.clone();
+        }
+
+        /**
+         * @param upstreamJobName the full name of the upstream job
+         * @param upstreamNumbers numbers of upstream builds
+         * @return numbers of completed downstream builds, and builds not indexed
+         */
+        @Nonnull
+        public synchronized BitSet getDownstreamBuildNumbers(@Nonnull String upstreamJobName, @Nonnull BitSet upstreamNumbers) {
+            BitSet result = new BitSet();
+            // the caller checks builds not indexed.
+            result.set(1, indexedFrom);
+            Map<Integer, BitSet> byNumber = downstreams.get(upstreamJobName);
+            if (byNumber == null) {
+                return result;
+            }
+            for (int i = upstreamNumbers.nextSetBit(0); i >= 0; i = upstreamNumbers.nextSetBit(i + 1)) {
+                BitSet numbers = byNumber.get(i);
+                if (numbers != null) {
+                    result.or(numbers);
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Keeps indices up to date.
+     */
+    @Extension
+    public static class ListenerImpl extends RunListener<Run<?, ?>> {
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onStarted(Run<?, ?> run, TaskListener listener) {
+            JobIndex index = get().getIndex(run.getParent());
+            if (index != null) {
+                index.onStarted(run.getNumber());
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onCompleted(Run<?, ?> run, @Nonnull TaskListener listener) {
+            JobIndex index = get().getIndex(run.getParent());
+            if (index != null) {
+                // fingerprints are recorded till the build completes.
+                index.onCompleted(run.getNumber(), getUpstreamBuilds(run));
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onDeleted(Run<?, ?> run) {
+            get().remove(run.getParent(), run.getNumber());
+        }
+    }
+
+    /**
+     * Drops indices when jobs are renamed or moved.
+     */
+    @Extension
+    public static class ItemListenerImpl extends ItemListener {
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onLocationChanged(Item item, String oldFullName, String newFullName) {
+            get().clear();
+        }
+    }
+}
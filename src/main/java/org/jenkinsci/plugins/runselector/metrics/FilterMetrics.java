@@ -0,0 +1,101 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 Alexandru Somai
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jenkinsci.plugins.runselector.metrics;
+
+import net.sf.json.JSONObject;
+
+import javax.annotation.Nonnull;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics of a kind of {@link org.jenkinsci.plugins.runselector.RunFilter}.
+ * Candidates rejected by a filter are counted for that filter,
+ * even if it's a part of other filters like {@link org.jenkinsci.plugins.runselector.filters.AndRunFilter}.
+ */
+public final class FilterMetrics {
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder evaluated = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * Records an evaluation of candidates.
+     *
+     * @param nanos     the time the evaluation took
+     * @param evaluated the number of candidates evaluated
+     * @param rejected  the number of candidates rejected
+     */
+    public void recordEvaluation(long nanos, int evaluated, int rejected) {
+        latency.record(nanos);
+        if (evaluated > 0) {
+            this.evaluated.add(evaluated);
+        }
+        if (rejected > 0) {
+            this.rejected.add(rejected);
+        }
+    }
+
+    /**
+     * @return durations of evaluations. An evaluation may cover several candidates.
+     */
+    @Nonnull
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    /**
+     * @return the number of evaluated candidates
+     */
+    public long getEvaluated() {
+        return evaluated.sum();
+    }
+
+    /**
+     * @return the number of rejected candidates
+     */
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    /**
+     * Clears recorded metrics.
+     */
+    public void reset() {
+        latency.reset();
+        evaluated.reset();
+        rejected.reset();
+    }
+
+    /**
+     * @return metrics as JSON
+     */
+    @Nonnull
+    public JSONObject toJSON() {
+        JSONObject json = new JSONObject();
+        json.put("evaluated", getEvaluated());
+        json.put("rejected", getRejected());
+        json.put("latency", latency.toJSON());
+        return json;
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 Alexandru Somai
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jenkinsci.plugins.runselector.metrics;
+
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+
+import javax.annotation.Nonnull;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongBinaryOperator;
+
+/**
+ * A histogram of durations with power-of-two buckets.
+ * Recording is lock-free and allocation-free.
+ *
+ * Bucket {@code i} counts durations in {@code [2^(i-1), 2^i)} nanoseconds,
+ * and the last bucket counts all longer durations.
+ */
+public final class LatencyHistogram {
+    /**
+     * the number of buckets. The last one starts at 2^38 ns (about 4.6 minutes).
+     */
+    static final int BUCKETS = 40;
+
+    private static final LongBinaryOperator MAX = new LongBinaryOperator() {
+        @Override
+        public long applyAsLong(long left, long right) {
+            return Math.max(left, right);
+        }
+    };
+
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(MAX, 0L);
+
+    public LatencyHistogram() {
+        for (int i = 0; i < buckets.length; ++i) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * @param nanos a duration in nanoseconds
+     * @return the index of the bucket for the duration
+     */
+    static int bucketOf(long nanos) {
+        if (nanos <= 0) {
+            return 0;
+        }
+        return Math.min(Long.SIZE - Long.numberOfLeadingZeros(nanos), BUCKETS - 1);
+    }
+
+    /**
+     * @param nanos a duration to record in nanoseconds
+     */
+    public void record(long nanos) {
+        buckets[bucketOf(nanos)].increment();
+        count.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+    }
+
+    /**
+     * @return the number of recorded durations
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * @return the sum of recorded durations in nanoseconds
+     */
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    /**
+     * @return the longest recorded duration in nanoseconds
+     */
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    /**
+     * @param quantile the quantile to estimate (e.g. {@code 0.95})
+     * @return the upper bound of the bucket containing the quantile in nanoseconds.
+     *     {@code 0} if nothing is recorded.
+     */
+    public long getQuantileNanos(double quantile) {
+        long[] counts = getBucketCounts();
+        long total = 0;
+        for (long c : counts) {
+            total += c;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long threshold = (long)Math.ceil(total * quantile);
+        long seen = 0;
+        for (int i = 0; i < counts.length; ++i) {
+            seen += counts[i];
+            if (seen >= threshold && counts[i] > 0) {
+                return (i == BUCKETS - 1) ? getMaxNanos() : (1L << i);
+            }
+        }
+        return getMaxNanos();
+    }
+
+    /**
+     * @return a snapshot of counts of each bucket
+     */
+    @Nonnull
+    public long[] getBucketCounts() {
+        long[] counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; ++i) {
+            counts[i] = buckets[i].sum();
+        }
+        return counts;
+    }
+
+    /**
+     * Clears recorded durations.
+     */
+    public void reset() {
+        for (LongAdder bucket : buckets) {
+            bucket.reset();
+        }
+        count.reset();
+        totalNanos.reset();
+        maxNanos.reset();
+    }
+
+    /**
+     * @return the summary and the buckets as JSON. Durations are in milliseconds.
+     */
+    @Nonnull
+    public JSONObject toJSON() {
+        long count = getCount();
+        JSONObject json = new JSONObject();
+        json.put("count", count);
+        json.put("meanMillis", (count == 0) ? 0.0 : toMillis(getTotalNanos()) / count);
+        json.put("p50Millis", toMillis(getQuantileNanos(0.5)));
+        json.put("p95Millis", toMillis(getQuantileNanos(0.95)));
+        json.put("p99Millis", toMillis(getQuantileNanos(0.99)));
+        json.put("maxMillis", toMillis(getMaxNanos()));
+
+        // only non-empty buckets, keyed by their upper bounds.
+        JSONArray bucketsJson = new JSONArray();
+        long[] counts = getBucketCounts();
+        for (int i = 0; i < counts.length; ++i) {
+            if (counts[i] > 0) {
+                JSONObject bucket = new JSONObject();
+                bucket.put("lessThanMillis", (i == BUCKETS - 1) ? null : toMillis(1L << i));
+                bucket.put("count", counts[i]);
+                bucketsJson.add(bucket);
+            }
+        }
+        json.put("buckets", bucketsJson);
+        return json;
+    }
+
+    private static double toMillis(long nanos) {
+        return (double)nanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
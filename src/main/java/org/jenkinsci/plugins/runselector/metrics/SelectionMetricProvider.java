@@ -0,0 +1,131 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 Alexandru Somai
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jenkinsci.plugins.runselector.metrics;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.MetricSet;
+import hudson.Extension;
+import hudson.model.Descriptor;
+import jenkins.metrics.api.MetricProvider;
+import jenkins.model.Jenkins;
+import org.jenkinsci.plugins.runselector.RunFilter;
+import org.jenkinsci.plugins.runselector.RunSelector;
+
+import javax.annotation.Nonnull;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exposes {@link SelectionMetrics} to the metrics plugin
+ * for selectors and filters installed when Jenkins starts.
+ */
+@Extension(optional = true)
+public class SelectionMetricProvider extends MetricProvider {
+    /**
+     * {@inheritDoc}
+     */
+    @Nonnull
+    @Override
+    public MetricSet getMetricSet() {
+        final Map<String, Metric> metrics = new HashMap<String, Metric>();
+        Jenkins jenkins = Jenkins.getInstance();
+        for (Descriptor<RunSelector> d : jenkins.getDescriptorList(RunSelector.class)) {
+            addSelectorMetrics(metrics, SelectionMetrics.get().getSelectorMetrics(d.clazz), d.clazz.getSimpleName());
+        }
+        for (Descriptor<RunFilter> d : jenkins.getDescriptorList(RunFilter.class)) {
+            addFilterMetrics(metrics, SelectionMetrics.get().getFilterMetrics(d.clazz), d.clazz.getSimpleName());
+        }
+        return new MetricSet() {
+            @Override
+            public Map<String, Metric> getMetrics() {
+                return metrics;
+            }
+        };
+    }
+
+    private static void addSelectorMetrics(Map<String, Metric> metrics, final SelectorMetrics selector, String name) {
+        String prefix = MetricRegistry.name("jenkins", "runselector", "selector", name);
+        metrics.put(MetricRegistry.name(prefix, "selections"), new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return selector.getSelections();
+            }
+        });
+        metrics.put(MetricRegistry.name(prefix, "matches"), new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return selector.getMatches();
+            }
+        });
+        metrics.put(MetricRegistry.name(prefix, "candidates", "scanned"), new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return selector.getCandidatesScanned();
+            }
+        });
+        metrics.put(MetricRegistry.name(prefix, "candidates", "rejected"), new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return selector.getCandidatesRejected();
+            }
+        });
+        addLatencyMetrics(metrics, selector.getLatency(), prefix);
+    }
+
+    private static void addFilterMetrics(Map<String, Metric> metrics, final FilterMetrics filter, String name) {
+        String prefix = MetricRegistry.name("jenkins", "runselector", "filter", name);
+        metrics.put(MetricRegistry.name(prefix, "evaluated"), new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return filter.getEvaluated();
+            }
+        });
+        metrics.put(MetricRegistry.name(prefix, "rejected"), new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return filter.getRejected();
+            }
+        });
+        addLatencyMetrics(metrics, filter.getLatency(), prefix);
+    }
+
+    private static void addLatencyMetrics(Map<String, Metric> metrics, final LatencyHistogram latency, String prefix) {
+        metrics.put(MetricRegistry.name(prefix, "latency", "p95Millis"), new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return TimeUnit.NANOSECONDS.toMillis(latency.getQuantileNanos(0.95));
+            }
+        });
+        metrics.put(MetricRegistry.name(prefix, "latency", "maxMillis"), new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return TimeUnit.NANOSECONDS.toMillis(latency.getMaxNanos());
+            }
+        });
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 Alexandru Somai
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jenkinsci.plugins.runselector.metrics;
+
+import net.sf.json.JSONObject;
+import org.jenkinsci.plugins.runselector.RunFilter;
+import org.jenkinsci.plugins.runselector.RunSelector;
+
+import javax.annotation.Nonnull;
+import java.util.Collections;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Metrics of selections, per kind of {@link RunSelector} and {@link RunFilter}.
+ * Kinds are identified with class names, as each class has its own descriptor.
+ * Classes themselves are not held, so that class loaders of reloaded plugins can be collected.
+ *
+ * Metrics are collected always, and exposed with {@link SelectionMetricsAction}
+ * and the metrics plugin (if installed).
+ */
+public final class SelectionMetrics {
+    private static final SelectionMetrics INSTANCE = new SelectionMetrics();
+
+    private final ConcurrentMap<String, SelectorMetrics> selectorMetrics
+            = new ConcurrentHashMap<String, SelectorMetrics>();
+    private final ConcurrentMap<String, FilterMetrics> filterMetrics
+            = new ConcurrentHashMap<String, FilterMetrics>();
+
+    private SelectionMetrics() {
+    }
+
+    /**
+     * @return the metrics for this Jenkins instance
+     */
+    @Nonnull
+    public static SelectionMetrics get() {
+        return INSTANCE;
+    }
+
+    /**
+     * @param clazz the class of a selector
+     * @return metrics for the selector
+     */
+    @Nonnull
+    public SelectorMetrics getSelectorMetrics(@Nonnull Class<? extends RunSelector> clazz) {
+        SelectorMetrics metrics = selectorMetrics.get(clazz.getName());
+        if (metrics == null) {
+            SelectorMetrics created = new SelectorMetrics();
+            metrics = selectorMetrics.putIfAbsent(clazz.getName(), created);
+            if (metrics == null) {
+                metrics = created;
+            }
+        }
+        return metrics;
+    }
+
+    /**
+     * @param clazz the class of a filter
+     * @return metrics for the filter
+     */
+    @Nonnull
+    public FilterMetrics getFilterMetrics(@Nonnull Class<? extends RunFilter> clazz) {
+        FilterMetrics metrics = filterMetrics.get(clazz.getName());
+        if (metrics == null) {
+            FilterMetrics created = new FilterMetrics();
+            metrics = filterMetrics.putIfAbsent(clazz.getName(), created);
+            if (metrics == null) {
+                metrics = created;
+            }
+        }
+        return metrics;
+    }
+
+    /**
+     * @return metrics of selectors used so far, keyed by class names
+     */
+    @Nonnull
+    public SortedMap<String, SelectorMetrics> getAllSelectorMetrics() {
+        return Collections.unmodifiableSortedMap(new TreeMap<String, SelectorMetrics>(selectorMetrics));
+    }
+
+    /**
+     * @return metrics of filters used so far, keyed by class names
+     */
+    @Nonnull
+    public SortedMap<String, FilterMetrics> getAllFilterMetrics() {
+        return Collections.unmodifiableSortedMap(new TreeMap<String, FilterMetrics>(filterMetrics));
+    }
+
+    /**
+     * Clears all recorded metrics.
+     */
+    public void reset() {
+        for (SelectorMetrics metrics : selectorMetrics.values()) {
+            metrics.reset();
+        }
+        for (FilterMetrics metrics : filterMetrics.values()) {
+            metrics.reset();
+        }
+    }
+
+    /**
+     * @return all metrics as JSON
+     */
+    @Nonnull
+    public JSONObject toJSON() {
+        JSONObject selectors = new JSONObject();
+        for (Map.Entry<String, SelectorMetrics> entry : getAllSelectorMetrics().entrySet()) {
+            selectors.put(entry.getKey(), entry.getValue().toJSON());
+        }
+        JSONObject filters = new JSONObject();
+        for (Map.Entry<String, FilterMetrics> entry : getAllFilterMetrics().entrySet()) {
+            filters.put(entry.getKey(), entry.getValue().toJSON());
+        }
+        JSONObject json = new JSONObject();
+        json.put("selectors", selectors);
+        json.put("filters", filters);
+        return json;
+    }
+}
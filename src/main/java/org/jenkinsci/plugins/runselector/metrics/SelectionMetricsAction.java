@@ -0,0 +1,101 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 Alexandru Somai
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jenkinsci.plugins.runselector.metrics;
+
+import hudson.Extension;
+import hudson.model.RootAction;
+import jenkins.model.Jenkins;
+import net.sf.json.JSONObject;
+import org.jenkinsci.plugins.runselector.cache.SelectionResultCache;
+import org.kohsuke.stapler.HttpResponse;
+import org.kohsuke.stapler.HttpResponses;
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+import org.kohsuke.stapler.interceptor.RequirePOST;
+
+import javax.servlet.ServletException;
+import java.io.IOException;
+
+/**
+ * Exposes {@link SelectionMetrics} and statistics of {@link SelectionResultCache}
+ * as JSON in {@code /runSelectorMetrics/}.
+ * Available only to administrators.
+ */
+@Extension
+public class SelectionMetricsAction implements RootAction {
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getIconFileName() {
+        // not shown in the side panel.
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getDisplayName() {
+        return org.jenkinsci.plugins.runselector.Messages.SelectionMetricsAction_DisplayName();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getUrlName() {
+        return "runSelectorMetrics";
+    }
+
+    /**
+     * Writes metrics as JSON.
+     *
+     * @param req the request
+     * @param rsp the response
+     * @throws IOException if failed to write the response
+     * @throws ServletException if failed to write the response
+     */
+    public void doIndex(StaplerRequest req, StaplerResponse rsp) throws IOException, ServletException {
+        Jenkins.getInstance().checkPermission(Jenkins.ADMINISTER);
+        rsp.setContentType("application/json;charset=UTF-8");
+        JSONObject json = SelectionMetrics.get().toJSON();
+        json.put("resultCache", SelectionResultCache.get().toJSON());
+        rsp.getWriter().print(json.toString());
+    }
+
+    /**
+     * Clears metrics.
+     *
+     * @return redirects to the metrics
+     */
+    @RequirePOST
+    public HttpResponse doReset() {
+        Jenkins.getInstance().checkPermission(Jenkins.ADMINISTER);
+        SelectionMetrics.get().reset();
+        SelectionResultCache.get().resetStatistics();
+        return HttpResponses.redirectToDot();
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 Alexandru Somai
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jenkinsci.plugins.runselector.metrics;
+
+import net.sf.json.JSONObject;
+
+import javax.annotation.Nonnull;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics of a kind of {@link org.jenkinsci.plugins.runselector.RunSelector}.
+ */
+public final class SelectorMetrics {
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder selections = new LongAdder();
+    private final LongAdder matches = new LongAdder();
+    private final LongAdder candidatesScanned = new LongAdder();
+    private final LongAdder candidatesRejected = new LongAdder();
+
+    /**
+     * Records a selection.
+     *
+     * @param nanos    the time the selection took
+     * @param scanned  the number of candidates checked with the filter
+     * @param rejected the number of candidates rejected by the filter
+     * @param matched  whether a build is selected
+     */
+    public void recordSelection(long nanos, int scanned, int rejected, boolean matched) {
+        latency.record(nanos);
+        selections.increment();
+        if (matched) {
+            matches.increment();
+        }
+        if (scanned > 0) {
+            candidatesScanned.add(scanned);
+        }
+        if (rejected > 0) {
+            candidatesRejected.add(rejected);
+        }
+    }
+
+    /**
+     * @return durations of selections
+     */
+    @Nonnull
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    /**
+     * @return the number of selections
+     */
+    public long getSelections() {
+        return selections.sum();
+    }
+
+    /**
+     * @return the number of selections that selected a build
+     */
+    public long getMatches() {
+        return matches.sum();
+    }
+
+    /**
+     * @return the number of candidates checked with filters
+     */
+    public long getCandidatesScanned() {
+        return candidatesScanned.sum();
+    }
+
+    /**
+     * @return the number of candidates rejected by filters
+     */
+    public long getCandidatesRejected() {
+        return candidatesRejected.sum();
+    }
+
+    /**
+     * Clears recorded metrics.
+     */
+    public void reset() {
+        latency.reset();
+        selections.reset();
+        matches.reset();
+        candidatesScanned.reset();
+        candidatesRejected.reset();
+    }
+
+    /**
+     * @return metrics as JSON
+     */
+    @Nonnull
+    public JSONObject toJSON() {
+        JSONObject json = new JSONObject();
+        json.put("selections", getSelections());
+        json.put("matches", getMatches());
+        json.put("candidatesScanned", getCandidatesScanned());
+        json.put("candidatesRejected", getCandidatesRejected());
+        json.put("latency", latency.toJSON());
+        return json;
+    }
+}
@@ -38,7 +38,7 @@ public class BuildNumberRunSelector extends AbstractSpecificRunSelector {
     @Override
     @CheckForNull
     public Run<?, ?> getBuild(@Nonnull Job<?, ?> job, @Nonnull RunSelectorContext context) throws IOException {
-        String resolvedBuildNumber = context.getEnvVars().expand(buildNumber);
+        String resolvedBuildNumber = context.expand(buildNumber);
         if (resolvedBuildNumber.startsWith("$")) {
             context.logDebug("Unresolved variable {0}", resolvedBuildNumber);
             return null;
@@ -59,6 +59,14 @@ public class BuildNumberRunSelector extends AbstractSpecificRunSelector {
         return run;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isCacheable() {
+        return true;
+    }
+
     @Symbol("buildNumber")
     @Extension
     public static class DescriptorImpl extends RunSelectorDescriptor {
@@ -39,16 +39,26 @@ import org.jenkinsci.plugins.runselector.RunFilter;
 import org.jenkinsci.plugins.runselector.RunFilterDescriptor;
 import org.jenkinsci.plugins.runselector.RunSelector;
 import org.jenkinsci.plugins.runselector.RunSelectorDescriptor;
+import org.jenkinsci.plugins.runselector.RunStream;
+import org.jenkinsci.plugins.runselector.SelectionExecutor;
 import org.jenkinsci.plugins.runselector.context.RunSelectorContext;
 import org.jenkinsci.plugins.runselector.filters.AndRunFilter;
 import org.jenkinsci.plugins.runselector.filters.NoRunFilter;
+import org.jenkinsci.plugins.runselector.metrics.SelectionMetrics;
 import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
 
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
 
 /**
  * Tries multiple selectors consequently.
@@ -137,6 +147,8 @@ public class FallbackRunSelector extends RunSelector {
     
     @Nonnull
     private final List<Entry> entryList;
+
+    private boolean parallel;
     
     /**
      * @param entryList run selector to try
@@ -170,6 +182,22 @@ public class FallbackRunSelector extends RunSelector {
         return entryList;
     }
 
+    /**
+     * @param parallel whether to run all entries at the same time.
+     *     The result is the same as running them in order.
+     */
+    @DataBoundSetter
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    /**
+     * @return whether to run all entries at the same time.
+     */
+    public boolean isParallel() {
+        return parallel;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -178,22 +206,96 @@ public class FallbackRunSelector extends RunSelector {
     public Run<?, ?> select(@Nonnull Job<?, ?> job, @Nonnull RunSelectorContext context)
             throws IOException, InterruptedException
     {
-        for (Entry entry : getEntryList()) {
-            RunSelectorContext childContext = context.clone();
-            if (entry.getRunFilter() instanceof NoRunFilter) {
-                // nothing to do.
-            } else if (context.getRunFilter() instanceof NoRunFilter) {
-                childContext.setRunFilter(entry.getRunFilter());
+        long started = System.nanoTime();
+        Run<?, ?> selected = null;
+        try {
+            if (isParallel() && getEntryList().size() > 1 && !SelectionExecutor.isExecutorThread()) {
+                selected = selectFromEntriesInParallel(job, context);
             } else {
-                // RunFilters are provided both in context and this selectors.
-                // Merge them.
-                childContext.setRunFilter(new AndRunFilter(Arrays.asList(
-                        childContext.getRunFilter()
-                        , entry.getRunFilter()
-                )));
+                // Nested in another parallel selection, run in this thread not to deadlock.
+                selected = selectFromEntries(job, context);
             }
-            // Ensure this is the first match.
-            childContext.setLastMatchBuild(null);
+            return selected;
+        } finally {
+            // candidates are counted in selectors of entries.
+            SelectionMetrics.get().getSelectorMetrics(getClass()).recordSelection(
+                    System.nanoTime() - started,
+                    0,
+                    0,
+                    selected != null
+            );
+        }
+    }
+
+    /**
+     * Streams builds from the first entry selecting any build.
+     * Entries are always tried in order even if {@link #isParallel()},
+     * as builds after the first one are selected on demand.
+     *
+     * {@inheritDoc}
+     */
+    @Override
+    @Nonnull
+    public RunStream stream(@Nonnull final Job<?, ?> job, @Nonnull final RunSelectorContext context) {
+        return new RunStream() {
+            private int index = 0;
+            @CheckForNull
+            private RunStream current;
+
+            @Override
+            @CheckForNull
+            public Run<?, ?> next() throws IOException, InterruptedException {
+                if (current != null) {
+                    return current.next();
+                }
+                List<Entry> entries = getEntryList();
+                while (index < entries.size()) {
+                    Entry entry = entries.get(index++);
+                    context.logDebug("Try {0}", entry.getRunSelector().getDisplayName());
+                    RunStream stream = entry.getRunSelector().stream(job, createChildContext(entry, context));
+                    Run<?, ?> candidate = stream.next();
+                    if (candidate != null) {
+                        // succeeding builds are selected from the same entry.
+                        current = stream;
+                        return candidate;
+                    }
+                }
+                return null;
+            }
+        };
+    }
+
+    /**
+     * @param entry   the entry to try
+     * @param context the context for this selector
+     * @return the context for the selector of the entry
+     */
+    @Nonnull
+    private static RunSelectorContext createChildContext(@Nonnull Entry entry, @Nonnull RunSelectorContext context) {
+        RunSelectorContext childContext = context.clone();
+        if (entry.getRunFilter() instanceof NoRunFilter) {
+            // nothing to do.
+        } else if (context.getRunFilter() instanceof NoRunFilter) {
+            childContext.setRunFilter(entry.getRunFilter());
+        } else {
+            // RunFilters are provided both in context and this selectors.
+            // Merge them.
+            childContext.setRunFilter(new AndRunFilter(Arrays.asList(
+                    childContext.getRunFilter()
+                    , entry.getRunFilter()
+            )));
+        }
+        // Ensure this is the first match.
+        childContext.setLastMatchBuild(null);
+        return childContext;
+    }
+
+    @CheckForNull
+    private Run<?, ?> selectFromEntries(@Nonnull Job<?, ?> job, @Nonnull RunSelectorContext context)
+            throws IOException, InterruptedException
+    {
+        for (Entry entry : getEntryList()) {
+            RunSelectorContext childContext = createChildContext(entry, context);
             
             context.logDebug("Try {0}", entry.getRunSelector().getDisplayName());
             Run<?, ?> candidate = entry.getRunSelector().select(job, childContext);
@@ -204,6 +306,119 @@ public class FallbackRunSelector extends RunSelector {
         return null;
     }
 
+    /**
+     * Runs all entries in {@link SelectionExecutor} and returns the result of the first matching entry,
+     * just like {@link #selectFromEntries(Job, RunSelectorContext)}.
+     * Once an entry matches, entries after it are cancelled.
+     */
+    @CheckForNull
+    private Run<?, ?> selectFromEntriesInParallel(@Nonnull final Job<?, ?> job, @Nonnull RunSelectorContext context)
+            throws IOException, InterruptedException
+    {
+        List<Entry> entries = getEntryList();
+        int size = entries.size();
+        final BlockingQueue<Integer> completed = new LinkedBlockingQueue<Integer>();
+        List<Future<Run<?, ?>>> futures = new ArrayList<Future<Run<?, ?>>>(size);
+        Run<?, ?>[] results = new Run<?, ?>[size];
+        Throwable[] failures = new Throwable[size];
+        boolean[] done = new boolean[size];
+        try {
+            for (int i = 0; i < size; ++i) {
+                final int index = i;
+                final RunSelector selector = entries.get(i).getRunSelector();
+                final RunSelectorContext childContext = createChildContext(entries.get(i), context);
+                context.logDebug("Try {0}", selector.getDisplayName());
+                futures.add(SelectionExecutor.submit(new Callable<Run<?, ?>>() {
+                    @Override
+                    public Run<?, ?> call() throws Exception {
+                        try {
+                            return selector.select(job, childContext);
+                        } finally {
+                            completed.add(index);
+                        }
+                    }
+                }));
+            }
+
+            // the first entry matched so far.
+            int matched = size;
+            // entries before this are completed without matches.
+            int next = 0;
+            while (true) {
+                while (next < matched && done[next]) {
+                    if (failures[next] != null) {
+                        throw rethrow(failures[next]);
+                    }
+                    ++next;
+                }
+                if (next >= matched) {
+                    return (matched < size) ? results[matched] : null;
+                }
+
+                int index = completed.take();
+                Future<Run<?, ?>> future = futures.get(index);
+                if (index >= matched || future.isCancelled()) {
+                    continue;
+                }
+                done[index] = true;
+                try {
+                    results[index] = future.get();
+                } catch (ExecutionException e) {
+                    failures[index] = e.getCause();
+                    continue;
+                }
+                if (results[index] != null) {
+                    matched = index;
+                    // lower-priority entries are no longer needed.
+                    for (int i = index + 1; i < size; ++i) {
+                        futures.get(i).cancel(true);
+                    }
+                }
+            }
+        } finally {
+            for (Future<Run<?, ?>> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Cacheable when selectors and filters of all entries are cacheable.
+     *
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isCacheable() {
+        for (Entry entry : getEntryList()) {
+            if (!entry.getRunSelector().isCacheable() || !entry.getRunFilter().isCacheable()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param t the failure of an entry
+     * @return {@code t} to throw if it's an exception {@link #select(Job, RunSelectorContext)} can throw
+     * @throws InterruptedException if {@code t} is an {@link InterruptedException}
+     */
+    @Nonnull
+    private static IOException rethrow(@Nonnull Throwable t) throws InterruptedException {
+        if (t instanceof IOException) {
+            return (IOException)t;
+        }
+        if (t instanceof InterruptedException) {
+            throw (InterruptedException)t;
+        }
+        if (t instanceof RuntimeException) {
+            throw (RuntimeException)t;
+        }
+        if (t instanceof Error) {
+            throw (Error)t;
+        }
+        return new IOException(t);
+    }
+
     @Symbol("fallback")
     @Extension(ordinal = -100)    // bottom most
     public static class DescriptorImpl extends RunSelectorDescriptor {
@@ -25,17 +25,17 @@ package org.jenkinsci.plugins.runselector.selectors;
 
 import hudson.Extension;
 import hudson.model.Job;
-import hudson.model.Run;
 import org.apache.commons.lang.StringUtils;
 import org.jenkinsci.Symbol;
 import org.jenkinsci.plugins.runselector.RunSelector;
 import org.jenkinsci.plugins.runselector.RunSelectorDescriptor;
+import org.jenkinsci.plugins.runselector.RunStream;
+import org.jenkinsci.plugins.runselector.codec.CompactCodec;
 import org.jenkinsci.plugins.runselector.context.RunSelectorContext;
 import org.kohsuke.stapler.DataBoundConstructor;
 
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
-import java.io.IOException;
 
 /**
  * Use a parameter to specify how the build is selected.
@@ -68,22 +68,24 @@ public class ParameterizedRunSelector extends RunSelector {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
     @Override
-    @CheckForNull
-    public Run<?, ?> select(@Nonnull Job<?, ?> job, @Nonnull RunSelectorContext context)
-            throws IOException, InterruptedException
-    {
+    @Nonnull
+    public RunStream stream(@Nonnull Job<?, ?> job, @Nonnull RunSelectorContext context) {
         RunSelector selector = getSelector(context);
         if (selector == null) {
             context.logInfo("No selectors was resolved.");
-            return null;
+            return RunStream.empty();
         }
-        return selector.select(job, context);
+        return selector.stream(job, context);
     }
 
     /**
      * Expand the parameter and resolve it to a xstream expression.
      * <ol>
+     *   <li>Considers an immediate value if encoded with {@link CompactCodec}.</li>
      *   <li>Considers an immediate value if contains '&lt;'.
      *       This is expected to be used in especially in workflow jobs.</li>
      *   <li>Otherwise, considers a variable expression if contains '$'.</li>
@@ -99,13 +101,17 @@ public class ParameterizedRunSelector extends RunSelector {
             context.logInfo("Parameter name is not specified");
             return null;
         }
+        if (CompactCodec.isEncoded(getParameterName())) {
+            context.logDebug("{0} is considered a compact expression", getParameterName());
+            return getParameterName();
+        }
         if (getParameterName().contains("<")) {
             context.logDebug("{0} is considered a xstream expression", getParameterName());
             return getParameterName();
         }
         if (getParameterName().contains("$")) {
             context.logDebug("{0} is considered a variable expression", getParameterName());
-            return context.getEnvVars().expand(getParameterName());
+            return context.expand(getParameterName());
         }
         return null;
     }
@@ -64,7 +64,7 @@ public class PermalinkRunSelector extends AbstractSpecificRunSelector {
     @Override
     @CheckForNull
     public Run<?, ?> getBuild(@Nonnull Job<?, ?> job, @Nonnull RunSelectorContext context) {
-        String resolvedId = context.getEnvVars().expand(id);
+        String resolvedId = context.expand(id);
         if (resolvedId.startsWith("$")) {
             context.logDebug("Unresolved variable {0}", resolvedId);
             return null;
@@ -85,6 +85,14 @@ public class PermalinkRunSelector extends AbstractSpecificRunSelector {
         return run;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isCacheable() {
+        return true;
+    }
+
     @Symbol("permalink")
     @Extension
     public static class DescriptorImpl extends RunSelectorDescriptor {
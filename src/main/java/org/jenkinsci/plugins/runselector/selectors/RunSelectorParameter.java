@@ -39,6 +39,8 @@ import hudson.util.XStream2;
 import jenkins.model.Jenkins;
 import net.sf.json.JSONObject;
 import org.jenkinsci.plugins.runselector.RunSelector;
+import org.jenkinsci.plugins.runselector.cache.XmlObjectCache;
+import org.jenkinsci.plugins.runselector.codec.CompactCodec;
 import org.kohsuke.stapler.DataBoundConstructor;
 import org.kohsuke.stapler.StaplerRequest;
 
@@ -79,19 +81,37 @@ public class RunSelectorParameter extends SimpleParameterDefinition {
     }
 
     private StringParameterValue toStringValue(RunSelector selector) {
-        return new StringParameterValue(
-                getName(), XSTREAM.toXML(selector).replaceAll("[\n\r]+", ""), getDescription());
+        return new StringParameterValue(getName(), encode(selector), getDescription());
+    }
+
+    /**
+     * Encodes a selector into a value of this parameter.
+     * Uses {@link CompactCodec}, or XML for selectors it doesn't support.
+     *
+     * @param selector the selector to encode
+     * @return the encoded selector
+     */
+    public static String encode(RunSelector selector) {
+        String value = CompactCodec.get().encode(selector);
+        if (value != null) {
+            return value;
+        }
+        return XSTREAM.toXML(selector).replaceAll("[\n\r]+", "");
     }
 
     /**
      * Convert xml fragment into a RunSelector object.
+     * Also accepts values encoded with {@link CompactCodec}.
+     * The returned selector is cached and shared among callers,
+     * and must not be modified.
      * @param xml XML fragment to parse.
      * @return the RunSelector represented by the input XML.
      * @throws XStreamException if the object cannot be deserialized
      * @throws ClassCastException if input is invalid
+     * @throws IllegalArgumentException if the value in {@link CompactCodec} cannot be decoded
      */
     public static RunSelector getSelectorFromXml(String xml) {
-        return (RunSelector)XSTREAM.fromXML(xml);
+        return XmlObjectCache.get().fromXml(XSTREAM, xml, RunSelector.class);
     }
 
     @Extension
@@ -130,5 +150,6 @@ public class RunSelectorParameter extends SimpleParameterDefinition {
         // Alias all RunSelectors to their simple names
         for (Descriptor<RunSelector> d : jenkins.getDescriptorByType(DescriptorImpl.class).getRunSelectors())
             XSTREAM.alias(d.clazz.getSimpleName(), d.clazz);
+        XmlObjectCache.get().clear();
     }
 }
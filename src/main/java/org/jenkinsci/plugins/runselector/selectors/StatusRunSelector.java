@@ -31,6 +31,7 @@ import org.jenkinsci.Symbol;
 import org.jenkinsci.plugins.runselector.RunSelector;
 import org.jenkinsci.plugins.runselector.RunSelectorDescriptor;
 import org.jenkinsci.plugins.runselector.context.RunSelectorContext;
+import org.jenkinsci.plugins.runselector.index.RunIndex;
 import org.jvnet.localizer.Localizable;
 import org.kohsuke.stapler.DataBoundConstructor;
 
@@ -141,31 +142,10 @@ public class StatusRunSelector extends RunSelector {
                     // "successful" means marked as SUCCESS.
                     return previousBuild.getPreviousSuccessfulBuild();
                 case UNSTABLE:
-                    for (
-                            previousBuild = previousBuild.getPreviousBuild();
-                            previousBuild != null;
-                            previousBuild = previousBuild.getPreviousBuild()
-                            ) {
-                        Result r = previousBuild.getResult();
-                        if (Result.UNSTABLE.equals(r)) {
-                            return previousBuild;
-                        }
-                    }
-                    break;
+                case SUCCESSFUL:
+                    return getPreviousBuild(job, previousBuild, getBuildStatus());
                 case FAILED:
                     return previousBuild.getPreviousFailedBuild();
-                case SUCCESSFUL:
-                    for (
-                            previousBuild = previousBuild.getPreviousBuild();
-                            previousBuild != null;
-                            previousBuild = previousBuild.getPreviousBuild()
-                            ) {
-                        Result r = previousBuild.getResult();
-                        if (r != null && r.isBetterOrEqualTo(Result.UNSTABLE)) {
-                            return previousBuild;
-                        }
-                    }
-                    break;
                 case COMPLETED:
                     return previousBuild.getPreviousCompletedBuild();
                 case ANY:
@@ -175,6 +155,108 @@ public class StatusRunSelector extends RunSelector {
         return null;
     }
 
+    /**
+     * Looks for the previous build with {@link BuildStatus#UNSTABLE} or {@link BuildStatus#SUCCESSFUL}.
+     * Uses {@link RunIndex} not to load builds in between,
+     * and walks the history when the job isn't indexed yet.
+     *
+     * @param job           the job to pick a build from
+     * @param previousBuild builds older than this are looked for
+     * @param status        {@link BuildStatus#UNSTABLE} or {@link BuildStatus#SUCCESSFUL}
+     * @return the previous build with the status
+     */
+    @CheckForNull
+    private static Run<?, ?> getPreviousBuild(@Nonnull Job<?, ?> job, @Nonnull Run<?, ?> previousBuild, @Nonnull BuildStatus status) {
+        RunIndex index = RunIndex.get();
+        int number = previousBuild.getNumber();
+        while (true) {
+            int previousNumber = index.getPreviousBuildNumber(job, number, status);
+            if (previousNumber == RunIndex.UNKNOWN) {
+                break;
+            }
+            if (previousNumber == RunIndex.NONE) {
+                return null;
+            }
+            Run<?, ?> run = job.getBuildByNumber(previousNumber);
+            if (run == null) {
+                index.remove(job, previousNumber);
+            } else if (isMatching(run, status)) {
+                return run;
+            }
+            number = previousNumber;
+        }
+
+        for (
+                previousBuild = (number == previousBuild.getNumber())
+                        ? previousBuild.getPreviousBuild()
+                        : job.getNearestOldBuild(number - 1);
+                previousBuild != null;
+                previousBuild = previousBuild.getPreviousBuild()
+                ) {
+            if (isMatching(previousBuild, status)) {
+                return previousBuild;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isMatching(@Nonnull Run<?, ?> run, @Nonnull BuildStatus status) {
+        // builds in progress are not selected even if their results are already set,
+        // like Job#getLastSuccessfulBuild() and isEnumerated().
+        return !run.isBuilding() && isMatching(run.getResult(), status);
+    }
+
+    private static boolean isMatching(@CheckForNull Result r, @Nonnull BuildStatus status) {
+        if (status == BuildStatus.UNSTABLE) {
+            return Result.UNSTABLE.equals(r);
+        }
+        // really confusing, but in this case,
+        // "successful" means marked as SUCCESS or UNSTABLE.
+        return r != null && r.isBetterOrEqualTo(Result.UNSTABLE);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isCacheable() {
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isNewestFirst() {
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isEnumerated(@Nonnull Run<?, ?> run, @Nonnull RunSelectorContext context) {
+        if (getBuildStatus() == BuildStatus.ANY) {
+            return true;
+        }
+        if (run.isBuilding()) {
+            return false;
+        }
+        Result r = run.getResult();
+        switch (getBuildStatus()) {
+            case STABLE:
+                return Result.SUCCESS.equals(r);
+            case UNSTABLE:
+            case SUCCESSFUL:
+                return isMatching(r, getBuildStatus());
+            case FAILED:
+                return Result.FAILURE.equals(r);
+            default:
+                // COMPLETED
+                return true;
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -34,7 +34,9 @@ import net.sf.json.JSONObject;
 import org.jenkinsci.Symbol;
 import org.jenkinsci.plugins.runselector.RunSelector;
 import org.jenkinsci.plugins.runselector.RunSelectorDescriptor;
+import org.jenkinsci.plugins.runselector.context.ContextKey;
 import org.jenkinsci.plugins.runselector.context.RunSelectorContext;
+import org.jenkinsci.plugins.runselector.context.SelectionBudgetExceededException;
 import org.jvnet.localizer.Localizable;
 import org.kohsuke.stapler.DataBoundConstructor;
 import org.kohsuke.stapler.DataBoundSetter;
@@ -45,10 +47,12 @@ import javax.annotation.Nonnull;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
 
 /**
  * Select the build that triggered this build.
@@ -104,20 +108,114 @@ public class TriggeringRunSelector extends RunSelector {
         }
     }
     
+    /**
+     * Orders builds from the newest to the oldest.
+     */
+    private static final Comparator<Run<?, ?>> NEWEST_FIRST = new Comparator<Run<?, ?>>() {
+        @Override
+        public int compare(Run<?, ?> o1, Run<?, ?> o2) {
+            return Long.compare(o2.getTimeInMillis(), o1.getTimeInMillis());
+        }
+    };
+
+    /**
+     * The slot for {@link ContextExtension}.
+     */
+    private static final ContextKey<ContextExtension> CONTEXT_EXTENSION = new ContextKey<ContextExtension>(ContextExtension.class);
+
     /**
      * An extension for {@link RunSelectorContext}
      * that holds enumeration status.
+     * <p>
+     * Upstream builds are traversed incrementally.
+     * As a build is always started after builds triggering it,
+     * a found build can be returned before the traversal completes
+     * when {@link TriggeringRunSelector#isUseNewest()} and it's newer than any build to look into.
+     * Otherwise the traversal completes before the first build is returned.
      */
     private static class ContextExtension {
         /**
-         * enumerated builds.
+         * names of the job to select builds from.
+         */
+        public final List<String> jobNames;
+
+        /**
+         * whether to return the newest build first.
+         */
+        public final boolean useNewest;
+
+        /**
+         * the maximum depth of upstream builds to look into. {@code 0} for no limit.
+         */
+        public final int maxDepth;
+
+        /**
+         * upstream builds to look into, the newest first.
+         */
+        public final PriorityQueue<Run<?, ?>> pending = new PriorityQueue<Run<?, ?>>(11, NEWEST_FIRST);
+
+        /**
+         * the smallest depths of upstream builds already found, keyed by {@link Run#getExternalizableId()}.
+         * Prevents looking into the same build twice and infinite loops
+         * (e.g. ancestors shared in diamond-shaped pipelines).
+         * A build is looked into again when found in a smaller depth,
+         * as the traversal is ordered by time and not by depth.
+         */
+        public final Map<String, Integer> visited = new HashMap<String, Integer>();
+
+        /**
+         * found upstream builds of the job to select, ordered by the strategy.
          */
-        public Iterator<Run<?, ?>> nextBuild;
+        public final PriorityQueue<Run<?, ?>> found;
+
+        /**
+         * numbers of found builds, not to return the same build twice.
+         */
+        public final Set<Integer> foundNumbers = new HashSet<Integer>();
+
+        public ContextExtension(@Nonnull List<String> jobNames, final boolean useNewest, int maxDepth) {
+            this.jobNames = jobNames;
+            this.useNewest = useNewest;
+            this.maxDepth = maxDepth;
+            this.found = new PriorityQueue<Run<?, ?>>(11, new Comparator<Run<?, ?>>() {
+                @Override
+                public int compare(Run<?, ?> o1, Run<?, ?> o2) {
+                    return useNewest
+                            ? Integer.compare(o2.getNumber(), o1.getNumber())
+                            : Integer.compare(o1.getNumber(), o2.getNumber());
+                }
+            });
+        }
+
+        /**
+         * @return whether the first build in {@link #found} can be returned.
+         */
+        public boolean isNextFound() {
+            Run<?, ?> next = found.peek();
+            if (next == null) {
+                return false;
+            }
+            if (pending.isEmpty()) {
+                return true;
+            }
+            // builds found later are older than any pending build.
+            return useNewest && next.getTimeInMillis() > pending.peek().getTimeInMillis();
+        }
+
+        /**
+         * @param depth the depth of a build
+         * @return whether upstream builds of a build in that depth can be looked into.
+         */
+        public boolean isExpandable(int depth) {
+            return maxDepth <= 0 || depth < maxDepth;
+        }
     }
 
     @CheckForNull
     private UpstreamFilterStrategy upstreamFilterStrategy;
     private boolean allowUpstreamDependencies;
+    @CheckForNull
+    private Integer maxUpstreamDepth;
 
     @DataBoundConstructor
     public TriggeringRunSelector() {
@@ -139,6 +237,15 @@ public class TriggeringRunSelector extends RunSelector {
         this.allowUpstreamDependencies = allowUpstreamDependencies;
     }
 
+    /**
+     * @param maxUpstreamDepth the maximum depth of upstream builds to look into.
+     *     {@code 0} for no limit. {@code null} to use the global configuration.
+     */
+    @DataBoundSetter
+    public void setMaxUpstreamDepth(@CheckForNull Integer maxUpstreamDepth) {
+        this.maxUpstreamDepth = (maxUpstreamDepth != null) ? Math.max(maxUpstreamDepth, 0) : null;
+    }
+
     /**
      * @return Which build should be used if triggered by multiple upstream builds.
      */
@@ -175,58 +282,134 @@ public class TriggeringRunSelector extends RunSelector {
     public boolean isAllowUpstreamDependencies() {
         return allowUpstreamDependencies;
     }
+
+    /**
+     * @return the maximum depth of upstream builds to look into.
+     *     {@code 0} for no limit. {@code null} to use the global configuration.
+     */
+    @CheckForNull
+    public Integer getMaxUpstreamDepth() {
+        return maxUpstreamDepth;
+    }
+
+    /**
+     * @return the maximum depth of upstream builds to look into, falling back to the global configuration.
+     *     {@code 0} for no limit.
+     */
+    public int getEffectiveMaxUpstreamDepth() {
+        Integer depth = getMaxUpstreamDepth();
+        return (depth != null) ? depth : ((DescriptorImpl)getDescriptor()).getGlobalMaxUpstreamDepth();
+    }
     
     /**
      * {@inheritDoc}
      */
     @Override
     @CheckForNull
-    public Run<?, ?> getNextBuild(@Nonnull Job<?, ?> job, @Nonnull RunSelectorContext context) {
-        ContextExtension ext = context.getExtension(ContextExtension.class);
+    public Run<?, ?> getNextBuild(@Nonnull Job<?, ?> job, @Nonnull RunSelectorContext context)
+            throws SelectionBudgetExceededException, InterruptedException
+    {
+        ContextExtension ext = context.get(CONTEXT_EXTENSION);
         if (ext == null) {
             // first time to be called.
-            ext = new ContextExtension();
-            List<Run<?, ?>> result = new ArrayList<Run<?, ?>>(
-                    getAllUpstreamBuilds(job, context, context.getBuild())
-            );
-            // sort builds by the strategy.
-            Collections.sort(
-                    result,
-                    new Comparator<Run<?, ?>>() {
-                        @Override
-                        public int compare(Run<?, ?> o1, Run<?, ?> o2) {
-                            return isUseNewest()
-                                    ?o2.getNumber() - o1.getNumber()
-                                    :o1.getNumber() - o2.getNumber();
-                        }
-                    }
-            );
-            
-            ext.nextBuild = result.iterator();
-            context.addExtension(ext);
+            ext = new ContextExtension(getJobNames(job), isUseNewest(), getEffectiveMaxUpstreamDepth());
+            addUpstreamBuilds(ext, context.getBuild(), 0, context);
+            context.put(CONTEXT_EXTENSION, ext);
         }
-        if (!ext.nextBuild.hasNext()) {
-            // no matching build.
-            context.removeExtension(ext);
-            return null;
+        while (true) {
+            if (ext.isNextFound()) {
+                // Use the 'job' parameter instead of directly the upstream build, because of Matrix jobs.
+                Run<?, ?> build = job.getBuildByNumber(ext.found.poll().getNumber());
+                if (build != null) {
+                    return build;
+                }
+                continue;
+            }
+            Run<?, ?> upstreamBuild = ext.pending.poll();
+            if (upstreamBuild == null) {
+                // no matching build.
+                context.put(CONTEXT_EXTENSION, null);
+                return null;
+            }
+            // looking into upstream builds loads their fingerprints.
+            context.checkBudget(upstreamBuild);
+            addUpstreamBuilds(ext, upstreamBuild, ext.visited.get(upstreamBuild.getExternalizableId()), context);
         }
-        
-        return ext.nextBuild.next();
     }
-    
+
+    /**
+     * @param job the job to select builds from
+     * @return names of upstream jobs whose builds are selected
+     */
     @Nonnull
-    private HashSet<Run<?, ?>> getAllUpstreamBuilds(@Nonnull Job<?, ?> job, @Nonnull RunSelectorContext context, @Nonnull Run<?, ?> parent) {
-        HashSet<Run<?, ?>> result = new HashSet<Run<?, ?>>();
-        
+    private static List<String> getJobNames(@Nonnull Job<?, ?> job) {
         // Upstream job for matrix will be parent project, not only individual configuration:
         List<String> jobNames = new ArrayList<String>();
         jobNames.add(job.getFullName());
         if ((job instanceof AbstractProject<?,?>) && ((AbstractProject<?,?>)job).getRootProject() != job) {
             jobNames.add(((AbstractProject<?,?>)job).getRootProject().getFullName());
         }
+        return jobNames;
+    }
 
-        List<Run<?, ?>> upstreamBuilds = new ArrayList<Run<?, ?>>();
+    /**
+     * Adds upstream builds of a build to {@link ContextExtension#found}
+     * or {@link ContextExtension#pending}.
+     *
+     * @param ext     the enumeration status
+     * @param parent  the build to look into
+     * @param depth   the depth of {@code parent}. {@code 0} for the current build.
+     * @param context the current selecting context
+     */
+    private void addUpstreamBuilds(@Nonnull ContextExtension ext, @Nonnull Run<?, ?> parent, int depth,
+                                   @Nonnull RunSelectorContext context) {
+        for (Run<?, ?> upstreamBuild : getUpstreamBuilds(parent, context)) {
+            Integer visitedDepth = ext.visited.get(upstreamBuild.getExternalizableId());
+            if (visitedDepth != null && visitedDepth <= depth + 1) {
+                // already found in the same or a smaller depth.
+                continue;
+            }
+            ext.visited.put(upstreamBuild.getExternalizableId(), depth + 1);
+            if (ext.jobNames.contains(upstreamBuild.getParent().getFullName())) {
+                if (ext.foundNumbers.add(upstreamBuild.getNumber())) {
+                    ext.found.add(upstreamBuild);
+                }
+            } else if (ext.isExpandable(depth + 1)) {
+                // Look into the upstream builds of this build later.
+                // Builds found again in a smaller depth are looked into again,
+                // as their upstream builds may have been cut off by the maximum depth.
+                if (visitedDepth == null || !ext.pending.contains(upstreamBuild)) {
+                    ext.pending.add(upstreamBuild);
+                }
+            } else if (context.isVerbose()) {
+                context.logDebug("{0}: reached the maximum upstream depth {1}", upstreamBuild.getFullDisplayName(), ext.maxDepth);
+            }
+        }
+    }
+
+    /**
+     * Resolves upstream builds of a build.
+     * Resolved builds are memorized during the selection,
+     * as resolving upstream dependencies requires looking up fingerprints.
+     *
+     * @param parent  the build to look into
+     * @param context the current selecting context
+     * @return upstream builds of {@code parent}
+     */
+    @Nonnull
+    private List<Run<?, ?>> getUpstreamBuilds(@Nonnull Run<?, ?> parent, @Nonnull RunSelectorContext context) {
+        @SuppressWarnings("unchecked")
+        Map<String, List<Run<?, ?>>> resolved = context.getPreparedState(this, Map.class);
+        if (resolved == null) {
+            resolved = new HashMap<String, List<Run<?, ?>>>();
+            context.setPreparedState(this, resolved);
+        }
+        List<Run<?, ?>> upstreamBuilds = resolved.get(parent.getExternalizableId());
+        if (upstreamBuilds != null) {
+            return upstreamBuilds;
+        }
 
+        upstreamBuilds = new ArrayList<Run<?, ?>>();
         for (Cause cause: parent.getCauses()) {
             if (cause instanceof UpstreamCause) {
                 UpstreamCause upstream = (UpstreamCause) cause;
@@ -242,22 +425,17 @@ public class TriggeringRunSelector extends RunSelector {
             
             Map<AbstractProject, Integer> parentUpstreamBuilds = parentBuild.getUpstreamBuilds();
             for (Map.Entry<AbstractProject, Integer> buildEntry : parentUpstreamBuilds.entrySet()) {
-                upstreamBuilds.add(buildEntry.getKey().getBuildByNumber(buildEntry.getValue()));
+                Run<?, ?> upstreamRun = buildEntry.getKey().getBuildByNumber(buildEntry.getValue());
+                if (upstreamRun != null) {
+                    upstreamBuilds.add(upstreamRun);
+                }
             }
 
         }
 
-        for (Run<?, ?> upstreamBuild : upstreamBuilds) {
-            if (jobNames.contains(upstreamBuild.getParent().getFullName())) {
-                // Use the 'job' parameter instead of directly the 'upstreamBuild', because of Matrix jobs.
-                result.add(job.getBuildByNumber(upstreamBuild.getNumber()));
-            } else {
-                // Figure out the parent job and do a recursive call to getBuild
-                result.addAll(getAllUpstreamBuilds(job, context, upstreamBuild));
-            }
-        }
-        
-        return result;
+        upstreamBuilds = Collections.unmodifiableList(upstreamBuilds);
+        resolved.put(parent.getExternalizableId(), upstreamBuilds);
+        return upstreamBuilds;
     }
     
     /**
@@ -267,6 +445,7 @@ public class TriggeringRunSelector extends RunSelector {
     @Extension
     public static class DescriptorImpl extends RunSelectorDescriptor {
         private UpstreamFilterStrategy globalUpstreamFilterStrategy;
+        private int globalMaxUpstreamDepth;
         
         /**
          * ctor
@@ -299,6 +478,22 @@ public class TriggeringRunSelector extends RunSelector {
             return globalUpstreamFilterStrategy;
         }
         
+        /**
+         * set the maximum depth of upstream builds to look into in the system configuration
+         * 
+         * @param globalMaxUpstreamDepth the maximum depth. {@code 0} for no limit.
+         */
+        public void setGlobalMaxUpstreamDepth(int globalMaxUpstreamDepth) {
+            this.globalMaxUpstreamDepth = Math.max(globalMaxUpstreamDepth, 0);
+        }
+        
+        /**
+         * @return the maximum depth of upstream builds to look into in the system configuration. {@code 0} for no limit.
+         */
+        public int getGlobalMaxUpstreamDepth() {
+            return globalMaxUpstreamDepth;
+        }
+        
         /**
          * {@inheritDoc}
          */
@@ -306,6 +501,7 @@ public class TriggeringRunSelector extends RunSelector {
         public boolean configure(StaplerRequest req, JSONObject json)
                 throws hudson.model.Descriptor.FormException {
             setGlobalUpstreamFilterStrategy(UpstreamFilterStrategy.valueOf(json.getString("globalUpstreamFilterStrategy")));
+            setGlobalMaxUpstreamDepth(json.optInt("globalMaxUpstreamDepth", 0));
             save();
             return super.configure(req, json);
         }
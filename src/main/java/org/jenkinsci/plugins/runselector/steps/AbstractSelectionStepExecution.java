@@ -0,0 +1,82 @@
+package org.jenkinsci.plugins.runselector.steps;
+
+import hudson.AbortException;
+import org.jenkinsci.plugins.runselector.Messages;
+import org.jenkinsci.plugins.runselector.SelectionExecutor;
+import org.jenkinsci.plugins.workflow.steps.AbstractStepExecutionImpl;
+
+import javax.annotation.Nonnull;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+
+/**
+ * Runs a step selecting builds on {@link SelectionExecutor},
+ * not to block the CPS VM thread during slow selections.
+ * {@link #stop(Throwable)} interrupts the selection.
+ *
+ * @param <T> the type of the result of the step
+ * @author Alexandru Somai
+ */
+public abstract class AbstractSelectionStepExecution<T> extends AbstractStepExecutionImpl {
+
+    private static final long serialVersionUID = 1L;
+
+    private transient volatile Future<?> task;
+
+    private transient volatile boolean stopped;
+
+    /**
+     * Selects builds. Called in a thread of {@link SelectionExecutor}.
+     *
+     * @return the result of the step
+     * @throws Exception the failure of the step
+     */
+    protected abstract T run() throws Exception;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public final boolean start() throws Exception {
+        task = SelectionExecutor.submitStep(new Callable<Void>() {
+            @Override
+            public Void call() {
+                try {
+                    T result = run();
+                    if (!stopped) {
+                        getContext().onSuccess(result);
+                    }
+                } catch (Throwable t) {
+                    if (!stopped) {
+                        getContext().onFailure(t);
+                    }
+                }
+                return null;
+            }
+        });
+        return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void stop(@Nonnull Throwable cause) throws Exception {
+        stopped = true;
+        Future<?> task = this.task;
+        if (task != null) {
+            task.cancel(true);
+        }
+        getContext().onFailure(cause);
+    }
+
+    /**
+     * The selection is lost when Jenkins restarts.
+     *
+     * {@inheritDoc}
+     */
+    @Override
+    public void onResume() {
+        getContext().onFailure(new AbortException(Messages.SelectRunStep_CannotResume()));
+    }
+}
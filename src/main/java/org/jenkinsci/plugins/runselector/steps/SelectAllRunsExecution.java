@@ -0,0 +1,69 @@
+package org.jenkinsci.plugins.runselector.steps;
+
+import com.google.inject.Inject;
+import hudson.AbortException;
+import hudson.model.Job;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import jenkins.model.Jenkins;
+import org.jenkinsci.plugins.runselector.Messages;
+import org.jenkinsci.plugins.runselector.RunSelector;
+import org.jenkinsci.plugins.runselector.context.RunSelectorContext;
+import org.jenkinsci.plugins.workflow.steps.StepContextParameter;
+import org.jenkinsci.plugins.workflow.support.steps.build.RunWrapper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The execution of {@link SelectAllRunsStep}.
+ * Runs are selected with {@link RunSelector#selectAll(Job, RunSelectorContext, int)}
+ * in a single pass over builds.
+ */
+public class SelectAllRunsExecution extends AbstractSelectionStepExecution<List<RunWrapper>> {
+
+    private static final long serialVersionUID = 1L;
+
+    @Inject
+    private transient SelectAllRunsStep step;
+
+    @StepContextParameter
+    private transient Run<?, ?> run;
+    @StepContextParameter
+    private transient TaskListener listener;
+
+    @Override
+    protected List<RunWrapper> run() throws Exception {
+
+        String jobName = step.getJob();
+        if (jobName == null) {
+            throw new AbortException(Messages.SelectRunStep_MissingJobParameter());
+        }
+
+        Jenkins jenkins = Jenkins.getInstance();
+        if (jenkins == null) {
+            throw new IllegalStateException("Jenkins has not been started, or was already shut down");
+        }
+
+        RunSelectorContext context = new RunSelectorContext(jenkins, run, listener);
+        context.setVerbose(step.isVerbose());
+        context.setBudget(SelectRunExecution.createBudget(step.getMaxCandidates(), step.getTimeout()));
+
+        Job<?, ?> upstreamJob = SelectRunExecution.resolveJob(jobName, context);
+        RunSelector selector = SelectRunExecution.prepare(step.getSelector(), step.getFilter(), context);
+
+        List<Run<?, ?>> upstreamRuns = selector.selectAll(upstreamJob, context, step.getLimit());
+        if (upstreamRuns.isEmpty()) {
+            listener.getLogger().println(Messages.SelectRunStep_MissingRun(
+                    jobName,
+                    selector.getDisplayName(),
+                    context.getRunFilter().getDisplayName()
+            ));
+        }
+        List<RunWrapper> wrappers = new ArrayList<RunWrapper>(upstreamRuns.size());
+        for (Run<?, ?> upstreamRun : upstreamRuns) {
+            wrappers.add(new RunWrapper(upstreamRun, false));
+        }
+        return wrappers;
+    }
+}
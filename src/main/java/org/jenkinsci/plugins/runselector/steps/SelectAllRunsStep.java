@@ -0,0 +1,146 @@
+package org.jenkinsci.plugins.runselector.steps;
+
+import hudson.Extension;
+import hudson.Util;
+import org.jenkinsci.plugins.runselector.Messages;
+import org.jenkinsci.plugins.runselector.RunFilter;
+import org.jenkinsci.plugins.runselector.RunSelector;
+import org.jenkinsci.plugins.workflow.steps.AbstractStepDescriptorImpl;
+import org.jenkinsci.plugins.workflow.steps.AbstractStepImpl;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+
+import javax.annotation.CheckForNull;
+
+/**
+ * The selectAllRuns step selects up to {@link #getLimit()} runs from a given project name
+ * based on the given selector and, optionally, the run filter.
+ * Runs are selected in a single pass, in the order the selector enumerates them.
+ */
+public class SelectAllRunsStep extends AbstractStepImpl {
+
+    @CheckForNull
+    private final String job;
+
+    private int limit;
+
+    private boolean verbose;
+
+    @CheckForNull
+    private RunSelector selector;
+
+    @CheckForNull
+    private RunFilter filter;
+
+    @CheckForNull
+    private Integer maxCandidates;
+
+    @CheckForNull
+    private Integer timeout;
+
+    @DataBoundConstructor
+    public SelectAllRunsStep(String job) {
+        this.job = Util.fixEmptyAndTrim(job);
+    }
+
+    @CheckForNull
+    public String getJob() {
+        return job;
+    }
+
+    /**
+     * @return the maximum number of runs to select. {@code 0} for no limit.
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    @DataBoundSetter
+    public void setLimit(int limit) {
+        this.limit = Math.max(limit, 0);
+    }
+
+    @CheckForNull
+    public RunSelector getSelector() {
+        return selector;
+    }
+
+    @DataBoundSetter
+    public void setSelector(RunSelector selector) {
+        this.selector = selector;
+    }
+
+    public boolean isVerbose() {
+        return verbose;
+    }
+
+    @DataBoundSetter
+    public void setVerbose(boolean verbose) {
+        this.verbose = verbose;
+    }
+
+    @CheckForNull
+    public RunFilter getFilter() {
+        return filter;
+    }
+
+    @DataBoundSetter
+    public void setFilter(RunFilter filter) {
+        this.filter = filter;
+    }
+
+    /**
+     * @return the maximum number of candidates to scan. {@code 0} for no limit.
+     *     {@code null} to use the system configuration.
+     */
+    @CheckForNull
+    public Integer getMaxCandidates() {
+        return maxCandidates;
+    }
+
+    @DataBoundSetter
+    public void setMaxCandidates(@CheckForNull Integer maxCandidates) {
+        this.maxCandidates = maxCandidates;
+    }
+
+    /**
+     * @return seconds to give up the selection. {@code 0} for no limit.
+     *     {@code null} to use the system configuration.
+     */
+    @CheckForNull
+    public Integer getTimeout() {
+        return timeout;
+    }
+
+    @DataBoundSetter
+    public void setTimeout(@CheckForNull Integer timeout) {
+        this.timeout = timeout;
+    }
+
+    @Extension
+    public static class DescriptorImpl extends AbstractStepDescriptorImpl {
+
+        public DescriptorImpl() {
+            super(SelectAllRunsExecution.class);
+        }
+
+        @Override
+        public String getDisplayName() {
+            return Messages.SelectAllRunsStep_DisplayName();
+        }
+
+        @Override
+        public String getFunctionName() {
+            return "selectAllRuns";
+        }
+
+        @Override
+        public String getHelpFile(String fieldName) {
+            if ("selector".equals(fieldName) || "filter".equals(fieldName) || "verbose".equals(fieldName)
+                    || "maxCandidates".equals(fieldName) || "timeout".equals(fieldName)) {
+                return "/plugin/run-selector/help-" + fieldName + ".html";
+            }
+            return super.getHelpFile(fieldName);
+        }
+    }
+}
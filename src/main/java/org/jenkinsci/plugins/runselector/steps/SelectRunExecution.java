@@ -9,20 +9,26 @@ import jenkins.model.Jenkins;
 import org.jenkinsci.plugins.runselector.Messages;
 import org.jenkinsci.plugins.runselector.RunFilter;
 import org.jenkinsci.plugins.runselector.RunSelector;
+import org.jenkinsci.plugins.runselector.cache.SelectionResultCache;
 import org.jenkinsci.plugins.runselector.context.RunSelectorContext;
+import org.jenkinsci.plugins.runselector.context.SelectionBudget;
 import org.jenkinsci.plugins.runselector.filters.NoRunFilter;
 import org.jenkinsci.plugins.runselector.selectors.StatusRunSelector;
-import org.jenkinsci.plugins.workflow.steps.AbstractSynchronousStepExecution;
 import org.jenkinsci.plugins.workflow.steps.StepContextParameter;
 import org.jenkinsci.plugins.workflow.support.steps.build.RunWrapper;
 
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
 /**
  * The execution of {@link SelectRunStep}.
  *
  * @author Alexandru Somai
  * @since 1.0
  */
-public class SelectRunExecution extends AbstractSynchronousStepExecution<RunWrapper> {
+public class SelectRunExecution extends AbstractSelectionStepExecution<RunWrapper> {
 
     private static final long serialVersionUID = 1L;
 
@@ -38,7 +44,7 @@ public class SelectRunExecution extends AbstractSynchronousStepExecution<RunWrap
     private transient TaskListener listener;
 
     @Override
-    public RunWrapper run() throws Exception {
+    protected RunWrapper run() throws Exception {
 
         String jobName = step.getJob();
         if (jobName == null) {
@@ -49,31 +55,108 @@ public class SelectRunExecution extends AbstractSynchronousStepExecution<RunWrap
         if (jenkins == null) {
             throw new IllegalStateException("Jenkins has not been started, or was already shut down");
         }
-        Job<?, ?> upstreamJob = jenkins.getItem(jobName, run.getParent(), Job.class);
+
+        RunSelectorContext context = new RunSelectorContext(jenkins, run, listener);
+        context.setVerbose(step.isVerbose());
+        context.setBudget(createBudget(step.getMaxCandidates(), step.getTimeout()));
+
+        return new RunWrapper(select(jobName, step.getSelector(), step.getFilter(), context), false);
+    }
+
+    /**
+     * Creates the budget for a step.
+     * Limits not specified in the step are taken from the system configuration.
+     *
+     * @param maxCandidates the maximum number of candidates specified in the step
+     * @param timeout       seconds to give up specified in the step
+     * @return the budget. {@code null} if no limit.
+     */
+    @CheckForNull
+    static SelectionBudget createBudget(@CheckForNull Integer maxCandidates, @CheckForNull Integer timeout) {
+        SelectRunStep.DescriptorImpl d = Jenkins.getInstance().getDescriptorByType(SelectRunStep.DescriptorImpl.class);
+        if (maxCandidates == null) {
+            maxCandidates = (d != null) ? d.getGlobalMaxCandidates() : 0;
+        }
+        if (timeout == null) {
+            timeout = (d != null) ? d.getGlobalTimeout() : 0;
+        }
+        SelectionBudget budget = new SelectionBudget(maxCandidates, TimeUnit.SECONDS.toMillis(timeout));
+        return budget.isLimited() ? budget : null;
+    }
+
+    /**
+     * Selects a build as {@link SelectRunStep} does.
+     * Shared with {@link SelectRunsExecution}.
+     *
+     * @param jobName  the name of the job to select a build from, relative to the current job
+     * @param selector the selector. Uses the default one if {@code null}.
+     * @param filter   the filter. Accepts any builds if {@code null}.
+     * @param context  the context for the selection. Its filter is replaced with {@code filter}.
+     * @return the selected build
+     * @throws AbortException if the job or a build isn't found
+     * @throws IOException if an error occurs while performing the operation.
+     * @throws InterruptedException if any thread interrupts the current thread.
+     */
+    @Nonnull
+    static Run<?, ?> select(
+            @Nonnull String jobName,
+            @CheckForNull RunSelector selector,
+            @CheckForNull RunFilter filter,
+            @Nonnull RunSelectorContext context
+    ) throws IOException, InterruptedException {
+        Job<?, ?> upstreamJob = resolveJob(jobName, context);
+        selector = prepare(selector, filter, context);
+
+        Run<?, ?> upstreamRun = SelectionResultCache.get().select(selector, upstreamJob, context);
+        if (upstreamRun == null) {
+            throw new AbortException(Messages.SelectRunStep_MissingRun(
+                    jobName,
+                    selector.getDisplayName(),
+                    context.getRunFilter().getDisplayName()
+            ));
+        }
+        return upstreamRun;
+    }
+
+    /**
+     * @param jobName  the name of the job, relative to the current job
+     * @param context  the context for the selection
+     * @return the job
+     * @throws AbortException if the job isn't found
+     */
+    @Nonnull
+    static Job<?, ?> resolveJob(@Nonnull String jobName, @Nonnull RunSelectorContext context) throws AbortException {
+        Job<?, ?> upstreamJob = context.getJenkins().getItem(jobName, context.getBuild().getParent(), Job.class);
         if (upstreamJob == null) {
             throw new AbortException(Messages.SelectRunStep_MissingJob(jobName));
         }
+        return upstreamJob;
+    }
 
-        RunSelector selector = step.getSelector();
+    /**
+     * Applies defaults to the selector and the filter, and sets the filter to the context.
+     *
+     * @param selector the selector. Uses the default one if {@code null}.
+     * @param filter   the filter. Accepts any builds if {@code null}.
+     * @param context  the context for the selection
+     * @return the selector to use
+     */
+    @Nonnull
+    static RunSelector prepare(
+            @CheckForNull RunSelector selector,
+            @CheckForNull RunFilter filter,
+            @Nonnull RunSelectorContext context
+    ) {
         if (selector == null) {
-            listener.getLogger().println(Messages.SelectRunStep_MissingRunSelector(DEFAULT_RUN_SELECTOR.getDisplayName()));
+            context.getListener().getLogger().println(Messages.SelectRunStep_MissingRunSelector(DEFAULT_RUN_SELECTOR.getDisplayName()));
             selector = DEFAULT_RUN_SELECTOR;
         }
 
-        RunFilter filter = step.getFilter();
         if (filter == null) {
-            listener.getLogger().println(Messages.SelectRunStep_MissingRunFilter());
+            context.getListener().getLogger().println(Messages.SelectRunStep_MissingRunFilter());
             filter = DEFAULT_RUN_FILTER;
         }
-
-        RunSelectorContext context = new RunSelectorContext(jenkins, run, listener, filter);
-        context.setVerbose(step.isVerbose());
-
-        Run<?, ?> upstreamRun = selector.select(upstreamJob, context);
-        if (upstreamRun == null) {
-            throw new AbortException(Messages.SelectRunStep_MissingRun(jobName, selector.getDisplayName(), filter.getDisplayName()));
-        }
-
-        return new RunWrapper(upstreamRun, false);
+        context.setRunFilter(filter);
+        return selector;
     }
 }
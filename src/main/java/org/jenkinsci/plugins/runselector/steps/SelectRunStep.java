@@ -2,6 +2,7 @@ package org.jenkinsci.plugins.runselector.steps;
 
 import hudson.Extension;
 import hudson.Util;
+import net.sf.json.JSONObject;
 import org.jenkinsci.plugins.runselector.Messages;
 import org.jenkinsci.plugins.runselector.RunFilter;
 import org.jenkinsci.plugins.runselector.RunSelector;
@@ -9,6 +10,7 @@ import org.jenkinsci.plugins.workflow.steps.AbstractStepDescriptorImpl;
 import org.jenkinsci.plugins.workflow.steps.AbstractStepImpl;
 import org.kohsuke.stapler.DataBoundConstructor;
 import org.kohsuke.stapler.DataBoundSetter;
+import org.kohsuke.stapler.StaplerRequest;
 
 import javax.annotation.CheckForNull;
 
@@ -32,6 +34,12 @@ public class SelectRunStep extends AbstractStepImpl {
     @CheckForNull
     private RunFilter filter;
 
+    @CheckForNull
+    private Integer maxCandidates;
+
+    @CheckForNull
+    private Integer timeout;
+
     @DataBoundConstructor
     public SelectRunStep(String job) {
         this.job = Util.fixEmptyAndTrim(job);
@@ -71,11 +79,78 @@ public class SelectRunStep extends AbstractStepImpl {
         this.filter = filter;
     }
 
+    /**
+     * @return the maximum number of candidates to scan. {@code 0} for no limit.
+     *     {@code null} to use the system configuration.
+     */
+    @CheckForNull
+    public Integer getMaxCandidates() {
+        return maxCandidates;
+    }
+
+    @DataBoundSetter
+    public void setMaxCandidates(@CheckForNull Integer maxCandidates) {
+        this.maxCandidates = maxCandidates;
+    }
+
+    /**
+     * @return seconds to give up the selection. {@code 0} for no limit.
+     *     {@code null} to use the system configuration.
+     */
+    @CheckForNull
+    public Integer getTimeout() {
+        return timeout;
+    }
+
+    @DataBoundSetter
+    public void setTimeout(@CheckForNull Integer timeout) {
+        this.timeout = timeout;
+    }
+
     @Extension
     public static class DescriptorImpl extends AbstractStepDescriptorImpl {
+        private int globalMaxCandidates;
+        private int globalTimeout;
 
         public DescriptorImpl() {
             super(SelectRunExecution.class);
+            load();
+        }
+
+        /**
+         * @return the maximum number of candidates to scan in the system configuration. {@code 0} for no limit.
+         */
+        public int getGlobalMaxCandidates() {
+            return globalMaxCandidates;
+        }
+
+        /**
+         * @param globalMaxCandidates the maximum number of candidates to scan. {@code 0} for no limit.
+         */
+        public void setGlobalMaxCandidates(int globalMaxCandidates) {
+            this.globalMaxCandidates = Math.max(globalMaxCandidates, 0);
+        }
+
+        /**
+         * @return seconds to give up selections in the system configuration. {@code 0} for no limit.
+         */
+        public int getGlobalTimeout() {
+            return globalTimeout;
+        }
+
+        /**
+         * @param globalTimeout seconds to give up selections. {@code 0} for no limit.
+         */
+        public void setGlobalTimeout(int globalTimeout) {
+            this.globalTimeout = Math.max(globalTimeout, 0);
+        }
+
+        @Override
+        public boolean configure(StaplerRequest req, JSONObject json) throws FormException {
+            setGlobalMaxCandidates(json.optInt("globalMaxCandidates", 0));
+            setGlobalTimeout(json.optInt("globalTimeout", 0));
+            save();
+            return super.configure(req, json);
         }
 
         @Override
@@ -90,7 +165,8 @@ public class SelectRunStep extends AbstractStepImpl {
 
         @Override
         public String getHelpFile(String fieldName) {
-            if ("selector".equals(fieldName) || "filter".equals(fieldName) || "verbose".equals(fieldName)) {
+            if ("selector".equals(fieldName) || "filter".equals(fieldName) || "verbose".equals(fieldName)
+                    || "maxCandidates".equals(fieldName) || "timeout".equals(fieldName)) {
                 return "/plugin/run-selector/help-" + fieldName + ".html";
             }
             return super.getHelpFile(fieldName);
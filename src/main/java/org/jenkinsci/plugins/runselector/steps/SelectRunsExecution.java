@@ -0,0 +1,109 @@
+package org.jenkinsci.plugins.runselector.steps;
+
+import com.google.inject.Inject;
+import hudson.AbortException;
+import hudson.Functions;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import jenkins.model.Jenkins;
+import org.apache.commons.lang.StringUtils;
+import org.jenkinsci.plugins.runselector.Messages;
+import org.jenkinsci.plugins.runselector.SelectionExecutor;
+import org.jenkinsci.plugins.runselector.context.RunSelectorContext;
+import org.jenkinsci.plugins.workflow.steps.StepContextParameter;
+import org.jenkinsci.plugins.workflow.support.steps.build.RunWrapper;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * The execution of {@link SelectRunsStep}.
+ * The environment of the current build is constructed only once,
+ * and selections run in parallel with {@link SelectionExecutor}.
+ *
+ * @author Alexandru Somai
+ */
+public class SelectRunsExecution extends AbstractSelectionStepExecution<Map<String, RunWrapper>> {
+
+    private static final long serialVersionUID = 1L;
+
+    @Inject
+    private transient SelectRunsStep step;
+
+    @StepContextParameter
+    private transient Run<?, ?> run;
+    @StepContextParameter
+    private transient TaskListener listener;
+
+    @Override
+    protected Map<String, RunWrapper> run() throws Exception {
+        List<SelectRunsStep.Entry> entries = step.getEntries();
+        Set<String> jobNames = new HashSet<String>();
+        for (SelectRunsStep.Entry entry : entries) {
+            if (entry.getJob() == null) {
+                throw new AbortException(Messages.SelectRunStep_MissingJobParameter());
+            }
+            if (!jobNames.add(entry.getJob())) {
+                throw new AbortException(Messages.SelectRunsStep_DuplicateJob(entry.getJob()));
+            }
+        }
+
+        Jenkins jenkins = Jenkins.getInstance();
+        if (jenkins == null) {
+            throw new IllegalStateException("Jenkins has not been started, or was already shut down");
+        }
+
+        // shared among selections not to construct the environment for each of them.
+        RunSelectorContext baseContext = new RunSelectorContext(jenkins, run, listener);
+        baseContext.setVerbose(step.isVerbose());
+        // shared among all entries.
+        baseContext.setBudget(SelectRunExecution.createBudget(step.getMaxCandidates(), step.getTimeout()));
+
+        List<Future<Run<?, ?>>> futures = new ArrayList<Future<Run<?, ?>>>(entries.size());
+        for (final SelectRunsStep.Entry entry : entries) {
+            final RunSelectorContext context = baseContext.clone();
+            futures.add(SelectionExecutor.submit(new Callable<Run<?, ?>>() {
+                @Override
+                public Run<?, ?> call() throws Exception {
+                    return SelectRunExecution.select(entry.getJob(), entry.getSelector(), entry.getFilter(), context);
+                }
+            }));
+        }
+
+        Map<String, RunWrapper> result = new LinkedHashMap<String, RunWrapper>();
+        List<String> failedJobs = new ArrayList<String>();
+        try {
+            for (int i = 0; i < entries.size(); ++i) {
+                String jobName = entries.get(i).getJob();
+                try {
+                    result.put(jobName, new RunWrapper(futures.get(i).get(), false));
+                } catch (ExecutionException e) {
+                    Throwable cause = (e.getCause() != null) ? e.getCause() : e;
+                    if (cause instanceof AbortException) {
+                        listener.error(Messages.SelectRunsStep_EntryFailed(jobName, cause.getMessage()));
+                    } else {
+                        listener.error(Messages.SelectRunsStep_EntryFailed(jobName, Functions.printThrowable(cause)));
+                    }
+                    failedJobs.add(jobName);
+                }
+            }
+        } finally {
+            // stop remaining selections when interrupted.
+            for (Future<Run<?, ?>> future : futures) {
+                future.cancel(true);
+            }
+        }
+
+        if (!failedJobs.isEmpty() && step.isFailOnError()) {
+            throw new AbortException(Messages.SelectRunsStep_Failed(StringUtils.join(failedJobs, ", ")));
+        }
+        return result;
+    }
+}
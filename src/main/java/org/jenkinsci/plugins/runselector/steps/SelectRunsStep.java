@@ -0,0 +1,186 @@
+package org.jenkinsci.plugins.runselector.steps;
+
+import hudson.Extension;
+import hudson.Util;
+import hudson.model.AbstractDescribableImpl;
+import hudson.model.Descriptor;
+import org.jenkinsci.Symbol;
+import org.jenkinsci.plugins.runselector.Messages;
+import org.jenkinsci.plugins.runselector.RunFilter;
+import org.jenkinsci.plugins.runselector.RunSelector;
+import org.jenkinsci.plugins.workflow.steps.AbstractStepDescriptorImpl;
+import org.jenkinsci.plugins.workflow.steps.AbstractStepImpl;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The selectRuns step selects runs from multiple jobs at once,
+ * each based on its own selector and, optionally, run filter.
+ * Selections are resolved in parallel, and the result is a map from job names to selected runs.
+ *
+ * @author Alexandru Somai
+ */
+public class SelectRunsStep extends AbstractStepImpl {
+
+    @Nonnull
+    private final List<Entry> entries;
+
+    private boolean verbose;
+
+    private boolean failOnError = true;
+
+    @CheckForNull
+    private Integer maxCandidates;
+
+    @CheckForNull
+    private Integer timeout;
+
+    @DataBoundConstructor
+    public SelectRunsStep(@CheckForNull List<Entry> entries) {
+        this.entries = (entries != null)
+                ? Collections.unmodifiableList(new ArrayList<Entry>(entries))
+                : Collections.<Entry>emptyList();
+    }
+
+    @Nonnull
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    public boolean isVerbose() {
+        return verbose;
+    }
+
+    @DataBoundSetter
+    public void setVerbose(boolean verbose) {
+        this.verbose = verbose;
+    }
+
+    /**
+     * @return whether to fail when a run cannot be selected for any of entries.
+     *     Otherwise, such entries are just reported and missing in the result.
+     */
+    public boolean isFailOnError() {
+        return failOnError;
+    }
+
+    @DataBoundSetter
+    public void setFailOnError(boolean failOnError) {
+        this.failOnError = failOnError;
+    }
+
+    /**
+     * @return the maximum number of candidates to scan for all entries. {@code 0} for no limit.
+     *     {@code null} to use the system configuration.
+     */
+    @CheckForNull
+    public Integer getMaxCandidates() {
+        return maxCandidates;
+    }
+
+    @DataBoundSetter
+    public void setMaxCandidates(@CheckForNull Integer maxCandidates) {
+        this.maxCandidates = maxCandidates;
+    }
+
+    /**
+     * @return seconds to give up selections of all entries. {@code 0} for no limit.
+     *     {@code null} to use the system configuration.
+     */
+    @CheckForNull
+    public Integer getTimeout() {
+        return timeout;
+    }
+
+    @DataBoundSetter
+    public void setTimeout(@CheckForNull Integer timeout) {
+        this.timeout = timeout;
+    }
+
+    /**
+     * A job to select a run from.
+     */
+    public static class Entry extends AbstractDescribableImpl<Entry> {
+
+        @CheckForNull
+        private final String job;
+
+        @CheckForNull
+        private RunSelector selector;
+
+        @CheckForNull
+        private RunFilter filter;
+
+        @DataBoundConstructor
+        public Entry(String job) {
+            this.job = Util.fixEmptyAndTrim(job);
+        }
+
+        @CheckForNull
+        public String getJob() {
+            return job;
+        }
+
+        @CheckForNull
+        public RunSelector getSelector() {
+            return selector;
+        }
+
+        @DataBoundSetter
+        public void setSelector(RunSelector selector) {
+            this.selector = selector;
+        }
+
+        @CheckForNull
+        public RunFilter getFilter() {
+            return filter;
+        }
+
+        @DataBoundSetter
+        public void setFilter(RunFilter filter) {
+            this.filter = filter;
+        }
+
+        @Symbol("selectRunsEntry")
+        @Extension
+        public static class DescriptorImpl extends Descriptor<Entry> {
+
+            @Override
+            public String getDisplayName() {
+                return Messages.SelectRunsStep_Entry_DisplayName();
+            }
+        }
+    }
+
+    @Extension
+    public static class DescriptorImpl extends AbstractStepDescriptorImpl {
+
+        public DescriptorImpl() {
+            super(SelectRunsExecution.class);
+        }
+
+        @Override
+        public String getDisplayName() {
+            return Messages.SelectRunsStep_DisplayName();
+        }
+
+        @Override
+        public String getFunctionName() {
+            return "selectRuns";
+        }
+
+        @Override
+        public String getHelpFile(String fieldName) {
+            if ("verbose".equals(fieldName) || "maxCandidates".equals(fieldName) || "timeout".equals(fieldName)) {
+                return "/plugin/run-selector/help-" + fieldName + ".html";
+            }
+            return super.getHelpFile(fieldName);
+        }
+    }
+}
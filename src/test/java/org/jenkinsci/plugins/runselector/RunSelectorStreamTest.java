@@ -0,0 +1,218 @@
+package org.jenkinsci.plugins.runselector;
+
+import hudson.model.FreeStyleProject;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import org.jenkinsci.plugins.runselector.cache.FilterOrderCache;
+import org.jenkinsci.plugins.runselector.context.RunSelectorContext;
+import org.jenkinsci.plugins.runselector.context.SelectionBudget;
+import org.jenkinsci.plugins.runselector.context.SelectionBudgetExceededException;
+import org.jenkinsci.plugins.runselector.filters.AndRunFilter;
+import org.jenkinsci.plugins.runselector.metrics.FilterMetrics;
+import org.jenkinsci.plugins.runselector.metrics.SelectionMetrics;
+import org.jenkinsci.plugins.runselector.selectors.StatusRunSelector;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for batches and read-ahead of {@link RunSelector#stream(hudson.model.Job, RunSelectorContext)}.
+ */
+public class RunSelectorStreamTest {
+
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+
+    /**
+     * numbers of builds tested by {@link NumberRunFilter}.
+     */
+    private static final List<Integer> evaluated = Collections.synchronizedList(new ArrayList<Integer>());
+
+    /**
+     * Accepts builds with specified numbers, recording tested builds.
+     */
+    public static class NumberRunFilter extends RunFilter {
+        private final List<Integer> numbers;
+
+        public NumberRunFilter(Integer... numbers) {
+            this.numbers = Arrays.asList(numbers);
+        }
+
+        @Override
+        public boolean isSelectable(@Nonnull Run<?, ?> candidate, @Nonnull RunSelectorContext context) {
+            evaluated.add(candidate.getNumber());
+            return numbers.contains(candidate.getNumber());
+        }
+    }
+
+    /**
+     * {@link NumberRunFilter} allowing batches to read ahead.
+     */
+    public static class CacheableNumberRunFilter extends NumberRunFilter {
+        public CacheableNumberRunFilter(Integer... numbers) {
+            super(numbers);
+        }
+
+        @Override
+        public boolean isCacheable() {
+            return true;
+        }
+    }
+
+    /**
+     * {@link CacheableNumberRunFilter} taking 100 milliseconds for each candidate.
+     */
+    public static class SlowNumberRunFilter extends CacheableNumberRunFilter {
+        public SlowNumberRunFilter(Integer... numbers) {
+            super(numbers);
+        }
+
+        @Override
+        public boolean isSelectable(@Nonnull Run<?, ?> candidate, @Nonnull RunSelectorContext context) {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return super.isSelectable(candidate, context);
+        }
+    }
+
+    private FreeStyleProject job;
+    private Run<?, ?> build;
+
+    @Before
+    public void setUp() throws Exception {
+        job = j.createFreeStyleProject();
+        for (int i = 0; i < 10; ++i) {
+            j.buildAndAssertSuccess(job);
+        }
+        build = j.buildAndAssertSuccess(j.createFreeStyleProject());
+        evaluated.clear();
+    }
+
+    @Test
+    public void noReadAheadForFiltersNotCacheable() throws Exception {
+        RunSelectorContext context = new RunSelectorContext(j.jenkins, build, TaskListener.NULL, new NumberRunFilter(6));
+        Run<?, ?> selected = new StatusRunSelector(StatusRunSelector.BuildStatus.ANY).select(job, context);
+        assertThat(selected.getNumber(), is(6));
+        // no build older than the match is tested.
+        assertThat(evaluated, contains(10, 9, 8, 7, 6));
+    }
+
+    @Test
+    public void readAheadIsBounded() throws Exception {
+        RunSelectorContext context = new RunSelectorContext(j.jenkins, build, TaskListener.NULL, new CacheableNumberRunFilter(9));
+        context.setBudget(new SelectionBudget(0, 0));
+        Run<?, ?> selected = new StatusRunSelector(StatusRunSelector.BuildStatus.ANY).select(job, context);
+        assertThat(selected.getNumber(), is(9));
+        // batches of 1 and 2 builds: #8 is read ahead.
+        assertThat(evaluated, contains(10, 9, 8));
+        // builds read ahead are not counted.
+        assertThat(context.getBudget().getScanned(), is(2));
+    }
+
+    @Test
+    public void batchesGrowOnlyWithoutMatches() throws Exception {
+        RunSelectorContext context = new RunSelectorContext(j.jenkins, build, TaskListener.NULL, new CacheableNumberRunFilter(10, 9, 3));
+        List<Run<?, ?>> selected = new StatusRunSelector(StatusRunSelector.BuildStatus.ANY).selectAll(job, context, 0);
+        assertThat(numbers(selected), contains(10, 9, 3));
+        assertThat(evaluated, contains(10, 9, 8, 7, 6, 5, 4, 3, 2, 1));
+    }
+
+    @Test
+    public void budgetCountsOnlyScannedBuilds() throws Exception {
+        RunSelectorContext context = new RunSelectorContext(j.jenkins, build, TaskListener.NULL, new NumberRunFilter(9));
+        context.setBudget(new SelectionBudget(2, 0));
+        assertThat(new StatusRunSelector(StatusRunSelector.BuildStatus.ANY).select(job, context).getNumber(), is(9));
+
+        context = new RunSelectorContext(j.jenkins, build, TaskListener.NULL, new NumberRunFilter(8));
+        context.setBudget(new SelectionBudget(2, 0));
+        evaluated.clear();
+        try {
+            new StatusRunSelector(StatusRunSelector.BuildStatus.ANY).select(job, context);
+            fail();
+        } catch (SelectionBudgetExceededException e) {
+            // expected
+        }
+        // batches don't exceed the remaining budget.
+        assertThat(evaluated, contains(10, 9, 8));
+    }
+
+    @Test
+    public void timeoutStopsBatches() throws Exception {
+        RunSelectorContext context = new RunSelectorContext(j.jenkins, build, TaskListener.NULL, new SlowNumberRunFilter());
+        context.setBudget(new SelectionBudget(0, 350));
+        try {
+            new StatusRunSelector(StatusRunSelector.BuildStatus.ANY).select(job, context);
+            fail();
+        } catch (SelectionBudgetExceededException e) {
+            // expected
+        }
+        // batches of 1, 2 and 4 builds: #7 takes the selection past the deadline,
+        // and the rest of the batch (#6 to #4) is not tested.
+        assertThat(evaluated.contains(6), is(false));
+    }
+
+    @Test
+    public void filterSubsetPassesOnlySubset() throws Exception {
+        List<Run<?, ?>> candidates = new ArrayList<Run<?, ?>>();
+        for (int i = 10; i > 0; --i) {
+            candidates.add(job.getBuildByNumber(i));
+        }
+        RunSelectorContext context = new RunSelectorContext(j.jenkins, build, TaskListener.NULL);
+        NumberRunFilter even = new NumberRunFilter(10, 8, 6, 4, 2);
+        NumberRunFilter some = new NumberRunFilter(8, 7, 2);
+
+        BitSet subset = new BitSet();
+        subset.set(0, 5);
+        BitSet accepted = RunFilter.filterSubset(some, candidates, subset, context);
+        // only #10 to #6 are tested.
+        assertThat(evaluated, contains(10, 9, 8, 7, 6));
+        assertThat(accepted, is(bits(2, 3)));
+
+        evaluated.clear();
+        FilterMetrics metrics = SelectionMetrics.get().getFilterMetrics(NumberRunFilter.class);
+        metrics.reset();
+        accepted = RunFilter.filterAll(even, candidates, context);
+        assertThat(accepted, is(bits(0, 2, 4, 6, 8)));
+        assertThat(metrics.getEvaluated(), is(10L));
+        assertThat(metrics.getRejected(), is(5L));
+
+        // AndRunFilter passes to later filters only candidates accepted before.
+        FilterOrderCache.get().clear();
+        evaluated.clear();
+        accepted = new AndRunFilter(even, some).filterBatch(candidates, context);
+        assertThat(accepted, is(bits(2, 8)));
+        assertThat(evaluated, contains(10, 9, 8, 7, 6, 5, 4, 3, 2, 1, 10, 8, 6, 4, 2));
+    }
+
+    private static List<Integer> numbers(List<Run<?, ?>> runs) {
+        List<Integer> numbers = new ArrayList<Integer>();
+        for (Run<?, ?> run : runs) {
+            numbers.add(run.getNumber());
+        }
+        return numbers;
+    }
+
+    private static BitSet bits(int... indices) {
+        BitSet bits = new BitSet();
+        for (int index : indices) {
+            bits.set(index);
+        }
+        return bits;
+    }
+}
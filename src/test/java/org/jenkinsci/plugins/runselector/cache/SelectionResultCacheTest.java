@@ -0,0 +1,168 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 Alexandru Somai
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jenkinsci.plugins.runselector.cache;
+
+import hudson.model.FreeStyleProject;
+import hudson.model.Items;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import org.jenkinsci.plugins.runselector.RunSelector;
+import org.jenkinsci.plugins.runselector.context.RunSelectorContext;
+import org.jenkinsci.plugins.runselector.filters.DisplayNameRunFilter;
+import org.jenkinsci.plugins.runselector.selectors.StatusRunSelector;
+import org.jenkinsci.plugins.runselector.selectors.TriggeringRunSelector;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.MockFolder;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link SelectionResultCache}.
+ *
+ * @author Alexandru Somai
+ */
+public class SelectionResultCacheTest {
+
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+
+    @Test
+    public void testResultIsCachedUntilInvalidated() throws Exception {
+        FreeStyleProject jobToSelect = j.createFreeStyleProject();
+        j.assertBuildStatusSuccess(jobToSelect.scheduleBuild2(0));
+        j.assertBuildStatusSuccess(jobToSelect.scheduleBuild2(0));
+
+        FreeStyleProject selecter = j.createFreeStyleProject();
+        Run<?, ?> run = j.assertBuildStatusSuccess(selecter.scheduleBuild2(0));
+
+        SelectionResultCache cache = new SelectionResultCache(true, 16, TimeUnit.MINUTES.toNanos(10));
+        RunSelector selector = new StatusRunSelector();
+
+        Run<?, ?> selectedRun = cache.select(selector, jobToSelect, new RunSelectorContext(j.jenkins, run, TaskListener.NULL));
+        assertThat(selectedRun.getNumber(), is(2));
+        assertThat(cache.getMissCount(), is(1L));
+
+        // another instance with the same configuration.
+        selectedRun = cache.select(new StatusRunSelector(), jobToSelect, new RunSelectorContext(j.jenkins, run, TaskListener.NULL));
+        assertThat(selectedRun.getNumber(), is(2));
+        assertThat(cache.getHitCount(), is(1L));
+
+        // no build is selected.
+        selectedRun = cache.select(selector, jobToSelect, new RunSelectorContext(
+                j.jenkins, run, TaskListener.NULL, new DisplayNameRunFilter("nothing")));
+        assertThat(selectedRun, nullValue());
+        selectedRun = cache.select(selector, jobToSelect, new RunSelectorContext(
+                j.jenkins, run, TaskListener.NULL, new DisplayNameRunFilter("nothing")));
+        assertThat(selectedRun, nullValue());
+        assertThat(cache.getHitCount(), is(2L));
+
+        j.assertBuildStatusSuccess(jobToSelect.scheduleBuild2(0));
+        cache.invalidate(jobToSelect.getFullName());
+        selectedRun = cache.select(selector, jobToSelect, new RunSelectorContext(j.jenkins, run, TaskListener.NULL));
+        assertThat(selectedRun.getNumber(), is(3));
+        assertThat(cache.getHitCount(), is(2L));
+        assertThat(cache.getMissCount(), is(3L));
+    }
+
+    @Test
+    public void testDeletedJobIsForgotten() throws Exception {
+        FreeStyleProject jobToSelect = j.createFreeStyleProject();
+        j.assertBuildStatusSuccess(jobToSelect.scheduleBuild2(0));
+
+        FreeStyleProject selecter = j.createFreeStyleProject();
+        Run<?, ?> run = j.assertBuildStatusSuccess(selecter.scheduleBuild2(0));
+
+        SelectionResultCache cache = new SelectionResultCache(true, 16, TimeUnit.MINUTES.toNanos(10));
+        RunSelector selector = new StatusRunSelector();
+        cache.select(selector, jobToSelect, new RunSelectorContext(j.jenkins, run, TaskListener.NULL));
+        assertThat(cache.getTrackedJobCount(), is(1));
+
+        String name = jobToSelect.getName();
+        cache.forget(jobToSelect.getFullName());
+        assertThat(cache.getTrackedJobCount(), is(0));
+
+        // a new job with the same name doesn't get results of the deleted one.
+        jobToSelect.delete();
+        jobToSelect = j.createFreeStyleProject(name);
+        j.assertBuildStatusSuccess(jobToSelect.scheduleBuild2(0));
+        j.assertBuildStatusSuccess(jobToSelect.scheduleBuild2(0));
+        Run<?, ?> selectedRun = cache.select(selector, jobToSelect, new RunSelectorContext(j.jenkins, run, TaskListener.NULL));
+        assertThat(selectedRun.getNumber(), is(2));
+        assertThat(cache.getHitCount(), is(0L));
+        assertThat(cache.getMissCount(), is(2L));
+    }
+
+    @Test
+    public void testJobsInFolderAreForgotten() throws Exception {
+        MockFolder deleted = j.createFolder("deleted");
+        FreeStyleProject jobInDeleted = deleted.createProject(FreeStyleProject.class, "p");
+        j.assertBuildStatusSuccess(jobInDeleted.scheduleBuild2(0));
+        MockFolder moved = j.createFolder("moved");
+        FreeStyleProject jobInMoved = moved.createProject(FreeStyleProject.class, "p");
+        j.assertBuildStatusSuccess(jobInMoved.scheduleBuild2(0));
+
+        FreeStyleProject selecter = j.createFreeStyleProject();
+        Run<?, ?> run = j.assertBuildStatusSuccess(selecter.scheduleBuild2(0));
+
+        SelectionResultCache cache = new SelectionResultCache(true, 16, TimeUnit.MINUTES.toNanos(10));
+        RunSelector selector = new StatusRunSelector();
+        cache.select(selector, jobInDeleted, new RunSelectorContext(j.jenkins, run, TaskListener.NULL));
+        cache.select(selector, jobInMoved, new RunSelectorContext(j.jenkins, run, TaskListener.NULL));
+        assertThat(cache.getTrackedJobCount(), is(2));
+
+        // only the folder is notified when deleted.
+        deleted.delete();
+        cache.forget(deleted, deleted.getFullName());
+        assertThat(cache.getTrackedJobCount(), is(1));
+
+        Items.move(moved, j.createFolder("parent"));
+        cache.forget(moved, "moved");
+        assertThat(cache.getTrackedJobCount(), is(0));
+    }
+
+    @Test
+    public void testNotCacheable() throws Exception {
+        FreeStyleProject jobToSelect = j.createFreeStyleProject();
+        j.assertBuildStatusSuccess(jobToSelect.scheduleBuild2(0));
+
+        FreeStyleProject selecter = j.createFreeStyleProject();
+        Run<?, ?> run = j.assertBuildStatusSuccess(selecter.scheduleBuild2(0));
+
+        SelectionResultCache cache = new SelectionResultCache(true, 16, TimeUnit.MINUTES.toNanos(10));
+        // depends on the causes of the current build.
+        RunSelector selector = new TriggeringRunSelector();
+        cache.select(selector, jobToSelect, new RunSelectorContext(j.jenkins, run, TaskListener.NULL));
+        cache.select(selector, jobToSelect, new RunSelectorContext(j.jenkins, run, TaskListener.NULL));
+        assertThat(cache.getHitCount(), is(0L));
+        assertThat(cache.getMissCount(), is(0L));
+        assertThat(cache.size(), is(0));
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 Alexandru Somai
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.runselector.codec;
+
+import org.jenkinsci.plugins.runselector.RunFilter;
+import org.jenkinsci.plugins.runselector.RunSelector;
+import org.jenkinsci.plugins.runselector.filters.AndRunFilter;
+import org.jenkinsci.plugins.runselector.filters.DisplayNameRunFilter;
+import org.jenkinsci.plugins.runselector.filters.DownstreamRunFilter;
+import org.jenkinsci.plugins.runselector.filters.NotRunFilter;
+import org.jenkinsci.plugins.runselector.filters.ParametersRunFilter;
+import org.jenkinsci.plugins.runselector.filters.SavedRunFilter;
+import org.jenkinsci.plugins.runselector.selectors.FallbackRunSelector;
+import org.jenkinsci.plugins.runselector.selectors.StatusRunSelector;
+import org.jenkinsci.plugins.runselector.selectors.TriggeringRunSelector;
+import org.junit.Test;
+import org.kohsuke.stapler.DataBoundConstructor;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link CompactCodec}.
+ */
+public class CompactCodecTest {
+
+    private final CompactCodec codec = new CompactCodec(Arrays.<Class<?>>asList(
+            StatusRunSelector.class,
+            TriggeringRunSelector.class,
+            FallbackRunSelector.class,
+            AndRunFilter.class,
+            NotRunFilter.class,
+            DisplayNameRunFilter.class,
+            DownstreamRunFilter.class,
+            ParametersRunFilter.class,
+            SavedRunFilter.class
+    ));
+
+    @Test
+    public void encodeSelector() throws Exception {
+        assertThat(
+                codec.encode(new StatusRunSelector(StatusRunSelector.BuildStatus.SUCCESSFUL)),
+                is("rs1:{\"@\":\"StatusRunSelector\",\"buildStatus\":\"SUCCESSFUL\"}")
+        );
+    }
+
+    @Test
+    public void roundTrip() throws Exception {
+        TriggeringRunSelector triggering = new TriggeringRunSelector();
+        triggering.setUpstreamFilterStrategy(TriggeringRunSelector.UpstreamFilterStrategy.UseNewest);
+        triggering.setAllowUpstreamDependencies(true);
+        FallbackRunSelector selector = new FallbackRunSelector(Arrays.asList(
+                new FallbackRunSelector.Entry(
+                        triggering,
+                        new AndRunFilter(
+                                new ParametersRunFilter("PARAM1=\"quoted\\value\""),
+                                new SavedRunFilter()
+                        )
+                ),
+                new FallbackRunSelector.Entry(
+                        new StatusRunSelector(StatusRunSelector.BuildStatus.STABLE),
+                        new NotRunFilter(new DisplayNameRunFilter("#1"))
+                )
+        ));
+        selector.setParallel(true);
+
+        String encoded = codec.encode(selector);
+        assertThat(encoded, notNullValue());
+        RunSelector decoded = codec.decode(encoded, RunSelector.class);
+        assertThat(decoded, instanceOf(FallbackRunSelector.class));
+        // the encoding is canonical.
+        assertThat(codec.encode(decoded), is(encoded));
+
+        FallbackRunSelector fallback = (FallbackRunSelector) decoded;
+        assertThat(fallback.isParallel(), is(true));
+        TriggeringRunSelector decodedTriggering = (TriggeringRunSelector) fallback.getEntryList().get(0).getRunSelector();
+        assertThat(decodedTriggering.getUpstreamFilterStrategy(), is(TriggeringRunSelector.UpstreamFilterStrategy.UseNewest));
+        assertThat(decodedTriggering.isAllowUpstreamDependencies(), is(true));
+        AndRunFilter and = (AndRunFilter) fallback.getEntryList().get(0).getRunFilter();
+        assertThat(((ParametersRunFilter) and.getRunFilterList().get(0)).getParamsToMatch(), is("PARAM1=\"quoted\\value\""));
+
+        String filter = codec.encode(new DownstreamRunFilter("upstream", "${UPSTREAM_NUMBER}"));
+        assertThat(codec.encode(codec.decode(filter, RunFilter.class)), is(filter));
+    }
+
+    @Test
+    public void fallBackForTypesNotRestorable() throws Exception {
+        CompactCodec codec = new CompactCodec(Arrays.<Class<?>>asList(SetProperty.class, CharProperty.class));
+        assertThat(codec.encode(new SetProperty(Collections.singleton("value"))), nullValue());
+        assertThat(codec.encode(new CharProperty('c')), nullValue());
+    }
+
+    public static class SetProperty extends RunFilter {
+        private final Set<String> values;
+
+        @DataBoundConstructor
+        public SetProperty(Set<String> values) {
+            this.values = values;
+        }
+
+        public Set<String> getValues() {
+            return values;
+        }
+    }
+
+    public static class CharProperty extends RunFilter {
+        private final char value;
+
+        @DataBoundConstructor
+        public CharProperty(char value) {
+            this.value = value;
+        }
+
+        public char getValue() {
+            return value;
+        }
+    }
+
+    @Test
+    public void rejectUnregisteredClasses() throws Exception {
+        try {
+            codec.decode("rs1:{\"@\":\"java.io.File\",\"path\":\"/\"}", Object.class);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            // not a selector.
+            codec.decode("rs1:{\"@\":\"SavedRunFilter\"}", RunSelector.class);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            codec.decode("rs1:{\"@\":\"SavedRunFilter\"", RunFilter.class);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+}
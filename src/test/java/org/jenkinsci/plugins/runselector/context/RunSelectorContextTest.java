@@ -0,0 +1,271 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 Alexandru Somai
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.runselector.context;
+
+import hudson.EnvVars;
+import hudson.model.EnvironmentContributor;
+import hudson.model.FreeStyleProject;
+import hudson.model.ParametersAction;
+import hudson.model.ParametersDefinitionProperty;
+import hudson.model.Run;
+import hudson.model.StringParameterDefinition;
+import hudson.model.StringParameterValue;
+import hudson.model.TaskListener;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.TestExtension;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link RunSelectorContext}.
+ */
+public class RunSelectorContextTest {
+
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+
+    /**
+     * An extension cloned with clones of the context.
+     */
+    public static class CloneableExtension implements Cloneable {
+        public int value;
+
+        @Override
+        public CloneableExtension clone() {
+            try {
+                return (CloneableExtension) super.clone();
+            } catch (CloneNotSupportedException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    @Test
+    public void cloneDoesNotShareModifiedEnvVars() throws Exception {
+        FreeStyleProject p = j.createFreeStyleProject();
+        Run<?, ?> run = j.assertBuildStatusSuccess(p.scheduleBuild2(0));
+        RunSelectorContext context = new RunSelectorContext(j.jenkins, run, TaskListener.NULL);
+
+        RunSelectorContext clone1 = context.clone();
+        clone1.getEnvVars().put("FOO", "clone1");
+        assertThat(clone1.expand("$FOO"), is("clone1"));
+        assertThat(context.expand("$FOO"), is("$FOO"));
+
+        EnvVars envVars = context.getEnvVars();
+        envVars.put("FOO", "parent");
+        RunSelectorContext clone2 = context.clone();
+        // modifications after cloning are not visible to the clone.
+        envVars.put("FOO", "modified");
+        assertThat(clone2.expand("$FOO"), is("parent"));
+        assertThat(context.expand("$FOO"), is("modified"));
+        assertThat(clone2.getEnvVars(), not(sameInstance(envVars)));
+
+        // removals are copied too.
+        envVars.remove("FOO");
+        RunSelectorContext clone3 = context.clone();
+        assertThat(clone3.expand("$FOO"), is("$FOO"));
+        assertThat(clone3.getEnvVars().containsKey("FOO"), is(false));
+        assertThat(clone3.getEnvVars().get("BUILD_NUMBER"), is("1"));
+        assertThat(clone3.getEnvVars().entrySet().size(), is(envVars.size()));
+    }
+
+    @Test
+    public void getEnvVarsKeepsMemoizedValues() throws Exception {
+        FreeStyleProject p = j.createFreeStyleProject();
+        Run<?, ?> run = j.assertBuildStatusSuccess(p.scheduleBuild2(0));
+        RunSelectorContext context = new RunSelectorContext(j.jenkins, run, TaskListener.NULL);
+        Object owner = new Object();
+        context.setPreparedState(owner, "state");
+
+        context.getEnvVars();
+        context.getEnvVars();
+        assertThat(context.getPreparedState(owner, String.class), is("state"));
+    }
+
+    @Test
+    public void modifiedEnvVarsDiscardMemoizedValues() throws Exception {
+        FreeStyleProject p = j.createFreeStyleProject();
+        Run<?, ?> run = j.assertBuildStatusSuccess(p.scheduleBuild2(0));
+        RunSelectorContext context = new RunSelectorContext(j.jenkins, run, TaskListener.NULL);
+        Object owner = new Object();
+
+        EnvVars envVars = context.getEnvVars();
+        envVars.put("FOO", "value1");
+        assertThat(context.expand("$FOO"), is("value1"));
+        context.setPreparedState(owner, "state");
+
+        envVars.put("FOO", "value2");
+        assertThat(context.expand("$FOO"), is("value2"));
+        assertThat(context.getPreparedState(owner, String.class), nullValue());
+
+        envVars.remove("FOO");
+        assertThat(context.expand("$FOO"), is("$FOO"));
+
+        // modified without put().
+        envVars.putAll(Collections.singletonMap("FOO", "value3"));
+        assertThat(context.expand("$FOO"), is("value3"));
+        for (Map.Entry<String, String> e : envVars.entrySet()) {
+            if (e.getKey().equals("FOO")) {
+                e.setValue("value4");
+            }
+        }
+        assertThat(context.expand("$FOO"), is("value4"));
+    }
+
+    @Test
+    public void environmentConstructedOnDemand() throws Exception {
+        FreeStyleProject p = j.createFreeStyleProject();
+        p.addProperty(new ParametersDefinitionProperty(new StringParameterDefinition("PARAM", "")));
+        Run<?, ?> run = j.assertBuildStatusSuccess(p.scheduleBuild2(
+                0,
+                null,
+                new ParametersAction(new StringParameterValue("PARAM", "value"))
+        ));
+        int constructed = CountingEnvironmentContributor.count.get();
+        RunSelectorContext context = new RunSelectorContext(j.jenkins, run, TaskListener.NULL);
+
+        // clones taken before the construction share the environment.
+        RunSelectorContext clone = context.clone();
+        context.setPreparedState(context, "state");
+        assertThat(context.getPreparedState(context, String.class), is("state"));
+        assertThat(CountingEnvironmentContributor.count.get(), is(constructed));
+
+        assertThat(clone.expand("$PARAM"), is("value"));
+        assertThat(context.expand("$PARAM"), is("value"));
+        assertThat(context.getEnvVars().get("PARAM"), is("value"));
+        assertThat(CountingEnvironmentContributor.count.get(), is(constructed + 1));
+    }
+
+    @Test
+    public void environmentFailureIsRethrown() throws Exception {
+        FreeStyleProject p = j.createFreeStyleProject();
+        Run<?, ?> run = j.assertBuildStatusSuccess(p.scheduleBuild2(0));
+        RunSelectorContext context = new RunSelectorContext(j.jenkins, run, TaskListener.NULL);
+        CountingEnvironmentContributor.failing = run;
+        try {
+            for (int i = 0; i < 2; ++i) {
+                try {
+                    context.expand("$BUILD_NUMBER");
+                    fail();
+                } catch (EnvironmentUnavailableException e) {
+                    assertThat(e.getCause(), instanceOf(IOException.class));
+                }
+            }
+            // the failure is memoized and not retried.
+            CountingEnvironmentContributor.failing = null;
+            try {
+                context.getEnvVars();
+                fail();
+            } catch (EnvironmentUnavailableException e) {
+                assertThat(e.getCause(), instanceOf(IOException.class));
+            }
+        } finally {
+            CountingEnvironmentContributor.failing = null;
+        }
+        // new contexts construct the environment again.
+        assertThat(new RunSelectorContext(j.jenkins, run, TaskListener.NULL).expand("$BUILD_NUMBER"), is("1"));
+    }
+
+    /**
+     * Counts constructions of environment variables, and fails them for a specified build.
+     */
+    @TestExtension
+    public static class CountingEnvironmentContributor extends EnvironmentContributor {
+        static final AtomicInteger count = new AtomicInteger();
+        static volatile Run<?, ?> failing;
+
+        @Override
+        public void buildEnvironmentFor(@Nonnull Run r, @Nonnull EnvVars envs, @Nonnull TaskListener listener)
+                throws IOException, InterruptedException {
+            count.incrementAndGet();
+            if (r == failing) {
+                throw new IOException("Failed for testing");
+            }
+        }
+    }
+
+    @Test
+    public void typedSlots() throws Exception {
+        FreeStyleProject p = j.createFreeStyleProject();
+        Run<?, ?> run = j.assertBuildStatusSuccess(p.scheduleBuild2(0));
+        RunSelectorContext context = new RunSelectorContext(j.jenkins, run, TaskListener.NULL);
+        ContextKey<CloneableExtension> key1 = new ContextKey<CloneableExtension>(CloneableExtension.class);
+        ContextKey<CloneableExtension> key2 = new ContextKey<CloneableExtension>(CloneableExtension.class);
+        assertThat(context.get(key1), nullValue());
+
+        CloneableExtension ext = new CloneableExtension();
+        ext.value = 1;
+        assertThat(context.put(key1, ext), nullValue());
+        assertThat(context.get(key1), sameInstance(ext));
+        // keys are distinguished with the identity.
+        assertThat(context.get(key2), nullValue());
+        // slots are not extensions.
+        assertThat(context.getExtension(CloneableExtension.class), nullValue());
+
+        RunSelectorContext clone = context.clone();
+        assertThat(clone.get(key1), not(sameInstance(ext)));
+        assertThat(clone.get(key1).value, is(1));
+
+        assertThat(context.put(key1, null), sameInstance(ext));
+        assertThat(context.get(key1), nullValue());
+        assertThat(clone.get(key1), notNullValue());
+    }
+
+    @Test
+    public void cloneExtensions() throws Exception {
+        FreeStyleProject p = j.createFreeStyleProject();
+        Run<?, ?> run = j.assertBuildStatusSuccess(p.scheduleBuild2(0));
+        RunSelectorContext context = new RunSelectorContext(j.jenkins, run, TaskListener.NULL);
+        CloneableExtension ext = new CloneableExtension();
+        ext.value = 1;
+        context.addExtension(ext);
+        context.addExtension("not cloneable");
+
+        RunSelectorContext clone = context.clone();
+        CloneableExtension cloned = clone.getExtension(CloneableExtension.class);
+        assertThat(cloned, notNullValue());
+        assertThat(cloned, not(sameInstance(ext)));
+        assertThat(cloned.value, is(1));
+        assertThat(clone.getExtension(String.class), is("not cloneable"));
+
+        cloned.value = 2;
+        assertThat(ext.value, is(1));
+        assertThat(clone.getExtension(Integer.class), nullValue());
+    }
+}
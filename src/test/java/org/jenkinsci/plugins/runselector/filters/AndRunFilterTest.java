@@ -0,0 +1,89 @@
+package org.jenkinsci.plugins.runselector.filters;
+
+import hudson.model.FreeStyleProject;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import org.jenkinsci.plugins.runselector.RunFilter;
+import org.jenkinsci.plugins.runselector.cache.FilterOrderCache;
+import org.jenkinsci.plugins.runselector.context.RunSelectorContext;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link AndRunFilter}.
+ */
+public class AndRunFilterTest {
+
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+
+    /**
+     * Records names of evaluated filters.
+     */
+    private static final List<String> evaluated = Collections.synchronizedList(new ArrayList<String>());
+
+    /**
+     * A filter recording evaluations.
+     */
+    public static class RecordingRunFilter extends RunFilter {
+        private final String name;
+        private final boolean accept;
+
+        public RecordingRunFilter(String name, boolean accept) {
+            this.name = name;
+            this.accept = accept;
+        }
+
+        @Override
+        public boolean isSelectable(@Nonnull Run<?, ?> candidate, @Nonnull RunSelectorContext context) {
+            evaluated.add(name);
+            if (accept) {
+                // costs more and decides nothing.
+                try {
+                    Thread.sleep(5);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return accept;
+        }
+    }
+
+    @Test
+    public void learnedOrderIsReusedForSameConfiguration() throws Exception {
+        FilterOrderCache.get().clear();
+        FreeStyleProject p = j.createFreeStyleProject();
+        Run<?, ?> run1 = j.buildAndAssertSuccess(p);
+        Run<?, ?> run2 = j.buildAndAssertSuccess(p);
+        List<Run<?, ?>> candidates = Arrays.<Run<?, ?>>asList(run2, run1);
+
+        RunFilter filter = new AndRunFilter(new RecordingRunFilter("slow", true), new RecordingRunFilter("rejecting", false));
+        evaluated.clear();
+        assertThat(filter.filterBatch(candidates, new RunSelectorContext(j.jenkins, run2, TaskListener.NULL)).isEmpty(), is(true));
+        assertThat(evaluated, contains("slow", "slow", "rejecting", "rejecting"));
+        assertThat(FilterOrderCache.get().size(), is(1));
+
+        // another instance with the same configuration starts with the learned order.
+        filter = new AndRunFilter(new RecordingRunFilter("slow", true), new RecordingRunFilter("rejecting", false));
+        evaluated.clear();
+        assertThat(filter.filterBatch(candidates, new RunSelectorContext(j.jenkins, run2, TaskListener.NULL)).isEmpty(), is(true));
+        assertThat(evaluated, contains("rejecting", "rejecting"));
+
+        // a different configuration doesn't share the order.
+        filter = new AndRunFilter(new RecordingRunFilter("slow", true), new RecordingRunFilter("other", false));
+        evaluated.clear();
+        filter.filterBatch(candidates, new RunSelectorContext(j.jenkins, run2, TaskListener.NULL));
+        assertThat(evaluated, contains("slow", "slow", "other", "other"));
+    }
+}
@@ -86,6 +86,39 @@ public class DisplayNameRunFilterTest {
         assertThat(selectedRun, nullValue());
     }
 
+    @Test
+    public void testDisplayNameRenamed() throws Exception {
+        RunSelector selector = new StatusRunSelector();
+        Run<?, ?> build1 = jobToSelect.getBuildByNumber(1);
+        build1.setDisplayName("Renamed1");
+
+        Run selectedRun = selector.select(jobToSelect, new RunSelectorContext(
+                j.jenkins, build1, TaskListener.NULL, new DisplayNameRunFilter("Renamed1")));
+        assertThat(selectedRun, notNullValue());
+        assertThat(selectedRun.getNumber(), is(1));
+
+        // builds without custom display names are named by their numbers.
+        selectedRun = selector.select(jobToSelect, new RunSelectorContext(
+                j.jenkins, build1, TaskListener.NULL, new DisplayNameRunFilter("#3")));
+        assertThat(selectedRun, notNullValue());
+        assertThat(selectedRun.getNumber(), is(3));
+
+        build1.setDisplayName("Renamed2");
+        selectedRun = selector.select(jobToSelect, new RunSelectorContext(
+                j.jenkins, build1, TaskListener.NULL, new DisplayNameRunFilter("Renamed1")));
+        assertThat(selectedRun, nullValue());
+        selectedRun = selector.select(jobToSelect, new RunSelectorContext(
+                j.jenkins, build1, TaskListener.NULL, new DisplayNameRunFilter("Renamed2")));
+        assertThat(selectedRun, notNullValue());
+        assertThat(selectedRun.getNumber(), is(1));
+
+        build1.setDisplayName(null);
+        selectedRun = selector.select(jobToSelect, new RunSelectorContext(
+                j.jenkins, build1, TaskListener.NULL, new DisplayNameRunFilter("#1")));
+        assertThat(selectedRun, notNullValue());
+        assertThat(selectedRun.getNumber(), is(1));
+    }
+
     @Test
     public void testDisplayNameWorkflow() throws Exception {
         jobToSelect.getBuildByNumber(2).setDisplayName("RC1");
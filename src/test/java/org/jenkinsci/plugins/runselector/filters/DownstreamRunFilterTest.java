@@ -0,0 +1,56 @@
+package org.jenkinsci.plugins.runselector.filters;
+
+import hudson.model.FreeStyleProject;
+import hudson.model.Run;
+import hudson.util.StreamTaskListener;
+import org.apache.commons.lang.StringUtils;
+import org.jenkinsci.plugins.runselector.context.RunSelectorContext;
+import org.jenkinsci.plugins.runselector.selectors.StatusRunSelector;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+import java.util.List;
+
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link DownstreamRunFilter}.
+ */
+public class DownstreamRunFilterTest {
+
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+
+    @Test
+    public void upstreamProjectResolvedOncePerSelection() throws Exception {
+        FreeStyleProject p = j.createFreeStyleProject();
+        for (int i = 0; i < 3; ++i) {
+            j.assertBuildStatusSuccess(p.scheduleBuild2(0));
+        }
+        Run<?, ?> run = j.assertBuildStatusSuccess(j.createFreeStyleProject().scheduleBuild2(0));
+        DownstreamRunFilter filter = new DownstreamRunFilter("nosuchproject", "1");
+        String message = "Upstream project 'nosuchproject' is not found.";
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StreamTaskListener listener = new StreamTaskListener(out, Charset.defaultCharset());
+        RunSelectorContext context = new RunSelectorContext(j.jenkins, run, listener);
+        context.setRunFilter(filter);
+        List<Run<?, ?>> selected = new StatusRunSelector(StatusRunSelector.BuildStatus.ANY).selectAll(p, context, 0);
+        listener.getLogger().flush();
+        assertThat(selected, is(empty()));
+        // tested against each of the 3 candidates.
+        assertThat(StringUtils.countMatches(out.toString(), message), is(1));
+
+        // resolved again for another selection.
+        context = new RunSelectorContext(j.jenkins, run, listener);
+        context.setRunFilter(filter);
+        new StatusRunSelector(StatusRunSelector.BuildStatus.ANY).select(p, context);
+        listener.getLogger().flush();
+        assertThat(StringUtils.countMatches(out.toString(), message), is(2));
+    }
+}
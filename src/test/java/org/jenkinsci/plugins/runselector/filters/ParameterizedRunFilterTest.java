@@ -31,6 +31,9 @@ import hudson.model.Result;
 import hudson.model.StringParameterDefinition;
 import hudson.model.StringParameterValue;
 import org.apache.commons.lang.RandomStringUtils;
+import org.jenkinsci.plugins.runselector.RunFilter;
+import org.jenkinsci.plugins.runselector.cache.XmlObjectCache;
+import org.jenkinsci.plugins.runselector.codec.CompactCodec;
 import org.jenkinsci.plugins.runselector.steps.SelectRunStep;
 import org.jenkinsci.plugins.workflow.cps.CpsFlowDefinition;
 import org.jenkinsci.plugins.workflow.job.WorkflowJob;
@@ -42,6 +45,12 @@ import org.junit.Test;
 import org.jvnet.hudson.test.JenkinsRule;
 import org.jvnet.hudson.test.JenkinsRule.WebClient;
 
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.assertThat;
+
 /**
  * Tests for {@link RunFilterParameter} and {@link ParameterizedRunFilter}
  */
@@ -243,4 +252,35 @@ public class ParameterizedRunFilterTest {
 
         j.assertBuildStatusSuccess(selecter.scheduleBuild2(0));
     }
+
+    @Test
+    public void testFilterFromXmlIsCached() throws Exception {
+        String xml = "<AndRunFilter><runFilterList><SavedRunFilter /></runFilterList></AndRunFilter>";
+        XmlObjectCache cache = XmlObjectCache.get();
+        long hits = cache.getHitCount();
+
+        RunFilter filter1 = ParameterizedRunFilter.getFilterFromXml(xml);
+        RunFilter filter2 = ParameterizedRunFilter.getFilterFromXml(xml);
+
+        assertThat(filter1, instanceOf(AndRunFilter.class));
+        assertThat(filter2, sameInstance(filter1));
+        assertThat(cache.getHitCount(), is(hits + 1));
+    }
+
+    @Test
+    public void testCompactFilterIsDecodedAndCached() throws Exception {
+        RunFilter filter = new AndRunFilter(new ParametersRunFilter("PARAM1=VALUE1"), new SavedRunFilter());
+        String encoded = ParameterizedRunFilter.encode(filter);
+        assertThat(encoded, startsWith(CompactCodec.PREFIX));
+        XmlObjectCache cache = XmlObjectCache.get();
+        long hits = cache.getHitCount();
+
+        RunFilter filter1 = ParameterizedRunFilter.getFilterFromXml(encoded);
+        RunFilter filter2 = ParameterizedRunFilter.getFilterFromXml(encoded);
+
+        assertThat(filter1, instanceOf(AndRunFilter.class));
+        j.assertEqualDataBoundBeans(filter, filter1);
+        assertThat(filter2, sameInstance(filter1));
+        assertThat(cache.getHitCount(), is(hits + 1));
+    }
 }
@@ -0,0 +1,61 @@
+package org.jenkinsci.plugins.runselector.filters;
+
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+import hudson.model.ParametersAction;
+import hudson.model.ParametersDefinitionProperty;
+import hudson.model.StringParameterDefinition;
+import hudson.model.StringParameterValue;
+import hudson.model.TaskListener;
+import org.jenkinsci.plugins.runselector.context.RunSelectorContext;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link ParametersRunFilter}.
+ */
+public class ParametersRunFilterTest {
+
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+
+    private FreeStyleBuild buildWithTwoParametersActions() throws Exception {
+        FreeStyleProject p = j.createFreeStyleProject();
+        p.addProperty(new ParametersDefinitionProperty(new StringParameterDefinition("PARAM", "")));
+        FreeStyleBuild b = j.assertBuildStatusSuccess(p.scheduleBuild2(
+                0,
+                null,
+                new ParametersAction(new StringParameterValue("PARAM", "first")),
+                new ParametersAction(new StringParameterValue("PARAM", "second"))
+        ));
+        assertThat(b.getActions(ParametersAction.class).size(), is(2));
+        return b;
+    }
+
+    @Test
+    public void lastParametersActionWins() throws Exception {
+        FreeStyleBuild b = buildWithTwoParametersActions();
+        RunSelectorContext context = new RunSelectorContext(j.jenkins, b, TaskListener.NULL);
+
+        // read directly from ParametersActions.
+        assertThat(new ParametersRunFilter("PARAM=second").isSelectable(b, context), is(true));
+        assertThat(new ParametersRunFilter("PARAM=first").isSelectable(b, context), is(false));
+        // consistent with the environment of the build.
+        assertThat(b.getEnvironment(TaskListener.NULL).get("PARAM"), is("second"));
+    }
+
+    @Test
+    public void lastParametersActionWinsInFullEnvironment() throws Exception {
+        FreeStyleBuild b = buildWithTwoParametersActions();
+        RunSelectorContext context = new RunSelectorContext(j.jenkins, b, TaskListener.NULL);
+
+        // BUILD_NUMBER isn't a build parameter, and requires the full environment.
+        assertThat(new ParametersRunFilter("PARAM=second,BUILD_NUMBER=1").isSelectable(b, context), is(true));
+        assertThat(new ParametersRunFilter("PARAM=first,BUILD_NUMBER=1").isSelectable(b, context), is(false));
+        assertThat(new ParametersRunFilter("PARAM=second,BUILD_NUMBER=2").isSelectable(b, context), is(false));
+    }
+}
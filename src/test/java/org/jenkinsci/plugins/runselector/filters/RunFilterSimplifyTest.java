@@ -0,0 +1,124 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 Alexandru Somai
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jenkinsci.plugins.runselector.filters;
+
+import org.jenkinsci.plugins.runselector.RunFilter;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link RunFilter#simplify()}.
+ *
+ * @author Alexandru Somai
+ */
+public class RunFilterSimplifyTest {
+
+    private final RunFilter a = new DisplayNameRunFilter("a");
+    private final RunFilter b = new DisplayNameRunFilter("b");
+    private final RunFilter c = new DisplayNameRunFilter("c");
+
+    @Test
+    public void testNothingToSimplify() {
+        RunFilter filter = new AndRunFilter(a, new OrRunFilter(b, c));
+        assertThat(filter.simplify(), sameInstance(filter));
+        assertThat(a.simplify(), sameInstance(a));
+    }
+
+    @Test
+    public void testFlattenNested() {
+        RunFilter filter = new AndRunFilter(a, new AndRunFilter(b, c)).simplify();
+        assertThat(filter, instanceOf(AndRunFilter.class));
+        assertThat(((AndRunFilter)filter).getRunFilterList(), contains(a, b, c));
+
+        filter = new OrRunFilter(new OrRunFilter(a, b), c).simplify();
+        assertThat(filter, instanceOf(OrRunFilter.class));
+        assertThat(((OrRunFilter)filter).getRunFilterList(), contains(a, b, c));
+    }
+
+    @Test
+    public void testChildrenNotModifiable() {
+        List<RunFilter> children = new ArrayList<RunFilter>(Arrays.asList(a, new AndRunFilter(b, c)));
+        AndRunFilter filter = new AndRunFilter(children);
+        RunFilter simplified = filter.simplify();
+
+        // the memoized simplified filter stays consistent with children.
+        children.clear();
+        assertThat(filter.getRunFilterList().size(), is(2));
+        assertThat(filter.simplify(), sameInstance(simplified));
+        try {
+            filter.getRunFilterList().clear();
+            fail();
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testConstants() {
+        // NoRunFilter accepts all builds.
+        RunFilter filter = new AndRunFilter(a, new NoRunFilter(), b).simplify();
+        assertThat(((AndRunFilter)filter).getRunFilterList(), contains(a, b));
+
+        assertThat(new OrRunFilter(a, new NoRunFilter()).simplify(), instanceOf(NoRunFilter.class));
+
+        RunFilter rejectAll = new NotRunFilter(new NoRunFilter());
+        assertThat(new AndRunFilter(a, rejectAll).simplify(), sameInstance(rejectAll));
+        assertThat(new OrRunFilter(a, rejectAll).simplify(), sameInstance(a));
+    }
+
+    @Test
+    public void testSingleChildAndDuplicates() {
+        assertThat(new AndRunFilter(a).simplify(), sameInstance(a));
+        assertThat(new OrRunFilter(a, a).simplify(), sameInstance(a));
+        assertThat(new AndRunFilter(new NoRunFilter()).simplify(), instanceOf(NoRunFilter.class));
+    }
+
+    @Test
+    public void testDoubleNegation() {
+        assertThat(new NotRunFilter(new NotRunFilter(a)).simplify(), sameInstance(a));
+
+        RunFilter filter = new NotRunFilter(new AndRunFilter(new NotRunFilter(new NotRunFilter(a)), b)).simplify();
+        assertThat(filter, instanceOf(NotRunFilter.class));
+        RunFilter child = ((NotRunFilter)filter).getRunFilter();
+        assertThat(((AndRunFilter)child).getRunFilterList(), contains(a, b));
+    }
+
+    @Test
+    public void testSimplifiedOnlyOnce() {
+        RunFilter filter = new AndRunFilter(a, new AndRunFilter(b, c));
+        assertThat(filter.simplify(), sameInstance(filter.simplify()));
+        assertThat(filter.simplify().simplify(), sameInstance(filter.simplify()));
+    }
+}
@@ -0,0 +1,183 @@
+package org.jenkinsci.plugins.runselector.index;
+
+import hudson.Launcher;
+import hudson.model.AbstractBuild;
+import hudson.model.BuildListener;
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+import hudson.model.ParametersAction;
+import hudson.model.ParametersDefinitionProperty;
+import hudson.model.Run;
+import hudson.model.StringParameterDefinition;
+import hudson.model.StringParameterValue;
+import hudson.model.TaskListener;
+import hudson.model.queue.QueueTaskFuture;
+import hudson.tasks.Fingerprinter;
+import hudson.util.OneShotEvent;
+import org.jenkinsci.plugins.runselector.context.RunSelectorContext;
+import org.jenkinsci.plugins.runselector.filters.DownstreamRunFilter;
+import org.jenkinsci.plugins.runselector.selectors.StatusRunSelector;
+import org.jenkinsci.plugins.runselector.testutils.FileWriteBuilder;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.TestBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link UpstreamIndex}.
+ */
+public class UpstreamIndexTest {
+
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+
+    private FreeStyleBuild build(FreeStyleProject p, String content, String content2) throws Exception {
+        return j.assertBuildStatusSuccess(schedule(p, content, content2));
+    }
+
+    private QueueTaskFuture<FreeStyleBuild> schedule(FreeStyleProject p, String content, String content2) {
+        return p.scheduleBuild2(0, null, new ParametersAction(
+                new StringParameterValue("CONTENT", content),
+                new StringParameterValue("CONTENT2", content2)
+        ));
+    }
+
+    private FreeStyleProject createProject() throws Exception {
+        FreeStyleProject p = j.createFreeStyleProject();
+        p.addProperty(new ParametersDefinitionProperty(
+                new StringParameterDefinition("CONTENT", ""),
+                new StringParameterDefinition("CONTENT2", "")
+        ));
+        p.getBuildersList().add(new FileWriteBuilder("a.txt", "${CONTENT}"));
+        p.getBuildersList().add(new FileWriteBuilder("b.txt", "${CONTENT2}"));
+        p.getPublishersList().add(new Fingerprinter("a.txt,b.txt"));
+        return p;
+    }
+
+    private static List<Run<?, ?>> selectWithoutIndex(FreeStyleProject job, DownstreamRunFilter filter, RunSelectorContext context) throws Exception {
+        List<Run<?, ?>> result = new ArrayList<Run<?, ?>>();
+        for (Run<?, ?> b = job.getLastBuild(); b != null; b = b.getPreviousBuild()) {
+            if (filter.isSelectable(b, context)) {
+                result.add(b);
+            }
+        }
+        return result;
+    }
+
+    private static BitSet getNumbers(List<Run<?, ?>> builds) {
+        BitSet numbers = new BitSet();
+        for (Run<?, ?> b : builds) {
+            numbers.set(b.getNumber());
+        }
+        return numbers;
+    }
+
+    /**
+     * Waits for the downstream job and the upstream job to be indexed.
+     */
+    private static BitSet waitForIndex(FreeStyleProject job, DownstreamRunFilter filter, RunSelectorContext context) throws Exception {
+        long deadline = System.currentTimeMillis() + 10000;
+        BitSet numbers;
+        while ((numbers = filter.getSelectableNumbers(job, context)) == null) {
+            assertThat("indexed in time", System.currentTimeMillis() < deadline, is(true));
+            Thread.sleep(100);
+        }
+        return numbers;
+    }
+
+    @Test
+    public void sameResultsWithFingerprints() throws Exception {
+        FreeStyleProject upstream = createProject();
+        FreeStyleProject downstream = createProject();
+        // originals of fingerprints.
+        build(upstream, "a", "a2");
+        build(upstream, "b", "b2");
+        build(upstream, "c", "c2");
+
+        // linked only with fingerprints.
+        FreeStyleBuild d1 = build(downstream, "a", "");
+        FreeStyleBuild d2 = build(downstream, "b", "");
+        build(downstream, "x", "");
+        FreeStyleBuild d4 = build(downstream, "a2", "");
+        // upstream#1 and upstream#2: only the newest one is the upstream build.
+        FreeStyleBuild d5 = build(downstream, "a", "b");
+        FreeStyleBuild d6 = build(downstream, "c2", "a");
+        Run<?, ?> run = j.assertBuildStatusSuccess(j.createFreeStyleProject().scheduleBuild2(0));
+
+        List<List<Run<?, ?>>> expected = Arrays.<List<Run<?, ?>>>asList(
+                Arrays.<Run<?, ?>>asList(d4, d1),
+                Arrays.<Run<?, ?>>asList(d5, d2),
+                Collections.<Run<?, ?>>singletonList(d6)
+        );
+        for (int i = 0; i < expected.size(); ++i) {
+            String number = Integer.toString(i + 1);
+            DownstreamRunFilter filter = new DownstreamRunFilter(upstream.getFullName(), number);
+            RunSelectorContext context = new RunSelectorContext(j.jenkins, run, TaskListener.NULL);
+            assertThat(number, selectWithoutIndex(downstream, filter, context), is(expected.get(i)));
+
+            assertThat(number, waitForIndex(downstream, filter, context), is(getNumbers(expected.get(i))));
+            context = new RunSelectorContext(j.jenkins, run, TaskListener.NULL);
+            context.setRunFilter(filter);
+            assertThat(
+                    number,
+                    new StatusRunSelector(StatusRunSelector.BuildStatus.ANY).selectAll(downstream, context, 0),
+                    is(expected.get(i))
+            );
+        }
+    }
+
+    @Test
+    public void buildingBuildsAreLookedInto() throws Exception {
+        FreeStyleProject upstream = createProject();
+        FreeStyleProject downstream = createProject();
+        build(upstream, "a", "a2");
+        build(upstream, "b", "b2");
+        FreeStyleBuild d1 = build(downstream, "a", "");
+        Run<?, ?> run = j.assertBuildStatusSuccess(j.createFreeStyleProject().scheduleBuild2(0));
+
+        DownstreamRunFilter filter1 = new DownstreamRunFilter(upstream.getFullName(), "1");
+        DownstreamRunFilter filter2 = new DownstreamRunFilter(upstream.getFullName(), "2");
+        RunSelectorContext context = new RunSelectorContext(j.jenkins, run, TaskListener.NULL);
+        waitForIndex(downstream, filter1, context);
+
+        // blocks before fingerprints are recorded.
+        final OneShotEvent started = new OneShotEvent();
+        final OneShotEvent release = new OneShotEvent();
+        downstream.getBuildersList().add(new TestBuilder() {
+            @Override
+            public boolean perform(AbstractBuild<?, ?> build, Launcher launcher, BuildListener listener) throws InterruptedException, IOException {
+                started.signal();
+                release.block();
+                return true;
+            }
+        });
+        QueueTaskFuture<FreeStyleBuild> future = schedule(downstream, "b", "");
+        started.block();
+        FreeStyleBuild d2 = downstream.getBuildByNumber(2);
+        assertThat(d2.isBuilding(), is(true));
+
+        // not linked to any upstream builds yet.
+        BitSet expected1 = new BitSet();
+        expected1.set(d1.getNumber());
+        BitSet expected2 = new BitSet();
+        assertThat(filter1.getSelectableNumbers(downstream, new RunSelectorContext(j.jenkins, run, TaskListener.NULL)), is(expected1));
+        assertThat(filter2.getSelectableNumbers(downstream, new RunSelectorContext(j.jenkins, run, TaskListener.NULL)), is(expected2));
+
+        expected2.set(d2.getNumber());
+
+        release.signal();
+        j.assertBuildStatusSuccess(future);
+        assertThat(filter1.getSelectableNumbers(downstream, new RunSelectorContext(j.jenkins, run, TaskListener.NULL)), is(expected1));
+        assertThat(filter2.getSelectableNumbers(downstream, new RunSelectorContext(j.jenkins, run, TaskListener.NULL)), is(expected2));
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 Alexandru Somai
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jenkinsci.plugins.runselector.metrics;
+
+import hudson.model.FreeStyleProject;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import net.sf.json.JSONObject;
+import org.jenkinsci.plugins.runselector.context.RunSelectorContext;
+import org.jenkinsci.plugins.runselector.filters.DisplayNameRunFilter;
+import org.jenkinsci.plugins.runselector.selectors.StatusRunSelector;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link SelectionMetrics}.
+ *
+ * @author Alexandru Somai
+ */
+public class SelectionMetricsTest {
+
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+
+    @Test
+    public void testSelectionIsRecorded() throws Exception {
+        FreeStyleProject jobToSelect = j.createFreeStyleProject();
+        j.assertBuildStatusSuccess(jobToSelect.scheduleBuild2(0));
+        j.assertBuildStatusSuccess(jobToSelect.scheduleBuild2(0));
+        j.assertBuildStatusSuccess(jobToSelect.scheduleBuild2(0));
+        jobToSelect.getBuildByNumber(1).setDisplayName("target");
+
+        FreeStyleProject selecter = j.createFreeStyleProject();
+        Run<?, ?> run = j.assertBuildStatusSuccess(selecter.scheduleBuild2(0));
+
+        SelectorMetrics selectorMetrics = SelectionMetrics.get().getSelectorMetrics(StatusRunSelector.class);
+        FilterMetrics filterMetrics = SelectionMetrics.get().getFilterMetrics(DisplayNameRunFilter.class);
+        long selections = selectorMetrics.getSelections();
+        long scanned = selectorMetrics.getCandidatesScanned();
+        long rejected = selectorMetrics.getCandidatesRejected();
+        long filterRejected = filterMetrics.getRejected();
+
+        Run<?, ?> selectedRun = new StatusRunSelector().select(
+                jobToSelect,
+                new RunSelectorContext(j.jenkins, run, TaskListener.NULL, new DisplayNameRunFilter("target"))
+        );
+        assertThat(selectedRun, notNullValue());
+        assertThat(selectedRun.getNumber(), is(1));
+
+        assertThat(selectorMetrics.getSelections(), is(selections + 1));
+        assertThat(selectorMetrics.getCandidatesScanned(), is(scanned + 3));
+        assertThat(selectorMetrics.getCandidatesRejected(), is(rejected + 2));
+        assertThat(filterMetrics.getRejected(), is(filterRejected + 2));
+        assertThat(selectorMetrics.getLatency().getCount(), greaterThan(0L));
+
+        JSONObject json = JSONObject.fromObject(
+                j.createWebClient().goTo("runSelectorMetrics/", "application/json").getWebResponse().getContentAsString()
+        );
+        assertThat(
+                json.getJSONObject("selectors").getJSONObject(StatusRunSelector.class.getName()).getLong("selections"),
+                is(selectorMetrics.getSelections())
+        );
+    }
+
+    @Test
+    public void testLatencyHistogram() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(0L);
+        histogram.record(1025L);
+        histogram.record(1500L);
+        histogram.record(1L << 50);
+
+        assertThat(histogram.getCount(), is(4L));
+        assertThat(histogram.getMaxNanos(), is(1L << 50));
+        long[] counts = histogram.getBucketCounts();
+        assertThat(counts[0], is(1L));
+        assertThat(counts[LatencyHistogram.bucketOf(1025L)], is(2L));
+        assertThat(counts[LatencyHistogram.BUCKETS - 1], is(1L));
+        assertThat(histogram.getQuantileNanos(0.5), is(2048L));
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2017 Alexandru Somai
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jenkinsci.plugins.runselector.selectors;
+
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import org.jenkinsci.plugins.runselector.context.RunSelectorContext;
+import org.jenkinsci.plugins.runselector.filters.DisplayNameRunFilter;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+import java.util.Arrays;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link FallbackRunSelector}.
+ *
+ * @author Alexandru Somai
+ */
+public class FallbackRunSelectorTest {
+
+    @ClassRule
+    public static JenkinsRule j = new JenkinsRule();
+
+    private static FreeStyleProject jobToSelect;
+
+    private static Run<?, ?> selecterBuild;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        jobToSelect = j.createFreeStyleProject();
+        j.assertBuildStatusSuccess(jobToSelect.scheduleBuild2(0));
+        j.assertBuildStatusSuccess(jobToSelect.scheduleBuild2(0));
+        j.assertBuildStatusSuccess(jobToSelect.scheduleBuild2(0));
+        FreeStyleBuild lastBuild = jobToSelect.getLastBuild();
+        assertThat(lastBuild, notNullValue());
+        assertThat(lastBuild.getNumber(), is(3));
+        jobToSelect.getBuildByNumber(2).setDisplayName("RC1");
+
+        selecterBuild = j.assertBuildStatusSuccess(j.createFreeStyleProject().scheduleBuild2(0));
+    }
+
+    private static FallbackRunSelector createSelector(boolean parallel) {
+        FallbackRunSelector selector = new FallbackRunSelector(Arrays.asList(
+                new FallbackRunSelector.Entry(new StatusRunSelector(), new DisplayNameRunFilter("missing")),
+                new FallbackRunSelector.Entry(new StatusRunSelector(), new DisplayNameRunFilter("RC1")),
+                new FallbackRunSelector.Entry(new StatusRunSelector())
+        ));
+        selector.setParallel(parallel);
+        return selector;
+    }
+
+    private static Run<?, ?> select(FallbackRunSelector selector) throws Exception {
+        return selector.select(jobToSelect, new RunSelectorContext(j.jenkins, selecterBuild, TaskListener.NULL));
+    }
+
+    @Test
+    public void testSequential() throws Exception {
+        Run<?, ?> selectedRun = select(createSelector(false));
+        assertThat(selectedRun, notNullValue());
+        assertThat(selectedRun.getNumber(), is(2));
+    }
+
+    @Test
+    public void testParallelSelectsFirstMatchingEntry() throws Exception {
+        for (int i = 0; i < 10; ++i) {
+            Run<?, ?> selectedRun = select(createSelector(true));
+            assertThat(selectedRun, notNullValue());
+            assertThat(selectedRun.getNumber(), is(2));
+        }
+    }
+
+    @Test
+    public void testParallelNoMatch() throws Exception {
+        FallbackRunSelector selector = new FallbackRunSelector(Arrays.asList(
+                new FallbackRunSelector.Entry(new StatusRunSelector(), new DisplayNameRunFilter("missing1")),
+                new FallbackRunSelector.Entry(new StatusRunSelector(), new DisplayNameRunFilter("missing2"))
+        ));
+        selector.setParallel(true);
+        assertThat(select(selector), nullValue());
+    }
+}
@@ -78,7 +78,7 @@ public class RunSelectorParameterTest {
         Queue.Item q = rule.jenkins.getQueue().getItem(job);
         if (q != null) q.getFuture().get();
         while (job.getLastBuild().isBuilding()) Thread.sleep(100);
-        assertEquals("<BuildNumberRunSelector><buildNumber>6</buildNumber></BuildNumberRunSelector>",
+        assertEquals("rs1:{\"@\":\"BuildNumberRunSelector\",\"buildNumber\":\"6\"}",
                 ceb.getEnvVars().get("SELECTOR").replaceAll("\\s+", ""));
         job.getBuildersList().replace(ceb = new CaptureEnvironmentBuilder());
 
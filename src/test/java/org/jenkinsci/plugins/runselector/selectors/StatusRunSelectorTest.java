@@ -1,18 +1,38 @@
 package org.jenkinsci.plugins.runselector.selectors;
 
+import hudson.Launcher;
+import hudson.model.AbstractBuild;
+import hudson.model.BuildListener;
+import hudson.model.FreeStyleBuild;
 import hudson.model.FreeStyleProject;
+import hudson.model.Job;
+import hudson.model.Result;
 import hudson.model.Run;
 import hudson.model.TaskListener;
+import hudson.model.queue.QueueTaskFuture;
+import hudson.tasks.Builder;
+import hudson.util.OneShotEvent;
 import org.apache.commons.lang.RandomStringUtils;
 import org.jenkinsci.plugins.runselector.RunSelector;
 import org.jenkinsci.plugins.runselector.context.RunSelectorContext;
+import org.jenkinsci.plugins.runselector.index.RunIndex;
+import org.jenkinsci.plugins.runselector.selectors.StatusRunSelector.BuildStatus;
 import org.jenkinsci.plugins.workflow.cps.CpsFlowDefinition;
 import org.jenkinsci.plugins.workflow.job.WorkflowJob;
 import org.jenkinsci.plugins.workflow.job.WorkflowRun;
 import org.junit.BeforeClass;
 import org.junit.ClassRule;
 import org.junit.Test;
+import org.jvnet.hudson.test.FailureBuilder;
 import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.TestBuilder;
+import org.jvnet.hudson.test.UnstableBuilder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
 
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
@@ -99,6 +119,107 @@ public class StatusRunSelectorTest {
         j.assertBuildStatusSuccess(job.scheduleBuild2(0));
     }
 
+    @Test
+    public void testSameResultsWithIndex() throws Exception {
+        FreeStyleProject p = j.createFreeStyleProject();
+        List<Builder> builders = Arrays.<Builder>asList(
+                new UnstableBuilder(), new FailureBuilder(), null, new UnstableBuilder(), new FailureBuilder(), null
+        );
+        for (Builder builder : builders) {
+            p.getBuildersList().clear();
+            if (builder != null) {
+                p.getBuildersList().add(builder);
+            }
+            p.scheduleBuild2(0).get();
+        }
+        Run<?, ?> run = j.assertBuildStatusSuccess(j.createFreeStyleProject().scheduleBuild2(0));
+
+        // statuses looked up with the index.
+        List<BuildStatus> statuses = Arrays.asList(BuildStatus.UNSTABLE, BuildStatus.SUCCESSFUL);
+        // the first query starts indexing.
+        Map<BuildStatus, List<Run<?, ?>>> withoutIndex = new EnumMap<BuildStatus, List<Run<?, ?>>>(BuildStatus.class);
+        for (BuildStatus status : statuses) {
+            withoutIndex.put(status, new StatusRunSelector(status).selectAll(p, new RunSelectorContext(j.jenkins, run, TaskListener.NULL), 0));
+        }
+        waitForIndex(p);
+
+        for (BuildStatus status : statuses) {
+            List<Run<?, ?>> expected = new ArrayList<Run<?, ?>>();
+            for (Run<?, ?> b = p.getLastBuild(); b != null; b = b.getPreviousBuild()) {
+                if (status == BuildStatus.UNSTABLE
+                        ? b.getResult() == Result.UNSTABLE
+                        : b.getResult().isBetterOrEqualTo(Result.UNSTABLE)) {
+                    expected.add(b);
+                }
+            }
+            List<Run<?, ?>> withIndex = new StatusRunSelector(status).selectAll(p, new RunSelectorContext(j.jenkins, run, TaskListener.NULL), 0);
+            assertThat(status.name(), withIndex, is(expected));
+            assertThat(status.name(), withoutIndex.get(status), is(expected));
+        }
+    }
+
+    @Test
+    public void testRunningBuildWithResult() throws Exception {
+        FreeStyleProject p = j.createFreeStyleProject();
+        p.setConcurrentBuild(true);
+        p.getBuildersList().add(new UnstableBuilder());
+        FreeStyleBuild oldest = j.assertBuildStatus(Result.UNSTABLE, p.scheduleBuild2(0).get());
+
+        p.getBuildersList().replace(new UnstableAndBlockBuilder());
+        QueueTaskFuture<FreeStyleBuild> future = p.scheduleBuild2(0);
+        UnstableAndBlockBuilder.entered.block();
+        FreeStyleBuild running = future.getStartCondition().get();
+
+        p.getBuildersList().replace(new UnstableBuilder());
+        FreeStyleBuild newest = j.assertBuildStatus(Result.UNSTABLE, p.scheduleBuild2(0).get());
+
+        try {
+            assertThat(running.isBuilding(), is(true));
+            assertThat(running.getResult(), is(Result.UNSTABLE));
+
+            Run<?, ?> run = j.assertBuildStatusSuccess(j.createFreeStyleProject().scheduleBuild2(0));
+            List<Run<?, ?>> expected = Arrays.<Run<?, ?>>asList(newest, oldest);
+            List<BuildStatus> statuses = Arrays.asList(BuildStatus.UNSTABLE, BuildStatus.SUCCESSFUL);
+            // the first query starts indexing.
+            for (BuildStatus status : statuses) {
+                List<Run<?, ?>> withoutIndex = new StatusRunSelector(status).selectAll(p, new RunSelectorContext(j.jenkins, run, TaskListener.NULL), 0);
+                assertThat(status.name(), withoutIndex, is(expected));
+            }
+            waitForIndex(p);
+            for (BuildStatus status : statuses) {
+                List<Run<?, ?>> withIndex = new StatusRunSelector(status).selectAll(p, new RunSelectorContext(j.jenkins, run, TaskListener.NULL), 0);
+                assertThat(status.name(), withIndex, is(expected));
+            }
+        } finally {
+            UnstableAndBlockBuilder.release.signal();
+        }
+        j.assertBuildStatus(Result.UNSTABLE, future.get());
+    }
+
+    /**
+     * Marks the build unstable and blocks until released.
+     */
+    public static class UnstableAndBlockBuilder extends TestBuilder {
+        private static final OneShotEvent entered = new OneShotEvent();
+        private static final OneShotEvent release = new OneShotEvent();
+
+        @Override
+        public boolean perform(AbstractBuild<?, ?> build, Launcher launcher, BuildListener listener) throws InterruptedException {
+            build.setResult(Result.UNSTABLE);
+            entered.signal();
+            release.block();
+            return true;
+        }
+    }
+
+    private static void waitForIndex(Job<?, ?> job) throws Exception {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (RunIndex.get().getPreviousBuildNumber(job, job.getNextBuildNumber(), BuildStatus.SUCCESSFUL) == RunIndex.UNKNOWN) {
+            assertThat("indexed in time", System.currentTimeMillis() < deadline, is(true));
+            Thread.sleep(100);
+        }
+    }
+
     private static void verifySelectedRun(RunSelector selector, Run expectedRun) throws Exception {
         FreeStyleProject selecter = j.createFreeStyleProject();
 
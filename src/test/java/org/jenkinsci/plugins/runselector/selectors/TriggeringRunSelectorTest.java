@@ -0,0 +1,121 @@
+package org.jenkinsci.plugins.runselector.selectors;
+
+import hudson.model.Cause;
+import hudson.model.CauseAction;
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import org.jenkinsci.plugins.runselector.context.RunSelectorContext;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link TriggeringRunSelector}.
+ */
+public class TriggeringRunSelectorTest {
+
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+
+    @Test
+    public void upstreamBuildsInOrder() throws Exception {
+        FreeStyleProject target = j.createFreeStyleProject();
+        FreeStyleBuild t1 = j.buildAndAssertSuccess(target);
+        FreeStyleBuild t2 = j.buildAndAssertSuccess(target);
+        FreeStyleBuild m1 = build(j.createFreeStyleProject(), t1);
+        FreeStyleBuild m2 = build(j.createFreeStyleProject(), t2);
+        FreeStyleBuild current = build(j.createFreeStyleProject(), m1, m2);
+
+        TriggeringRunSelector selector = new TriggeringRunSelector();
+        selector.setUpstreamFilterStrategy(TriggeringRunSelector.UpstreamFilterStrategy.UseNewest);
+        assertThat(selectAll(selector, target, current), contains(t2, t1));
+
+        selector.setUpstreamFilterStrategy(TriggeringRunSelector.UpstreamFilterStrategy.UseOldest);
+        assertThat(selectAll(selector, target, current), contains(t1, t2));
+    }
+
+    @Test
+    public void diamondIsLookedIntoOnce() throws Exception {
+        FreeStyleProject target = j.createFreeStyleProject();
+        FreeStyleBuild t1 = j.buildAndAssertSuccess(target);
+        FreeStyleBuild root = build(j.createFreeStyleProject(), t1);
+        FreeStyleBuild left = build(j.createFreeStyleProject(), root);
+        FreeStyleBuild right = build(j.createFreeStyleProject(), root);
+        FreeStyleBuild current = build(j.createFreeStyleProject(), left, right);
+
+        assertThat(selectAll(new TriggeringRunSelector(), target, current), contains(t1));
+    }
+
+    @Test
+    public void maxUpstreamDepth() throws Exception {
+        FreeStyleProject target = j.createFreeStyleProject();
+        FreeStyleBuild t1 = j.buildAndAssertSuccess(target);
+        FreeStyleBuild t2 = j.buildAndAssertSuccess(target);
+        // t1 is in depth 2, t2 is in depth 3.
+        FreeStyleBuild near = build(j.createFreeStyleProject(), t1);
+        FreeStyleBuild far = build(j.createFreeStyleProject(), build(j.createFreeStyleProject(), t2));
+        FreeStyleBuild current = build(j.createFreeStyleProject(), near, far);
+
+        TriggeringRunSelector selector = new TriggeringRunSelector();
+        selector.setUpstreamFilterStrategy(TriggeringRunSelector.UpstreamFilterStrategy.UseNewest);
+        assertThat(selectAll(selector, target, current), contains(t2, t1));
+
+        selector.setMaxUpstreamDepth(2);
+        assertThat(selectAll(selector, target, current), contains(t1));
+
+        selector.setMaxUpstreamDepth(1);
+        assertThat(selectAll(selector, target, current), is(empty()));
+
+        // falls back to the global configuration.
+        selector.setMaxUpstreamDepth(null);
+        TriggeringRunSelector.DescriptorImpl d = j.jenkins.getDescriptorByType(TriggeringRunSelector.DescriptorImpl.class);
+        d.setGlobalMaxUpstreamDepth(2);
+        try {
+            assertThat(selector.getMaxUpstreamDepth(), nullValue());
+            assertThat(selectAll(selector, target, current), contains(t1));
+        } finally {
+            d.setGlobalMaxUpstreamDepth(0);
+        }
+    }
+
+    @Test
+    public void shallowerPathFoundLater() throws Exception {
+        FreeStyleProject target = j.createFreeStyleProject();
+        FreeStyleBuild t1 = j.buildAndAssertSuccess(target);
+        FreeStyleBuild shared = build(j.createFreeStyleProject(), t1);
+        FreeStyleBuild shallow = build(j.createFreeStyleProject(), shared);
+        FreeStyleBuild deep = build(j.createFreeStyleProject(), shared);
+        // newer than shallow, so the path through deep is traversed first
+        // and shared is found in depth 3 before found in depth 2.
+        FreeStyleBuild deeper = build(j.createFreeStyleProject(), deep);
+        FreeStyleBuild current = build(j.createFreeStyleProject(), shallow, deeper);
+
+        TriggeringRunSelector selector = new TriggeringRunSelector();
+        selector.setMaxUpstreamDepth(3);
+        assertThat(selectAll(selector, target, current), contains(t1));
+    }
+
+    private FreeStyleBuild build(FreeStyleProject p, Run<?, ?>... upstreams) throws Exception {
+        List<Cause> causes = new ArrayList<Cause>();
+        for (Run<?, ?> upstream : upstreams) {
+            causes.add(new Cause.UpstreamCause(upstream));
+        }
+        return j.assertBuildStatusSuccess(p.scheduleBuild2(0, null, new CauseAction(causes)));
+    }
+
+    private List<Run<?, ?>> selectAll(TriggeringRunSelector selector, FreeStyleProject target, Run<?, ?> current)
+            throws Exception {
+        return selector.selectAll(target, new RunSelectorContext(j.jenkins, current, TaskListener.NULL), 0);
+    }
+}
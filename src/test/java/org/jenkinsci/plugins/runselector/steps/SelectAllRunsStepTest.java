@@ -0,0 +1,66 @@
+package org.jenkinsci.plugins.runselector.steps;
+
+import hudson.model.queue.QueueTaskFuture;
+import org.apache.commons.lang.RandomStringUtils;
+import org.jenkinsci.plugins.workflow.cps.CpsFlowDefinition;
+import org.jenkinsci.plugins.workflow.job.WorkflowJob;
+import org.jenkinsci.plugins.workflow.job.WorkflowRun;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.jvnet.hudson.test.BuildWatcher;
+import org.jvnet.hudson.test.JenkinsRule;
+
+import static java.lang.String.format;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for the {@link SelectAllRunsStep}.
+ */
+public class SelectAllRunsStepTest {
+
+    @ClassRule
+    public static JenkinsRule j = new JenkinsRule();
+
+    @ClassRule
+    public static BuildWatcher watcher = new BuildWatcher();
+
+    @Test
+    public void selectWithLimit() throws Exception {
+        WorkflowRun upstreamRun = j.assertBuildStatusSuccess(createWorkflowJobAndRun("echo 'foobar'"));
+        WorkflowJob upstreamJob = upstreamRun.getParent();
+        j.assertBuildStatusSuccess(upstreamJob.scheduleBuild2(0));
+        j.assertBuildStatusSuccess(upstreamJob.scheduleBuild2(0));
+
+        WorkflowRun run = createWorkflowJobAndRun(format("" +
+                "def runs = selectAllRuns job: '%s', limit: 2 \n" +
+                "echo 'Selected runs: ' + runs.collect { it.number }.join(',')", upstreamJob.getFullName()));
+
+        j.assertBuildStatusSuccess(run);
+        j.assertLogContains("Selected runs: 3,2", run);
+    }
+
+    @Test
+    public void selectAllMatching() throws Exception {
+        WorkflowRun upstreamRun = j.assertBuildStatusSuccess(createWorkflowJobAndRun("echo 'foobar'"));
+        WorkflowJob upstreamJob = upstreamRun.getParent();
+        j.assertBuildStatusSuccess(upstreamJob.scheduleBuild2(0));
+        j.assertBuildStatusSuccess(upstreamJob.scheduleBuild2(0));
+
+        WorkflowRun run = createWorkflowJobAndRun(format("" +
+                "def runs = selectAllRuns job: '%s', filter: [$class: 'NotRunFilter', runFilter: [$class: 'DisplayNameRunFilter', runDisplayName: '#2']] \n" +
+                "echo 'Selected runs: ' + runs.collect { it.number }.join(',')", upstreamJob.getFullName()));
+
+        j.assertBuildStatusSuccess(run);
+        j.assertLogContains("Selected runs: 3,1", run);
+    }
+
+    private static WorkflowRun createWorkflowJobAndRun(String script) throws Exception {
+        WorkflowJob job = j.jenkins.createProject(WorkflowJob.class, RandomStringUtils.randomAlphanumeric(7));
+        job.setDefinition(new CpsFlowDefinition(script));
+        QueueTaskFuture<WorkflowRun> runFuture = job.scheduleBuild2(0);
+        assertThat(runFuture, notNullValue());
+
+        return runFuture.get();
+    }
+}
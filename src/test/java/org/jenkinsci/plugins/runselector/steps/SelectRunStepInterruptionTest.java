@@ -0,0 +1,140 @@
+package org.jenkinsci.plugins.runselector.steps;
+
+import hudson.model.Executor;
+import hudson.model.FreeStyleProject;
+import hudson.model.Result;
+import hudson.model.Run;
+import hudson.util.OneShotEvent;
+import org.jenkinsci.plugins.runselector.RunFilter;
+import org.jenkinsci.plugins.runselector.RunFilterDescriptor;
+import org.jenkinsci.plugins.runselector.context.RunSelectorContext;
+import org.jenkinsci.plugins.workflow.cps.CpsFlowDefinition;
+import org.jenkinsci.plugins.workflow.job.WorkflowJob;
+import org.jenkinsci.plugins.workflow.job.WorkflowRun;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runners.model.Statement;
+import org.jvnet.hudson.test.RestartableJenkinsRule;
+import org.jvnet.hudson.test.TestExtension;
+import org.kohsuke.stapler.DataBoundConstructor;
+
+import javax.annotation.Nonnull;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link AbstractSelectionStepExecution} when selections are interrupted.
+ */
+public class SelectRunStepInterruptionTest {
+
+    @Rule
+    public RestartableJenkinsRule story = new RestartableJenkinsRule();
+
+    private static final String SCRIPT = ""
+            + "def runWrapper = selectRun job: 'upstream', filter: [$class: 'BlockingRunFilter']\n"
+            + "echo \"selected #${runWrapper.number}\"";
+
+    @Before
+    public void setUp() {
+        BlockingRunFilter.reset();
+    }
+
+    private WorkflowRun startBlockedBuild() throws Exception {
+        FreeStyleProject upstream = story.j.createFreeStyleProject("upstream");
+        story.j.assertBuildStatusSuccess(upstream.scheduleBuild2(0));
+        WorkflowJob job = story.j.jenkins.createProject(WorkflowJob.class, "downstream");
+        job.setDefinition(new CpsFlowDefinition(SCRIPT));
+        WorkflowRun b = job.scheduleBuild2(0).waitForStart();
+        BlockingRunFilter.entered.block();
+        return b;
+    }
+
+    @Test
+    public void abortInterruptsSelection() {
+        story.addStep(new Statement() {
+            @Override
+            public void evaluate() throws Throwable {
+                WorkflowRun b = startBlockedBuild();
+                Executor executor = b.getExecutor();
+                assertThat(executor, notNullValue());
+                executor.interrupt();
+                story.j.assertBuildStatus(Result.ABORTED, story.j.waitForCompletion(b));
+
+                // the worker thread is interrupted, and the result of the selection is discarded.
+                BlockingRunFilter.exited.block();
+                assertThat(BlockingRunFilter.interrupted, is(true));
+                story.j.assertLogNotContains("selected #", b);
+            }
+        });
+    }
+
+    @Test
+    public void resumeFails() {
+        story.addStep(new Statement() {
+            @Override
+            public void evaluate() throws Throwable {
+                startBlockedBuild();
+            }
+        });
+        story.addStep(new Statement() {
+            @Override
+            public void evaluate() throws Throwable {
+                try {
+                    WorkflowRun b = story.j.jenkins.getItemByFullName("downstream", WorkflowJob.class).getBuildByNumber(1);
+                    story.j.assertBuildStatus(Result.FAILURE, story.j.waitForCompletion(b));
+                    story.j.assertLogContains("Jenkins was restarted while selecting runs. Run the step again.", b);
+                    story.j.assertLogNotContains("selected #", b);
+                } finally {
+                    // lets the selection started before the restart exit.
+                    BlockingRunFilter.release.signal();
+                }
+            }
+        });
+    }
+
+    /**
+     * Blocks the selection till released or interrupted.
+     */
+    public static class BlockingRunFilter extends RunFilter {
+        private static OneShotEvent entered;
+        private static OneShotEvent release;
+        private static OneShotEvent exited;
+        private static volatile boolean interrupted;
+
+        static void reset() {
+            entered = new OneShotEvent();
+            release = new OneShotEvent();
+            exited = new OneShotEvent();
+            interrupted = false;
+        }
+
+        @DataBoundConstructor
+        public BlockingRunFilter() {
+        }
+
+        @Override
+        public boolean isSelectable(@Nonnull Run<?, ?> candidate, @Nonnull RunSelectorContext context) {
+            entered.signal();
+            try {
+                release.block();
+            } catch (InterruptedException e) {
+                // not to fail the selection, so that only the stop discards the result.
+                interrupted = true;
+            } finally {
+                exited.signal();
+            }
+            return true;
+        }
+
+        @TestExtension
+        public static class DescriptorImpl extends RunFilterDescriptor {
+            @Override
+            public String getDisplayName() {
+                return "Blocking";
+            }
+        }
+    }
+}
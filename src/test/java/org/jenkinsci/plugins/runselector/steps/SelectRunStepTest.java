@@ -105,6 +105,24 @@ public class SelectRunStepTest {
         j.assertLogContains(format("ERROR: Unable to find Run for: %s, with selector: Latest specific status build (STABLE) and filter: No Filter", projectName), run);
     }
 
+    @Test
+    public void maxCandidatesExceeded() throws Exception {
+        WorkflowRun upstreamRun = createWorkflowJobAndRun("echo 'foobar'");
+        j.assertBuildStatusSuccess(upstreamRun);
+        j.assertBuildStatusSuccess(upstreamRun.getParent().scheduleBuild2(0));
+        j.assertBuildStatusSuccess(upstreamRun.getParent().scheduleBuild2(0));
+        String projectName = upstreamRun.getParent().getFullName();
+
+        WorkflowRun run = createWorkflowJobAndRun(format("" +
+                "def runWrapper = selectRun job: '%s', " +
+                " filter: [$class: 'ParametersRunFilter', paramsToMatch: 'NOT_EXIST=true'], " +
+                " maxCandidates: 2", projectName));
+
+        j.assertBuildStatus(Result.FAILURE, run);
+        j.assertLogContains("Gave up selecting a run after scanning 2 candidates", run);
+        j.assertLogContains(format("The scan reached %s #1.", projectName), run);
+    }
+
     @Test
     public void testStatusSymbol() throws Exception {
         assumeSymbolDependencies();
@@ -0,0 +1,88 @@
+package org.jenkinsci.plugins.runselector.steps;
+
+import hudson.model.Result;
+import hudson.model.queue.QueueTaskFuture;
+import org.apache.commons.lang.RandomStringUtils;
+import org.jenkinsci.plugins.workflow.cps.CpsFlowDefinition;
+import org.jenkinsci.plugins.workflow.job.WorkflowJob;
+import org.jenkinsci.plugins.workflow.job.WorkflowRun;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.jvnet.hudson.test.BuildWatcher;
+import org.jvnet.hudson.test.JenkinsRule;
+
+import static java.lang.String.format;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for the {@link SelectRunsStep}.
+ *
+ * @author Alexandru Somai
+ */
+public class SelectRunsStepTest {
+
+    @ClassRule
+    public static JenkinsRule j = new JenkinsRule();
+
+    @ClassRule
+    public static BuildWatcher watcher = new BuildWatcher();
+
+    @Test
+    public void selectFromMultipleJobs() throws Exception {
+        WorkflowRun upstreamRun1 = j.assertBuildStatusSuccess(createWorkflowJobAndRun("echo 'foobar'"));
+        WorkflowRun upstreamRun2 = j.assertBuildStatusSuccess(createWorkflowJobAndRun("echo 'foobar'"));
+        j.assertBuildStatusSuccess(upstreamRun2.getParent().scheduleBuild2(0));
+        String projectName1 = upstreamRun1.getParent().getFullName();
+        String projectName2 = upstreamRun2.getParent().getFullName();
+
+        WorkflowRun run = createWorkflowJobAndRun(format("" +
+                "def runs = selectRuns entries: [" +
+                "  [job: '%s'], " +
+                "  [job: '%s', selector: [$class: 'BuildNumberRunSelector', buildNumber: '1']]" +
+                "] \n" +
+                "echo 'Selected run 1: ' + runs['%s'].number \n" +
+                "echo 'Selected run 2: ' + runs['%s'].number", projectName1, projectName2, projectName1, projectName2));
+
+        j.assertBuildStatusSuccess(run);
+        j.assertLogContains("Selected run 1: 1", run);
+        j.assertLogContains("Selected run 2: 1", run);
+    }
+
+    @Test
+    public void reportFailuresOfAllEntries() throws Exception {
+        WorkflowRun upstreamRun = j.assertBuildStatusSuccess(createWorkflowJobAndRun("echo 'foobar'"));
+        String projectName = upstreamRun.getParent().getFullName();
+
+        WorkflowRun run = createWorkflowJobAndRun(format("" +
+                "selectRuns entries: [[job: 'not-existent1'], [job: '%s'], [job: 'not-existent2']]", projectName));
+
+        j.assertBuildStatus(Result.FAILURE, run);
+        j.assertLogContains("Failed to select a run of not-existent1: Unable to find any job named: not-existent1", run);
+        j.assertLogContains("Failed to select a run of not-existent2: Unable to find any job named: not-existent2", run);
+        j.assertLogContains("Unable to select runs for: not-existent1, not-existent2", run);
+    }
+
+    @Test
+    public void ignoreFailures() throws Exception {
+        WorkflowRun upstreamRun = j.assertBuildStatusSuccess(createWorkflowJobAndRun("echo 'foobar'"));
+        String projectName = upstreamRun.getParent().getFullName();
+
+        WorkflowRun run = createWorkflowJobAndRun(format("" +
+                "def runs = selectRuns entries: [[job: 'not-existent'], [job: '%s']], failOnError: false \n" +
+                "echo 'Selected: ' + runs.keySet().join(',')", projectName));
+
+        j.assertBuildStatusSuccess(run);
+        j.assertLogContains("Failed to select a run of not-existent", run);
+        j.assertLogContains("Selected: " + projectName, run);
+    }
+
+    private static WorkflowRun createWorkflowJobAndRun(String script) throws Exception {
+        WorkflowJob job = j.jenkins.createProject(WorkflowJob.class, RandomStringUtils.randomAlphanumeric(7));
+        job.setDefinition(new CpsFlowDefinition(script));
+        QueueTaskFuture<WorkflowRun> runFuture = job.scheduleBuild2(0);
+        assertThat(runFuture, notNullValue());
+
+        return runFuture.get();
+    }
+}